@@ -0,0 +1,398 @@
+package controleur;
+
+import metier.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reglage automatique des parametres du recuit par course (F-Race, Birattari et al.).
+ *
+ * Des configurations candidates (la configuration de base puis des tirages
+ * log-uniformes de T0, Tf, 1 - alpha, iterations par palier et stagnation) sont
+ * executees bloc par bloc, un bloc etant un couple (instance, graine) de l'ensemble
+ * d'apprentissage. Chaque execution dispose du meme budget de temps : on mesure
+ * la qualite atteinte par seconde de calcul. Les executions d'un bloc tournent en
+ * parallele, une par thread.
+ *
+ * Apres blocsMin blocs, un test de Friedman sur les rangs des couts par bloc
+ * decide si les survivants different ; si oui, le test post-hoc de Conover
+ * elimine ceux dont la somme des rangs s'ecarte significativement de la meilleure.
+ * La course s'arrete quand il reste un survivant ou que les blocs sont epuises.
+ * Le meilleur survivant (rang moyen) est ecrit comme profil
+ * ({@link ParametresRecuit#ecrire}).
+ */
+public class AutoReglage {
+
+    /** Configuration en course et ses couts, un par bloc courue. */
+    public static class Candidat {
+        public final int id;
+        public final ParametresRecuit parametres;
+        public final List<Double> couts = new ArrayList<>();
+        public final List<Double> ecarts = new ArrayList<>();
+        public boolean elimine;
+        public double rangMoyen;
+
+        Candidat(int id, ParametresRecuit parametres) {
+            this.id = id;
+            this.parametres = parametres;
+        }
+
+        /** Ecart moyen sur les blocs dont l'instance a un meilleur cout connu. */
+        public double ecartMoyen() {
+            double s = 0;
+            int n = 0;
+            for (double e : ecarts)
+                if (!Double.isNaN(e)) {
+                    s += e;
+                    n++;
+                }
+            return (n == 0) ? Double.NaN : s / n;
+        }
+    }
+
+    private final List<String> noms = new ArrayList<>();
+    private final List<DonneesVRP> instances = new ArrayList<>();
+    private ParametresRecuit base = new ParametresRecuit();
+    private int nbConfigurations = 20;
+    private int nbGraines = 5;
+    private long graineBase = 1;
+    private int nbThreads = Runtime.getRuntime().availableProcessors();
+    private long budgetMsParExecution = 2000;
+    private int blocsMin = 5;
+    private double seuil = 0.05;
+
+    private final List<Candidat> candidats = new ArrayList<>();
+
+    // --- Getters / Setters ---
+
+    /** Configuration de base, toujours courue en premier candidat. */
+    public void setBase(ParametresRecuit p) {
+        this.base = p;
+    }
+
+    public void setNbConfigurations(int n) {
+        this.nbConfigurations = Math.max(2, n);
+    }
+
+    public void setNbGraines(int n) {
+        this.nbGraines = n;
+    }
+
+    public void setGraineBase(long g) {
+        this.graineBase = g;
+    }
+
+    public void setNbThreads(int n) {
+        this.nbThreads = Math.max(1, n);
+    }
+
+    /** Temps de calcul accorde a chaque execution (meme budget pour tous les candidats). */
+    public void setBudgetMsParExecution(long ms) {
+        this.budgetMsParExecution = ms;
+    }
+
+    /** Nombre de blocs courus avant le premier test d'elimination. */
+    public void setBlocsMin(int n) {
+        this.blocsMin = Math.max(2, n);
+    }
+
+    /** Niveau des tests statistiques. */
+    public void setSeuil(double s) {
+        this.seuil = s;
+    }
+
+    public List<Candidat> getCandidats() {
+        return candidats;
+    }
+
+    // ====================================================================
+    // INSTANCES ET CANDIDATS
+    // ====================================================================
+
+    public void chargerRepertoire(Path repertoire) throws IOException {
+        for (Path f : BancEssai.listerInstances(repertoire)) {
+            noms.add(BancEssai.nomInstance(f));
+            instances.add(BancEssai.chargerInstance(f));
+        }
+    }
+
+    /** Base puis tirages log-uniformes, reproductibles a partir de la graine de base. */
+    private void genererCandidats() {
+        candidats.clear();
+        candidats.add(new Candidat(0, base));
+        Random r = new Random(graineBase);
+        for (int i = 1; i < nbConfigurations; i++) {
+            ParametresRecuit p = new ParametresRecuit();
+            p.setTemperatureInitiale(logUniforme(r, 1, 2000));
+            p.setTemperatureFinale(Math.min(logUniforme(r, 1e-3, 1), p.getTemperatureInitiale() / 10));
+            p.setTauxRefroidissement(1 - logUniforme(r, 0.005, 0.2));
+            p.setIterationsParTemperature((int) logUniforme(r, 500, 20000));
+            p.setMaxIterationsSansAmelioration((int) logUniforme(r, 1e4, 1e6));
+            p.setEcartCible(base.getEcartCible());
+            p.setBudgetEliminationMs(base.getBudgetEliminationMs());
+            candidats.add(new Candidat(i, p));
+        }
+    }
+
+    private static double logUniforme(Random r, double min, double max) {
+        return Math.exp(Math.log(min) + r.nextDouble() * (Math.log(max) - Math.log(min)));
+    }
+
+    // ====================================================================
+    // COURSE
+    // ====================================================================
+
+    /** Court les candidats et retourne le meilleur survivant. */
+    public Candidat courir() {
+        if (instances.isEmpty())
+            throw new IllegalStateException("Aucune instance d'apprentissage");
+        genererCandidats();
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads, r -> {
+            Thread th = new Thread(r, "auto-reglage");
+            th.setDaemon(true);
+            return th;
+        });
+        try {
+            int nbBlocs = instances.size() * nbGraines;
+            for (int b = 0; b < nbBlocs && survivants().size() > 1; b++) {
+                // Graine par graine : chaque instance est vue avant de repeter une graine
+                int inst = b % instances.size();
+                long graine = RecuitSimule.graineDerivee(graineBase, b / instances.size());
+                courirBloc(pool, inst, graine);
+                if (b + 1 >= blocsMin)
+                    eliminer();
+                System.out.printf("Bloc %d/%d (%s, graine %d) : %d survivants%n",
+                        b + 1, nbBlocs, noms.get(inst), graine, survivants().size());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        List<Candidat> restants = survivants();
+        calculerRangs(restants);
+        Candidat meilleur = restants.get(0);
+        for (Candidat c : restants)
+            if (c.rangMoyen < meilleur.rangMoyen)
+                meilleur = c;
+        return meilleur;
+    }
+
+    private List<Candidat> survivants() {
+        List<Candidat> res = new ArrayList<>();
+        for (Candidat c : candidats)
+            if (!c.elimine)
+                res.add(c);
+        return res;
+    }
+
+    private void courirBloc(ExecutorService pool, int inst, long graine) {
+        List<Candidat> enCourse = survivants();
+        List<Callable<double[]>> taches = new ArrayList<>();
+        for (Candidat c : enCourse)
+            taches.add(() -> executerUne(c.parametres, instances.get(inst), graine));
+        try {
+            List<Future<double[]>> res = pool.invokeAll(taches);
+            for (int k = 0; k < enCourse.size(); k++) {
+                double[] r = res.get(k).get();
+                enCourse.get(k).couts.add(r[0]);
+                enCourse.get(k).ecarts.add(r[1]);
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reglage interrompu", ex);
+        }
+    }
+
+    /** Cout atteint dans le budget (infini si invalide) et ecart en % au meilleur connu. */
+    private double[] executerUne(ParametresRecuit p, DonneesVRP donnees, long graine) {
+        RecuitSimule recuit = new RecuitSimule(donnees);
+        p.appliquer(recuit);
+        recuit.setGraine(graine);
+        recuit.setDateLimiteNanos(System.nanoTime() + budgetMsParExecution * 1_000_000L);
+        Solution s = recuit.executer();
+        double cout = recuit.estValide(s) ? s.cout : Double.POSITIVE_INFINITY;
+        double bks = donnees.getMeilleurConnu();
+        return new double[] { cout, (bks > 0) ? 100 * (cout - bks) / bks : Double.NaN };
+    }
+
+    // ====================================================================
+    // TESTS STATISTIQUES
+    // ====================================================================
+
+    /** Rangs moyens (ex aequo : rang moyen) des couts par bloc, sur les blocs communs. */
+    private static double[][] rangs(List<Candidat> cs) {
+        int k = cs.size(), n = cs.get(0).couts.size();
+        double[][] r = new double[n][k];
+        Integer[] ordre = new Integer[k];
+        for (int b = 0; b < n; b++) {
+            final int bloc = b;
+            for (int j = 0; j < k; j++)
+                ordre[j] = j;
+            Arrays.sort(ordre, (x, y) -> Double.compare(cs.get(x).couts.get(bloc), cs.get(y).couts.get(bloc)));
+            for (int i = 0; i < k;) {
+                int fin = i;
+                double v = cs.get(ordre[i]).couts.get(b);
+                while (fin + 1 < k && cs.get(ordre[fin + 1]).couts.get(b) == v)
+                    fin++;
+                double rang = (i + fin) / 2.0 + 1;
+                for (int m = i; m <= fin; m++)
+                    r[b][ordre[m]] = rang;
+                i = fin + 1;
+            }
+        }
+        return r;
+    }
+
+    private static void calculerRangs(List<Candidat> cs) {
+        double[][] r = rangs(cs);
+        for (int j = 0; j < cs.size(); j++) {
+            double s = 0;
+            for (double[] bloc : r)
+                s += bloc[j];
+            cs.get(j).rangMoyen = s / r.length;
+        }
+    }
+
+    /**
+     * Test de Friedman sur les survivants puis, s'il est significatif, comparaison de
+     * chaque survivant au meilleur (Conover) : elimine ceux qui en different.
+     */
+    private void eliminer() {
+        List<Candidat> cs = survivants();
+        int k = cs.size();
+        if (k < 2)
+            return;
+        double[][] r = rangs(cs);
+        int n = r.length;
+        double[] sommes = new double[k];
+        double a = 0;
+        for (double[] bloc : r)
+            for (int j = 0; j < k; j++) {
+                sommes[j] += bloc[j];
+                a += bloc[j] * bloc[j];
+            }
+        double c = n * k * (k + 1) * (k + 1) / 4.0;
+        if (a - c <= 1e-12)
+            return; // tous ex aequo
+        double ecarts2 = 0, sommes2 = 0;
+        for (double s : sommes) {
+            ecarts2 += (s - n * (k + 1) / 2.0) * (s - n * (k + 1) / 2.0);
+            sommes2 += s * s;
+        }
+        double t = (k - 1) * ecarts2 / (a - c);
+        if (1 - khiDeuxCdf(t, k - 1) >= seuil)
+            return;
+
+        int meilleur = 0;
+        for (int j = 1; j < k; j++)
+            if (sommes[j] < sommes[meilleur])
+                meilleur = j;
+        int ddl = (n - 1) * (k - 1);
+        double critique = quantileStudent(1 - seuil / 2, ddl)
+                * Math.sqrt(2 * (n * a - sommes2) / ddl);
+        for (int j = 0; j < k; j++)
+            if (sommes[j] - sommes[meilleur] > critique)
+                cs.get(j).elimine = true;
+    }
+
+    /** Fonction de repartition du khi-deux (approximation de Wilson-Hilferty). */
+    static double khiDeuxCdf(double x, int ddl) {
+        if (x <= 0)
+            return 0;
+        double v = 2.0 / (9 * ddl);
+        double z = (Math.cbrt(x / ddl) - (1 - v)) / Math.sqrt(v);
+        return normaleCdf(z);
+    }
+
+    /** Fonction de repartition de la loi normale (Abramowitz-Stegun 7.1.26). */
+    static double normaleCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return (z >= 0) ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+
+    /** Quantile de la loi normale, 0.5 < p < 1 (Abramowitz-Stegun 26.2.23). */
+    static double quantileNormale(double p) {
+        double t = Math.sqrt(-2 * Math.log(1 - p));
+        return t - (2.515517 + t * (0.802853 + t * 0.010328))
+                / (1 + t * (1.432788 + t * (0.189269 + t * 0.001308)));
+    }
+
+    /** Quantile de Student par developpement de Cornish-Fisher autour de la normale. */
+    static double quantileStudent(double p, int ddl) {
+        double z = quantileNormale(p), z3 = z * z * z, z5 = z3 * z * z;
+        return z + (z3 + z) / (4.0 * ddl) + (5 * z5 + 16 * z3 + 3 * z) / (96.0 * ddl * ddl);
+    }
+
+    // ====================================================================
+    // RAPPORT
+    // ====================================================================
+
+    public void afficherSynthese() {
+        List<Candidat> cs = new ArrayList<>(candidats);
+        // Survivants d'abord, puis par nombre de blocs courus et ecart moyen
+        cs.sort((x, y) -> x.elimine != y.elimine ? Boolean.compare(x.elimine, y.elimine)
+                : x.couts.size() != y.couts.size() ? Integer.compare(y.couts.size(), x.couts.size())
+                : Double.compare(x.ecartMoyen(), y.ecartMoyen()));
+        System.out.println("=== REGLAGE AUTOMATIQUE ===");
+        System.out.printf("%4s %6s %10s %10s  %s%n", "Id", "Blocs", "Ecart moy", "Etat", "Parametres");
+        for (Candidat c : cs)
+            System.out.printf(Locale.ROOT, "%4d %6d %9.2f%% %10s  %s%n", c.id, c.couts.size(),
+                    c.ecartMoyen(), c.elimine ? "elimine" : "survivant", c.parametres);
+    }
+
+    // --- Main ---
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java controleur.AutoReglage <repertoire> "
+                    + "[budgetMsParExecution] [nbConfigurations] [nbGraines] [nbThreads] [profil] [graineBase]");
+            return;
+        }
+        try {
+            AutoReglage reglage = new AutoReglage();
+            if (args.length > 1)
+                reglage.setBudgetMsParExecution(Long.parseLong(args[1]));
+            if (args.length > 2)
+                reglage.setNbConfigurations(Integer.parseInt(args[2]));
+            if (args.length > 3)
+                reglage.setNbGraines(Integer.parseInt(args[3]));
+            if (args.length > 4)
+                reglage.setNbThreads(Integer.parseInt(args[4]));
+            Path profil = Paths.get(args.length > 5 ? args[5] : "profil-recuit.properties");
+            if (args.length > 6)
+                reglage.setGraineBase(Long.parseLong(args[6]));
+
+            reglage.chargerRepertoire(Paths.get(args[0]));
+            Candidat meilleur = reglage.courir();
+            reglage.afficherSynthese();
+            meilleur.parametres.ecrire(profil, String.format(Locale.ROOT,
+                    "Reglage automatique : candidat %d, ecart moyen %.2f %% sur %d blocs, %d ms par execution",
+                    meilleur.id, meilleur.ecartMoyen(), meilleur.couts.size(), reglage.budgetMsParExecution));
+            System.out.println("Profil ecrit: " + profil);
+        } catch (IOException e) {
+            System.err.println("Erreur reglage: " + e.getMessage());
+            e.printStackTrace();
+        } catch (NumberFormatException e) {
+            System.err.println("Argument numerique invalide: " + e.getMessage());
+        }
+    }
+}
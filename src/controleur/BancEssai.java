@@ -0,0 +1,533 @@
+package controleur;
+
+import metier.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Banc d'essai : une configuration du recuit executee sur un repertoire
+ * d'instances (.txt Taillard, .vrp TSPLIB Augerat/Uchoa, .dat) avec N graines.
+ *
+ * Meilleure valeur connue : en-tete Taillard, COMMENT TSPLIB, ou fichier .sol
+ * du meme nom ("Cost ...", prioritaire). Pour chaque execution : ecart en %,
+ * temps pour atteindre l'ecart cible, cout atteint a 1 s, 5 s et 30 s,
+ * iterations par seconde. Resultats en CSV et en JSON (avec la trace anytime),
+ * courbes anytime moyennes par instance, synthese sur la sortie standard.
+ * En option, la meilleure solution de chaque instance est exportee
+ * (JSON, CSV, binaire et carte HTML, cf. ExportSolution).
+ *
+ * Moteur au choix : recuit ou recherche tabou sur l'instance entiere, ou
+ * decomposition en sous-problemes (instances avec coordonnees, depot unique,
+ * flotte homogene). Meme graine derivee par execution quel que soit le moteur.
+ *
+ * Les executions (instance x graine) tournent en parallele sur un pool fixe ;
+ * la graine de l'execution s est derivee de la graine de base, le banc est donc
+ * reproductible.
+ */
+public class BancEssai {
+
+    /** Resultat d'une execution. */
+    public static class Resultat {
+        public String instance;
+        public int nbClients;
+        public long graine;
+        public double cout;
+        public double meilleurConnu;
+        public double ecart;
+        public long ms;
+        /** Temps pour atteindre l'ecart cible, -1 si jamais atteint. */
+        public long msCible;
+        public double iterationsParSeconde;
+        public boolean valide;
+        public TraceAnytime trace;
+        public Solution solution;
+
+        /** Meilleur cout atteint apres ms millisecondes (cout final si l'execution est finie). */
+        public double coutA(long ms) {
+            return trace.coutA(ms * 1_000_000);
+        }
+    }
+
+    /** Algorithme execute sur chaque couple (instance, graine). */
+    public enum Moteur {
+        /** {@link RecuitSimule} sur l'instance entiere. */
+        RECUIT,
+        /** {@link Decomposition} en sous-problemes resolus par recuit. */
+        DECOMPOSITION,
+        /** {@link RechercheTabou} sur l'instance entiere. */
+        TABOU
+    }
+
+    /** Jalons de temps (ms) reportes pour chaque execution. */
+    private static final long[] JALONS_MS = { 1000, 5000, 30000 };
+
+    private static class Instance {
+        final String nom;
+        final DonneesVRP donnees;
+
+        Instance(String nom, DonneesVRP donnees) {
+            this.nom = nom;
+            this.donnees = donnees;
+        }
+    }
+
+    private final List<Instance> instances = new ArrayList<>();
+    private ParametresRecuit parametres = new ParametresRecuit();
+    private int nbGraines = 5;
+    private long graineBase = 1;
+    private int nbThreads = Runtime.getRuntime().availableProcessors();
+    private double ecartCible = 1.0;
+    private Moteur moteur = Moteur.RECUIT;
+    private int tailleGroupe = 250;
+    private int iterationsTabou = 10000;
+    private Path repertoireReprise;
+    private long periodeRepriseMs = 60_000;
+
+    // --- Getters / Setters ---
+
+    public Moteur getMoteur() {
+        return moteur;
+    }
+
+    public void setMoteur(Moteur m) {
+        this.moteur = m;
+    }
+
+    /** Nombre de clients par sous-probleme en mode decomposition. */
+    public void setTailleGroupe(int t) {
+        this.tailleGroupe = t;
+    }
+
+    /** Nombre maximal d'iterations en mode tabou. */
+    public void setIterationsTabou(int n) {
+        this.iterationsTabou = n;
+    }
+
+    public ParametresRecuit getParametres() {
+        return parametres;
+    }
+
+    public void setParametres(ParametresRecuit p) {
+        this.parametres = p;
+    }
+
+    public int getNbGraines() {
+        return nbGraines;
+    }
+
+    public void setNbGraines(int n) {
+        this.nbGraines = n;
+    }
+
+    public long getGraineBase() {
+        return graineBase;
+    }
+
+    public void setGraineBase(long g) {
+        this.graineBase = g;
+    }
+
+    public int getNbThreads() {
+        return nbThreads;
+    }
+
+    public void setNbThreads(int n) {
+        this.nbThreads = Math.max(1, n);
+    }
+
+    public double getEcartCible() {
+        return ecartCible;
+    }
+
+    /** Ecart (en %) a la meilleure valeur connue definissant le temps-cible. */
+    public void setEcartCible(double e) {
+        this.ecartCible = e;
+    }
+
+    /**
+     * Points de reprise des executions du recuit dans ce repertoire, un fichier par
+     * couple (instance, graine), ecrits au plus une fois par periode. Une execution
+     * dont le point existe reprend depuis celui-ci : relancer un banc interrompu
+     * donne les memes resultats qu'un banc ininterrompu. null desactive.
+     */
+    public void setRepertoireReprise(Path repertoire, long periodeMs) {
+        this.repertoireReprise = repertoire;
+        this.periodeRepriseMs = periodeMs;
+    }
+
+    /**
+     * Moteur designe par son nom, suivi eventuellement de ":parametre" (taille de
+     * groupe en decomposition, nombre maximal d'iterations en tabou).
+     */
+    public void choisirMoteur(String spec) {
+        String[] t = spec.split(":", 2);
+        try {
+            moteur = Moteur.valueOf(t[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Moteur inconnu : " + t[0]);
+        }
+        if (t.length > 1 && moteur == Moteur.DECOMPOSITION)
+            tailleGroupe = Integer.parseInt(t[1]);
+        else if (t.length > 1 && moteur == Moteur.TABOU)
+            iterationsTabou = Integer.parseInt(t[1]);
+    }
+
+    // ====================================================================
+    // CHARGEMENT
+    // ====================================================================
+
+    /** Charge toutes les instances .txt, .vrp et .dat du repertoire, par ordre de nom. */
+    public void chargerRepertoire(Path repertoire) throws IOException {
+        for (Path f : listerInstances(repertoire))
+            ajouterInstance(f);
+    }
+
+    public void ajouterInstance(Path fichier) throws IOException {
+        instances.add(new Instance(nomInstance(fichier), chargerInstance(fichier)));
+    }
+
+    /** Fichiers .txt, .vrp et .dat du repertoire, par ordre de nom. */
+    static List<Path> listerInstances(Path repertoire) throws IOException {
+        try (Stream<Path> s = Files.list(repertoire)) {
+            return s.filter(p -> {
+                String n = p.getFileName().toString();
+                return n.endsWith(".txt") || n.endsWith(".vrp") || n.endsWith(".dat");
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    static String nomInstance(Path fichier) {
+        String nom = fichier.getFileName().toString();
+        return nom.substring(0, nom.lastIndexOf('.'));
+    }
+
+    /** Charge une instance et sa meilleure valeur connue (fichier .sol du meme nom prioritaire). */
+    static DonneesVRP chargerInstance(Path fichier) throws IOException {
+        String nom = fichier.getFileName().toString();
+        DonneesVRP donnees = nom.endsWith(".txt") ? ChargeurFichier.lireFichierTxt(fichier.toString())
+                : nom.endsWith(".vrp") ? ChargeurFichier.lireFichierVrp(fichier.toString())
+                : ChargeurFichier.lireFichierDat(fichier.toString());
+
+        Path sol = fichier.resolveSibling(nom.substring(0, nom.lastIndexOf('.')) + ".sol");
+        if (Files.exists(sol)) {
+            double cout = lireCoutSolution(sol);
+            if (!Double.isNaN(cout))
+                donnees.setMeilleurConnu(cout);
+        }
+        return donnees;
+    }
+
+    /** Ligne "Cost ..." d'un fichier .sol CVRPLIB, NaN si absente. */
+    private static double lireCoutSolution(Path sol) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(sol, StandardCharsets.UTF_8)) {
+            String ligne;
+            while ((ligne = reader.readLine()) != null) {
+                String[] parts = ligne.trim().split("\\s+");
+                if (parts.length >= 2 && parts[0].equalsIgnoreCase("Cost"))
+                    return Double.parseDouble(parts[1]);
+            }
+        }
+        return Double.NaN;
+    }
+
+    // ====================================================================
+    // EXECUTION
+    // ====================================================================
+
+    /** Execute nbGraines runs par instance et retourne les resultats dans l'ordre. */
+    public List<Resultat> executer() {
+        List<Callable<Resultat>> taches = new ArrayList<>();
+        for (Instance inst : instances)
+            for (int s = 0; s < nbGraines; s++) {
+                long graine = RecuitSimule.graineDerivee(graineBase, s);
+                taches.add(() -> executerUne(inst, graine));
+            }
+
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads, r -> {
+            Thread th = new Thread(r, "banc-essai");
+            th.setDaemon(true);
+            return th;
+        });
+        try {
+            List<Resultat> res = new ArrayList<>();
+            for (Future<Resultat> f : pool.invokeAll(taches))
+                res.add(f.get());
+            return res;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Banc d'essai interrompu", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Resultat executerUne(Instance inst, long graine) {
+        RecuitSimule recuit = new RecuitSimule(inst.donnees);
+        parametres.appliquer(recuit);
+        recuit.setGraine(graine);
+
+        double bks = inst.donnees.getMeilleurConnu();
+        long debut = System.nanoTime();
+        Solution s;
+        double iterationsParSeconde;
+        if (moteur == Moteur.DECOMPOSITION) {
+            Decomposition decomposition = new Decomposition(inst.donnees);
+            decomposition.setParametres(parametres);
+            decomposition.setTailleGroupe(tailleGroupe);
+            decomposition.setGraine(graine);
+            // Les executions du banc se partagent deja les coeurs
+            decomposition.setNbThreads(Runtime.getRuntime().availableProcessors() / nbThreads);
+            s = decomposition.resoudre();
+            iterationsParSeconde = 0; // recuits des sous-problemes non mesures
+        } else if (moteur == Moteur.TABOU) {
+            RechercheTabou tabou = new RechercheTabou(inst.donnees);
+            tabou.setGraine(graine);
+            tabou.setMaxIterations(iterationsTabou);
+            tabou.setNbThreads(Runtime.getRuntime().availableProcessors() / nbThreads);
+            s = tabou.executer();
+            iterationsParSeconde = tabou.getNbIterations() * 1e9 / (System.nanoTime() - debut);
+        } else {
+            s = executerRecuit(recuit, inst, graine);
+            iterationsParSeconde = recuit.getMetriques().instantane().iterationsParSeconde();
+        }
+        long nanosCible = s.trace.atteint(bks * (1 + ecartCible / 100));
+
+        Resultat r = new Resultat();
+        r.instance = inst.nom;
+        r.nbClients = inst.donnees.getNbClients();
+        r.graine = graine;
+        r.cout = s.cout;
+        r.meilleurConnu = bks;
+        r.ecart = 100 * (s.cout - bks) / bks;
+        r.ms = (System.nanoTime() - debut) / 1_000_000;
+        r.msCible = nanosCible < 0 ? -1 : nanosCible / 1_000_000;
+        r.iterationsParSeconde = iterationsParSeconde;
+        r.valide = recuit.estValide(s);
+        r.trace = s.trace;
+        r.solution = s;
+        return r;
+    }
+
+    /** Recuit, repris depuis son point de reprise s'il existe. */
+    private Solution executerRecuit(RecuitSimule recuit, Instance inst, long graine) {
+        if (repertoireReprise == null)
+            return recuit.executer();
+        Path point = repertoireReprise.resolve(inst.nom + "_" + graine + ".reprise");
+        recuit.setPointReprise(point, periodeRepriseMs);
+        if (Files.exists(point)) {
+            try {
+                return recuit.reprendre(point);
+            } catch (IOException e) {
+                System.err.println("Point de reprise ignore (" + point + "): " + e.getMessage());
+            }
+        }
+        return recuit.executer();
+    }
+
+    // ====================================================================
+    // RAPPORTS
+    // ====================================================================
+
+    public static void ecrireCsv(List<Resultat> resultats, Path fichier) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            w.write("instance,nbClients,graine,cout,meilleurConnu,ecart,ms,msCible,iterationsParSeconde,valide");
+            for (long j : JALONS_MS)
+                w.write(",cout" + (j / 1000) + "s");
+            w.newLine();
+            for (Resultat r : resultats) {
+                w.write(String.format(Locale.ROOT, "%s,%d,%d,%.4f,%s,%s,%d,%d,%.1f,%b",
+                        r.instance, r.nbClients, r.graine, r.cout, nombre(r.meilleurConnu, ""),
+                        nombre(r.ecart, ""), r.ms, r.msCible, r.iterationsParSeconde, r.valide));
+                for (long j : JALONS_MS)
+                    w.write("," + nombre(r.coutA(j), ""));
+                w.newLine();
+            }
+        }
+    }
+
+    public static void ecrireJson(List<Resultat> resultats, Path fichier) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            w.write("[");
+            for (int i = 0; i < resultats.size(); i++) {
+                Resultat r = resultats.get(i);
+                w.write(i == 0 ? "\n" : ",\n");
+                w.write(String.format(Locale.ROOT,
+                        "{\"instance\":\"%s\",\"nbClients\":%d,\"graine\":%d,\"cout\":%.4f,"
+                                + "\"meilleurConnu\":%s,\"ecart\":%s,\"ms\":%d,\"msCible\":%d,"
+                                + "\"iterationsParSeconde\":%.1f,\"valide\":%b,",
+                        ServiceSolveur.echapperJson(r.instance), r.nbClients, r.graine, r.cout, nombre(r.meilleurConnu, "null"),
+                        nombre(r.ecart, "null"), r.ms, r.msCible, r.iterationsParSeconde, r.valide));
+                for (long j : JALONS_MS)
+                    w.write("\"cout" + (j / 1000) + "s\":" + nombre(r.coutA(j), "null") + ",");
+                w.write("\"trace\":" + r.trace.versJson() + "}");
+            }
+            w.write("\n]\n");
+        }
+    }
+
+    /**
+     * Courbes anytime par instance : a chaque instant d'une grille 1-2-5
+     * (de 10 ms a la duree de la plus longue execution), ecart moyen, minimal et maximal
+     * du meilleur cout atteint sur les graines.
+     */
+    public static void ecrireCourbes(List<Resultat> resultats, Path fichier) throws IOException {
+        Map<String, List<Resultat>> parInstance = grouper(resultats);
+        try (BufferedWriter w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            w.write("instance,ms,ecartMoyen,ecartMin,ecartMax,nbRuns");
+            w.newLine();
+            for (Map.Entry<String, List<Resultat>> e : parInstance.entrySet()) {
+                long msMax = 0;
+                for (Resultat r : e.getValue())
+                    msMax = Math.max(msMax, r.ms);
+                List<Long> instants = new ArrayList<>();
+                for (long base = 10; base < msMax; base *= 10)
+                    for (long f : new long[] { 1, 2, 5 })
+                        if (base * f < msMax)
+                            instants.add(base * f);
+                instants.add(msMax);
+                for (long t : instants) {
+                    double somme = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+                    int n = 0;
+                    for (Resultat r : e.getValue()) {
+                        double ecart = 100 * (r.coutA(t) - r.meilleurConnu) / r.meilleurConnu;
+                        if (Double.isNaN(ecart))
+                            continue;
+                        somme += ecart;
+                        min = Math.min(min, ecart);
+                        max = Math.max(max, ecart);
+                        n++;
+                    }
+                    if (n == 0)
+                        continue;
+                    w.write(String.format(Locale.ROOT, "%s,%d,%.4f,%.4f,%.4f,%d",
+                            e.getKey(), t, somme / n, min, max, n));
+                    w.newLine();
+                }
+            }
+        }
+    }
+
+    private static Map<String, List<Resultat>> grouper(List<Resultat> resultats) {
+        Map<String, List<Resultat>> parInstance = new LinkedHashMap<>();
+        for (Resultat r : resultats)
+            parInstance.computeIfAbsent(r.instance, k -> new ArrayList<>()).add(r);
+        return parInstance;
+    }
+
+    private static String nombre(double v, String siAbsent) {
+        return Double.isNaN(v) ? siAbsent : String.format(Locale.ROOT, "%.4f", v);
+    }
+
+    /**
+     * Exporte la meilleure solution valide de chaque instance dans le repertoire :
+     * nom.json, nom.csv, nom.vrps et nom.html.
+     */
+    public void exporterMeilleures(List<Resultat> resultats, Path repertoire) throws IOException {
+        Files.createDirectories(repertoire);
+        Map<String, List<Resultat>> parInstance = grouper(resultats);
+        for (Instance inst : instances) {
+            Resultat meilleur = null;
+            for (Resultat r : parInstance.getOrDefault(inst.nom, List.of()))
+                if (r.valide && (meilleur == null || r.cout < meilleur.cout))
+                    meilleur = r;
+            if (meilleur == null)
+                continue;
+            ExportSolution export = new ExportSolution(inst.donnees);
+            export.setNomInstance(inst.nom);
+            for (String ext : new String[] { ".json", ".csv", ".vrps", ".html" })
+                export.exporter(meilleur.solution, repertoire.resolve(inst.nom + ext));
+        }
+    }
+
+    /** Synthese par instance : ecart moyen et minimal, temps moyen, iterations/s. */
+    public static void afficherSynthese(List<Resultat> resultats) {
+        Map<String, List<Resultat>> parInstance = grouper(resultats);
+
+        System.out.println("=== BANC D'ESSAI ===");
+        System.out.printf("%-20s %8s %10s %10s %10s %12s%n",
+                "Instance", "Runs", "Ecart moy", "Ecart min", "ms moy", "iter/s moy");
+        for (Map.Entry<String, List<Resultat>> e : parInstance.entrySet()) {
+            double ecart = 0, ecartMin = Double.MAX_VALUE, ms = 0, ips = 0;
+            for (Resultat r : e.getValue()) {
+                ecart += r.ecart;
+                ecartMin = Math.min(ecartMin, r.ecart);
+                ms += r.ms;
+                ips += r.iterationsParSeconde;
+            }
+            int n = e.getValue().size();
+            System.out.printf(Locale.ROOT, "%-20s %8d %9.2f%% %9.2f%% %10.0f %12.0f%n",
+                    e.getKey(), n, ecart / n, ecartMin, ms / n, ips / n);
+        }
+    }
+
+    // --- Main ---
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java controleur.BancEssai <repertoire> "
+                    + "[nbGraines] [nbThreads] [prefixeSortie] [graineBase] [repertoireCache|-] [repertoireExport|-] "
+                    + "[recuit|decomposition[:tailleGroupe]|tabou[:maxIterations]] [repertoireReprise[:periodeMs]|-] "
+                    + "[profil.properties]");
+            return;
+        }
+        try {
+            BancEssai banc = new BancEssai();
+            if (args.length > 1)
+                banc.setNbGraines(Integer.parseInt(args[1]));
+            if (args.length > 2)
+                banc.setNbThreads(Integer.parseInt(args[2]));
+            String prefixe = args.length > 3 ? args[3] : "banc";
+            if (args.length > 4)
+                banc.setGraineBase(Long.parseLong(args[4]));
+            if (args.length > 5 && !"-".equals(args[5]))
+                ChargeurFichier.setCache(new CacheInstances(Paths.get(args[5])));
+            if (args.length > 7)
+                banc.choisirMoteur(args[7]);
+            if (args.length > 8 && !"-".equals(args[8])) {
+                String[] t = args[8].split(":", 2);
+                Path reprise = Paths.get(t[0]);
+                Files.createDirectories(reprise);
+                banc.setRepertoireReprise(reprise, t.length > 1 ? Long.parseLong(t[1]) : 60_000);
+            }
+            if (args.length > 9)
+                banc.setParametres(ParametresRecuit.charger(Paths.get(args[9])));
+
+            banc.chargerRepertoire(Paths.get(args[0]));
+            List<Resultat> resultats = banc.executer();
+            ecrireCsv(resultats, Paths.get(prefixe + ".csv"));
+            ecrireJson(resultats, Paths.get(prefixe + ".json"));
+            ecrireCourbes(resultats, Paths.get(prefixe + "-anytime.csv"));
+            if (args.length > 6 && !"-".equals(args[6]))
+                banc.exporterMeilleures(resultats, Paths.get(args[6]));
+            afficherSynthese(resultats);
+        } catch (IOException e) {
+            System.err.println("Erreur banc d'essai: " + e.getMessage());
+            e.printStackTrace();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Argument invalide: " + e.getMessage());
+        }
+    }
+}
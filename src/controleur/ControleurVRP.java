@@ -6,6 +6,10 @@ import ihm.FenetreVRP;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
 
 /**
  * Controleur MVC : fait le lien entre le modele (RecuitSimule) et la vue
@@ -16,15 +20,45 @@ public class ControleurVRP implements FenetreVRP.EcouteurDemarrage, RecuitSimule
     private DonneesVRP donnees;
     private RecuitSimule recuit;
     private FenetreVRP fenetre;
+    private Long graine;
+    private Path pointReprise;
+    /** Vrai tant que le point de reprise existant n'a pas ete repris (premier demarrage). */
+    private boolean repriseEnAttente;
 
     public ControleurVRP(DonneesVRP donnees) {
         this.donnees = donnees;
         this.recuit = new RecuitSimule(donnees);
         this.recuit.setListener(this);
+        this.recuit.setCalculerBorne(true);
         this.fenetre = new FenetreVRP(donnees);
         this.fenetre.setEcouteur(this);
     }
 
+    /** Graine fixe pour toutes les executions, null = nouvelle graine a chaque execution. */
+    public void setGraine(Long graine) {
+        this.graine = graine;
+    }
+
+    /**
+     * Point de reprise ecrit toutes les periodeMs pendant le recuit. S'il existe
+     * deja, le premier demarrage reprend depuis celui-ci au lieu de repartir de zero.
+     */
+    public void setPointReprise(Path fichier, long periodeMs) {
+        this.pointReprise = fichier;
+        this.repriseEnAttente = Files.exists(fichier);
+        recuit.setPointReprise(fichier, periodeMs);
+    }
+
+    /** Copie le journal de la fenetre dans un fichier (ajout en fin). */
+    public void setFichierJournal(Path fichier) throws IOException {
+        fenetre.ecrireJournalDans(fichier);
+    }
+
+    /** Parametres initiaux du recuit (profil regle, cf. AutoReglage), affiches dans la fenetre. */
+    public void setParametres(ParametresRecuit p) {
+        p.appliquer(recuit);
+    }
+
     /** Lance l'interface graphique. */
     public void demarrerApplication() {
         SwingUtilities.invokeLater(() -> fenetre.initialiser(
@@ -46,19 +80,22 @@ public class ControleurVRP implements FenetreVRP.EcouteurDemarrage, RecuitSimule
         recuit.setIterationsParTemperature(iterations);
         recuit.setMaxIterationsSansAmelioration(stagnation);
         recuit.setFrequenceAffichage(frequence);
+        recuit.setGraine(graine != null ? graine : new Random().nextLong());
 
+        boolean reprise = repriseEnAttente;
+        repriseEnAttente = false;
         new Thread(() -> {
             fenetre.setEnCours(true);
             fenetre.afficherEtatEnCours();
 
             try {
                 long debut = System.currentTimeMillis();
-                Solution meilleure = recuit.executer();
+                Solution meilleure = reprise ? recuit.reprendre(pointReprise) : recuit.executer();
                 long duree = System.currentTimeMillis() - debut;
 
                 fenetre.setEnCours(false);
                 fenetre.afficherEtatTermine(meilleure, recuit.compterVehicules(meilleure), duree);
-            } catch (RuntimeException ex) {
+            } catch (IOException | RuntimeException ex) {
                 fenetre.setEnCours(false);
                 SwingUtilities.invokeLater(() -> {
                     JOptionPane.showMessageDialog(null,
@@ -93,7 +130,8 @@ public class ControleurVRP implements FenetreVRP.EcouteurDemarrage, RecuitSimule
 
     public static void main(String[] args) {
         if (args.length < 1) {
-            System.out.println("Usage: java controleur.ControleurVRP <fichier.dat ou .txt>");
+            System.out.println("Usage: java controleur.ControleurVRP <fichier.dat ou .txt> [graine|-] "
+                    + "[profil.properties|-] [pointReprise[:periodeMs]|-] [journal.txt]");
             return;
         }
         try {
@@ -102,10 +140,23 @@ public class ControleurVRP implements FenetreVRP.EcouteurDemarrage, RecuitSimule
                     ? ChargeurFichier.lireFichierTxt(fichier)
                     : ChargeurFichier.lireFichierDat(fichier);
             donnees.afficherDonnees();
-            new ControleurVRP(donnees).demarrerApplication();
+            ControleurVRP controleur = new ControleurVRP(donnees);
+            if (args.length > 1 && !"-".equals(args[1]))
+                controleur.setGraine(Long.parseLong(args[1]));
+            if (args.length > 2 && !"-".equals(args[2]))
+                controleur.setParametres(ParametresRecuit.charger(Paths.get(args[2])));
+            if (args.length > 3 && !"-".equals(args[3])) {
+                String[] t = args[3].split(":", 2);
+                controleur.setPointReprise(Paths.get(t[0]), t.length > 1 ? Long.parseLong(t[1]) : 60_000);
+            }
+            if (args.length > 4)
+                controleur.setFichierJournal(Paths.get(args[4]));
+            controleur.demarrerApplication();
         } catch (IOException e) {
             System.err.println("Erreur lecture fichier: " + e.getMessage());
             e.printStackTrace();
+        } catch (NumberFormatException e) {
+            System.err.println("Argument numerique invalide: " + e.getMessage());
         }
     }
 }
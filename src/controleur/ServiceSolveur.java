@@ -0,0 +1,316 @@
+package controleur;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metier.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service de resolution pour le backend : une requete (instance + parametres)
+ * donne un {@link CompletableFuture} de {@link Solution}.
+ *
+ * - Admission : au plus capaciteFile requetes en attente en plus de celles en calcul,
+ *   au-dela la requete est refusee immediatement ({@link RejectedExecutionException})
+ * - Calcul : pool de taille fixe (un thread par coeur par defaut)
+ * - Orchestration : threads virtuels si la JVM les fournit (Java 21+),
+ *   sinon pool de threads demons
+ * - Delai : a l'echeance le recuit s'arrete et rend la meilleure solution connue ;
+ *   une requete encore en file a l'echeance echoue aussitot avec
+ *   {@link TimeoutException}, son calcul est abandonne quand elle sort de la file
+ */
+public class ServiceSolveur implements AutoCloseable {
+
+    private final ThreadPoolExecutor calcul;
+    private final ExecutorService orchestration;
+    private final Semaphore admission;
+    private HttpServer http;
+
+    public ServiceSolveur(int capaciteFile) {
+        this(capaciteFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ServiceSolveur(int capaciteFile, int nbCalculateurs) {
+        AtomicInteger compteur = new AtomicInteger();
+        this.calcul = new ThreadPoolExecutor(nbCalculateurs, nbCalculateurs,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capaciteFile), r -> {
+                    Thread th = new Thread(r, "solveur-" + compteur.incrementAndGet());
+                    th.setDaemon(true);
+                    return th;
+                });
+        this.admission = new Semaphore(capaciteFile + nbCalculateurs);
+        this.orchestration = creerOrchestration();
+    }
+
+    /** Threads virtuels si disponibles (Java 21+), pool de threads demons sinon. */
+    private static ExecutorService creerOrchestration() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread th = new Thread(r, "orchestration");
+                th.setDaemon(true);
+                return th;
+            });
+        }
+    }
+
+    // ====================================================================
+    // SOUMISSION
+    // ====================================================================
+
+    /**
+     * Soumet une instance a resoudre.
+     *
+     * @param delai duree maximale depuis la soumission, null = pas de limite
+     */
+    public CompletableFuture<Solution> soumettre(DonneesVRP donnees, ParametresRecuit parametres,
+            Duration delai) {
+        CompletableFuture<Solution> resultat = new CompletableFuture<>();
+        if (!admission.tryAcquire()) {
+            resultat.completeExceptionally(
+                    new RejectedExecutionException("File du solveur pleine"));
+            return resultat;
+        }
+
+        long dateLimite = (delai == null) ? 0 : System.nanoTime() + delai.toNanos();
+        RecuitSimule recuit = new RecuitSimule(donnees);
+        parametres.appliquer(recuit);
+        recuit.setDateLimiteNanos(dateLimite);
+        resultat.whenComplete((s, ex) -> {
+            if (resultat.isCancelled())
+                recuit.arreter();
+        });
+        // Le premier de l'echeance ou du debut du calcul l'emporte
+        AtomicBoolean demarre = new AtomicBoolean();
+        if (delai != null)
+            CompletableFuture.delayedExecutor(delai.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (demarre.compareAndSet(false, true))
+                    resultat.completeExceptionally(
+                            new TimeoutException("Delai depasse avant le debut du calcul"));
+            });
+
+        try {
+            orchestration.execute(() -> orchestrer(recuit, dateLimite, demarre, resultat));
+        } catch (RejectedExecutionException ex) {
+            admission.release();
+            resultat.completeExceptionally(ex);
+        }
+        return resultat;
+    }
+
+    private void orchestrer(RecuitSimule recuit, long dateLimite, AtomicBoolean demarre,
+            CompletableFuture<Solution> resultat) {
+        try {
+            Future<Solution> futur = calcul.submit(() -> {
+                // Echeance passee ou requete annulee pendant l'attente : rien a calculer
+                if (!demarre.compareAndSet(false, true) || resultat.isDone())
+                    return null;
+                if (dateLimite != 0 && System.nanoTime() - dateLimite >= 0)
+                    throw new TimeoutException("Delai depasse avant le debut du calcul");
+                return recuit.executer();
+            });
+            resultat.complete(futur.get());
+        } catch (ExecutionException ex) {
+            resultat.completeExceptionally(ex.getCause());
+        } catch (InterruptedException ex) {
+            recuit.arreter();
+            Thread.currentThread().interrupt();
+            resultat.completeExceptionally(ex);
+        } catch (RuntimeException ex) {
+            resultat.completeExceptionally(ex);
+        } finally {
+            admission.release();
+        }
+    }
+
+    /** Arrete le point d'acces HTTP et les pools. */
+    @Override
+    public void close() {
+        arreterHttp();
+        orchestration.shutdownNow();
+        calcul.shutdownNow();
+    }
+
+    // ====================================================================
+    // POINT D'ACCES HTTP LOCAL
+    // ====================================================================
+
+    /**
+     * Demarre un point d'acces HTTP sur l'interface locale :
+     * POST /resoudre?format=txt|dat&t0=..&tf=..&alpha=..&iterations=..&stagnation=..&graine=..&delaiMs=..
+     * &ecartCible=..&echelle=..&eliminationMs=..&speculation=..&lotSpeculation=..&reserve=..&recombinaisonMs=.. avec le contenu du fichier
+     * d'instance dans le corps. Reponse en JSON.
+     * echelle : distances entieres (couts renvoyes en 1/echelle d'unite).
+     * speculation : threads de l'evaluation speculative (lots de lotSpeculation propositions).
+     * reserve : capacite de la reserve de tournees, recombinee pendant recombinaisonMs.
+     */
+    public void demarrerHttp(int port) throws IOException {
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/resoudre", this::traiterRequete);
+        http.setExecutor(orchestration);
+        http.start();
+    }
+
+    public void arreterHttp() {
+        if (http != null) {
+            http.stop(0);
+            http = null;
+        }
+    }
+
+    private void traiterRequete(HttpExchange echange) throws IOException {
+        try {
+            if (!"POST".equals(echange.getRequestMethod())) {
+                repondre(echange, 405, erreurJson("Methode attendue : POST"));
+                return;
+            }
+            Map<String, String> q = lireParametres(echange.getRequestURI().getRawQuery());
+
+            // Lecture et validation de la requete : toute erreur ici est une erreur du client
+            DonneesVRP donnees;
+            ParametresRecuit p = new ParametresRecuit();
+            Duration delai;
+            try {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        echange.getRequestBody(), StandardCharsets.UTF_8))) {
+                    donnees = "dat".equals(q.get("format"))
+                            ? ChargeurFichier.lireDat(reader)
+                            : ChargeurFichier.lireTxt(reader);
+                }
+                if (q.containsKey("echelle"))
+                    donnees.convertirDistancesEntieres(Integer.parseInt(q.get("echelle")));
+
+                if (q.containsKey("t0"))
+                    p.setTemperatureInitiale(Double.parseDouble(q.get("t0")));
+                if (q.containsKey("tf"))
+                    p.setTemperatureFinale(Double.parseDouble(q.get("tf")));
+                if (q.containsKey("alpha"))
+                    p.setTauxRefroidissement(Double.parseDouble(q.get("alpha")));
+                if (q.containsKey("iterations"))
+                    p.setIterationsParTemperature(Integer.parseInt(q.get("iterations")));
+                if (q.containsKey("stagnation"))
+                    p.setMaxIterationsSansAmelioration(Integer.parseInt(q.get("stagnation")));
+                if (q.containsKey("graine"))
+                    p.setGraine(Long.parseLong(q.get("graine")));
+                if (q.containsKey("ecartCible"))
+                    p.setEcartCible(Double.parseDouble(q.get("ecartCible")));
+                if (q.containsKey("eliminationMs"))
+                    p.setBudgetEliminationMs(Long.parseLong(q.get("eliminationMs")));
+                if (q.containsKey("reserve"))
+                    p.setReserve(Integer.parseInt(q.get("reserve")),
+                            Long.parseLong(q.getOrDefault("recombinaisonMs", "0")));
+                if (q.containsKey("speculation"))
+                    p.setEvaluationSpeculative(Integer.parseInt(q.get("speculation")),
+                            Integer.parseInt(q.getOrDefault("lotSpeculation", "256")));
+                delai = q.containsKey("delaiMs")
+                        ? Duration.ofMillis(Long.parseLong(q.get("delaiMs")))
+                        : null;
+            } catch (IOException | RuntimeException ex) {
+                repondre(echange, 400, erreurJson(ex.getMessage()));
+                return;
+            }
+
+            Solution s = soumettre(donnees, p, delai).get();
+            repondre(echange, 200, solutionJson(s));
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            int code = (cause instanceof RejectedExecutionException) ? 503
+                    : (cause instanceof TimeoutException) ? 504 : 500;
+            repondre(echange, code, erreurJson(cause.getMessage()));
+        } catch (RuntimeException ex) {
+            repondre(echange, 500, erreurJson(ex.getMessage()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            repondre(echange, 503, erreurJson("Service interrompu"));
+        }
+    }
+
+    private static Map<String, String> lireParametres(String requete) {
+        Map<String, String> res = new HashMap<>();
+        if (requete == null)
+            return res;
+        for (String paire : requete.split("&")) {
+            int eq = paire.indexOf('=');
+            if (eq > 0)
+                res.put(paire.substring(0, eq), paire.substring(eq + 1));
+        }
+        return res;
+    }
+
+    private static void repondre(HttpExchange echange, int code, String json) throws IOException {
+        byte[] corps = json.getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        echange.sendResponseHeaders(code, corps.length);
+        try (OutputStream os = echange.getResponseBody()) {
+            os.write(corps);
+        }
+    }
+
+    private static String solutionJson(Solution s) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "{\"cout\":%.4f,\"graine\":%d,\"tournees\":[",
+                s.cout, s.graine));
+        boolean premiere = true;
+        for (List<Integer> route : s.tournees) {
+            if (route.isEmpty())
+                continue;
+            if (!premiere)
+                sb.append(',');
+            sb.append(route.toString().replace(" ", ""));
+            premiere = false;
+        }
+        sb.append(']');
+        if (s.borneInferieure > 0)
+            sb.append(String.format(Locale.ROOT, ",\"borne\":%.4f,\"ecartBorne\":%.4f",
+                    s.borneInferieure, BorneInferieure.ecart(s.cout, s.borneInferieure)));
+        if (s.trace != null)
+            sb.append(",\"trace\":").append(s.trace.versJson());
+        return sb.append('}').toString();
+    }
+
+    /** Message d'erreur en JSON. */
+    private static String erreurJson(String message) {
+        return "{\"erreur\":\"" + echapperJson(message) + "\"}";
+    }
+
+    /**
+     * Contenu d'une chaine JSON (sans les guillemets) : guillemets, barres obliques
+     * inverses et caracteres de controle echappes, null donne une chaine vide.
+     */
+    static String echapperJson(String texte) {
+        StringBuilder sb = new StringBuilder();
+        String m = (texte == null) ? "" : texte;
+        for (int i = 0; i < m.length(); i++) {
+            char c = m.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c == '\n')
+                sb.append("\\n");
+            else if (c == '\r')
+                sb.append("\\r");
+            else if (c == '\t')
+                sb.append("\\t");
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package controleur;
+
+import metier.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mode en ligne en ligne de commande : resout l'instance, puis insere dans la
+ * solution vivante ({@link InsertionEnLigne}) les clients lus dans un fichier
+ * d'arrivees, une ligne "x y demande" par client (# = commentaire, "-" = entree
+ * standard). Affiche le cout apres chaque insertion et la solution finale.
+ */
+public class SimulationEnLigne {
+
+    /** Arrivee d'un client. */
+    private static class Arrivee {
+        final double x, y;
+        final int demande;
+
+        Arrivee(double x, double y, int demande) {
+            this.x = x;
+            this.y = y;
+            this.demande = demande;
+        }
+    }
+
+    private static List<Arrivee> lireArrivees(String source) throws IOException {
+        List<Arrivee> res = new ArrayList<>();
+        try (BufferedReader r = "-".equals(source)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            String ligne;
+            int num = 0;
+            while ((ligne = r.readLine()) != null) {
+                num++;
+                ligne = ligne.trim();
+                if (ligne.isEmpty() || ligne.startsWith("#"))
+                    continue;
+                String[] t = ligne.split("\\s+");
+                if (t.length < 3)
+                    throw new IOException("Ligne " + num + " : \"x y demande\" attendu");
+                try {
+                    res.add(new Arrivee(Double.parseDouble(t[0]), Double.parseDouble(t[1]),
+                            Integer.parseInt(t[2])));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Ligne " + num + " : " + e.getMessage(), e);
+                }
+            }
+        }
+        return res;
+    }
+
+    // --- Main ---
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java controleur.SimulationEnLigne <instance> <arrivees|-> "
+                    + "[profil.properties] [export.json|.csv|.vrps|.html]");
+            return;
+        }
+        try {
+            Path fichier = Paths.get(args[0]);
+            DonneesVRP donnees = BancEssai.chargerInstance(fichier);
+            List<Arrivee> arrivees = lireArrivees(args[1]);
+
+            RecuitSimule recuit = new RecuitSimule(donnees);
+            if (args.length > 2)
+                ParametresRecuit.charger(Paths.get(args[2])).appliquer(recuit);
+            Solution initiale = recuit.executer();
+
+            // Matrice dimensionnee une fois pour toutes les arrivees
+            donnees.reserverCapacite(donnees.getNbClients() + arrivees.size());
+            InsertionEnLigne enLigne = new InsertionEnLigne(donnees, initiale);
+            try {
+                for (Arrivee a : arrivees) {
+                    long debut = System.nanoTime();
+                    try {
+                        int client = enLigne.ajouterClient(a.x, a.y, a.demande);
+                        System.out.printf("Client %d insere (%.1f, %.1f, demande %d) : cout %.2f (%d us)%n",
+                                client, a.x, a.y, a.demande, enLigne.getSolution().cout,
+                                (System.nanoTime() - debut) / 1000);
+                    } catch (IllegalStateException e) {
+                        System.err.println("Client rejete: " + e.getMessage());
+                    }
+                }
+            } finally {
+                enLigne.arreter();
+            }
+
+            Solution finale = enLigne.getSolution();
+            finale.cout = recuit.calculerCout(finale);
+            recuit.afficherSolution(finale);
+            if (args.length > 3) {
+                ExportSolution export = new ExportSolution(donnees);
+                export.setNomInstance(BancEssai.nomInstance(fichier));
+                export.exporter(finale, Paths.get(args[3]));
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur simulation en ligne: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
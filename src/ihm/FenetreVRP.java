@@ -1,10 +1,15 @@
 package ihm;
 
+import metier.BorneInferieure;
 import metier.DonneesVRP;
 import metier.Solution;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -25,12 +30,17 @@ public class FenetreVRP {
     static final Color TEXTE = new Color(223, 230, 233);
     static final Color TITRE = new Color(116, 185, 255);
 
+    /** Lignes conservees dans le journal affiche. */
+    static final int MAX_LIGNES_JOURNAL = 2000;
+
     private JFrame frame;
     private VRPPanel panel;
     private JTextField champT0, champTf, champAlpha, champIter, champStag, champFreq;
     private JLabel lblCout, lblTemp, lblIter, lblVeh;
     private JProgressBar progress;
     private JTextArea log;
+    private JournalBorne journal;
+    private Path fichierJournal;
     private JButton btnStart;
     private volatile boolean enCours = false;
 
@@ -64,12 +74,20 @@ public class FenetreVRP {
         });
     }
 
+    /** Ajoute une ligne au journal (thread quelconque, affichee au prochain lot). */
     public void ajouterLog(String texte) {
-        if (log != null)
-            SwingUtilities.invokeLater(() -> {
-                log.append(texte);
-                log.setCaretPosition(log.getDocument().getLength());
-            });
+        if (journal != null)
+            journal.ajouter(texte);
+    }
+
+    /**
+     * Copie aussi le journal complet dans un fichier. Avant initialiser, la copie
+     * commence a la creation du journal (erreur d'ouverture alors affichee sur stderr).
+     */
+    public void ecrireJournalDans(Path fichier) throws IOException {
+        fichierJournal = fichier;
+        if (journal != null)
+            journal.ecrireDans(fichier);
     }
 
     public void afficherEtatEnCours() {
@@ -97,34 +115,37 @@ public class FenetreVRP {
     }
 
     private void afficherResultats(Solution best, int nbV, long ms) {
-        if (log == null)
+        if (journal == null)
             return;
-        log.append("\n========== RESULTATS FINAUX ==========\n");
-        log.append(String.format("Cout: %.2f | Vehicules: %d | Temps: %d ms\n\n",
-                best.cout, nbV, ms));
+        StringBuilder res = new StringBuilder("\n========== RESULTATS FINAUX ==========\n");
+        res.append(String.format("Cout: %.2f | Vehicules: %d | Temps: %d ms | Graine: %d\n",
+                best.cout, nbV, ms, best.graine));
+        if (best.borneInferieure > 0)
+            res.append(String.format("Borne inferieure: %.2f | Ecart: %.2f %%\n",
+                    best.borneInferieure, BorneInferieure.ecart(best.cout, best.borneInferieure)));
+        res.append('\n');
 
-        double[][] dist = donnees.getDistanceMatrix();
-        int depot = donnees.getDepot();
         for (int i = 0; i < best.tournees.size(); i++) {
             List<Integer> route = best.tournees.get(i);
             if (route.isEmpty())
                 continue;
+            int depot = donnees.getDepotVehicule(i);
             int charge = 0;
             for (int c : route)
                 charge += donnees.getDemandes()[c - 1];
-            double d = dist[depot][route.get(0)];
+            double d = donnees.distance(depot, route.get(0));
             for (int j = 0; j < route.size() - 1; j++)
-                d += dist[route.get(j)][route.get(j + 1)];
-            d += dist[route.get(route.size() - 1)][depot];
+                d += donnees.distance(route.get(j), route.get(j + 1));
+            d += donnees.distance(route.get(route.size() - 1), depot);
             StringBuilder sb = new StringBuilder("V" + (i + 1) + ": Depot");
             for (int c : route)
                 sb.append(" -> C").append(c);
             sb.append(String.format(" -> Depot (Dist: %.2f, Charge: %d/%d)\n",
-                    d, charge, donnees.getCapaciteVehicule()));
-            log.append(sb.toString());
+                    d, charge, donnees.getCapacite(i)));
+            res.append(sb);
         }
-        log.append("======================================\n");
-        log.setCaretPosition(log.getDocument().getLength());
+        res.append("======================================\n");
+        journal.ajouter(res.toString());
     }
 
     // --- HTML labels ---
@@ -149,6 +170,13 @@ public class FenetreVRP {
 
         frame = new JFrame("VRP - Recuit Simule");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Timer et ecriture fichier arretes avant la sortie (messages recus ecrits)
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                journal.fermer();
+            }
+        });
         frame.setSize(1200, 850);
         frame.setLayout(new BorderLayout(10, 10));
         frame.getContentPane().setBackground(FOND);
@@ -274,6 +302,14 @@ public class FenetreVRP {
         log.setBackground(new Color(30, 39, 46));
         log.setForeground(TEXTE);
         log.setCaretColor(ACCENT);
+        journal = new JournalBorne(log, MAX_LIGNES_JOURNAL, 100);
+        if (fichierJournal != null) {
+            try {
+                journal.ecrireDans(fichierJournal);
+            } catch (IOException e) {
+                System.err.println("Journal non copie dans " + fichierJournal + ": " + e.getMessage());
+            }
+        }
         JScrollPane sp = new JScrollPane(log);
         sp.setBorder(BorderFactory.createLineBorder(new Color(80, 90, 100)));
         sp.getVerticalScrollBar().setUnitIncrement(16);
@@ -0,0 +1,142 @@
+package ihm;
+
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Journal borne pour une {@link JTextArea}, alimente depuis n'importe quel thread.
+ *
+ * - Les messages sont mis en file sans toucher a l'EDT ; un {@link Timer} Swing
+ *   les ajoute par lots a chaque periode (un seul append par lot)
+ * - La file comme la zone de texte sont limitees aux maxLignes derniers messages :
+ *   les plus anciens sont ecartes
+ * - Optionnellement, le journal complet est ecrit dans un fichier par un thread dedie
+ */
+public class JournalBorne {
+
+    /** Marque de fin de la file d'ecriture, distincte de tout message. */
+    private static final Object FIN = new Object();
+
+    private final JTextArea zone;
+    private final int maxLignes;
+    private final ConcurrentLinkedQueue<String> attente = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tailleAttente = new AtomicInteger();
+    private final Timer minuterie;
+
+    private volatile BlockingQueue<Object> versFichier;
+    private Thread ecrivain;
+
+    public JournalBorne(JTextArea zone, int maxLignes, int periodeMs) {
+        this.zone = zone;
+        this.maxLignes = maxLignes;
+        this.minuterie = new Timer(periodeMs, e -> vider());
+        this.minuterie.start();
+    }
+
+    /** Ajoute un message (thread quelconque, sans attente). */
+    public void ajouter(String texte) {
+        attente.add(texte);
+        if (tailleAttente.incrementAndGet() > maxLignes && attente.poll() != null)
+            tailleAttente.decrementAndGet();
+        BlockingQueue<Object> f = versFichier;
+        if (f != null)
+            f.offer(texte);
+    }
+
+    /** Sur l'EDT : ajoute le lot en attente puis tronque le debut de la zone. */
+    private void vider() {
+        if (attente.isEmpty())
+            return;
+        StringBuilder lot = new StringBuilder();
+        String s;
+        while ((s = attente.poll()) != null) {
+            tailleAttente.decrementAndGet();
+            lot.append(s);
+        }
+        zone.append(lot.toString());
+
+        int enTrop = zone.getLineCount() - maxLignes;
+        if (enTrop > 0) {
+            try {
+                zone.getDocument().remove(0, zone.getLineEndOffset(enTrop - 1));
+            } catch (BadLocationException e) {
+                zone.setText("");
+            }
+        }
+        zone.setCaretPosition(zone.getDocument().getLength());
+    }
+
+    // ====================================================================
+    // COPIE DANS UN FICHIER
+    // ====================================================================
+
+    /**
+     * Ecrit desormais tous les messages dans le fichier (ajout en fin),
+     * depuis un thread demon dedie.
+     */
+    public synchronized void ecrireDans(Path fichier) throws IOException {
+        arreterFichier();
+        BufferedWriter w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        BlockingQueue<Object> file = new LinkedBlockingQueue<>();
+        ecrivain = new Thread(() -> ecrire(file, w), "journal-fichier");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+        versFichier = file;
+    }
+
+    private static void ecrire(BlockingQueue<Object> file, BufferedWriter w) {
+        List<Object> lot = new ArrayList<>();
+        try (BufferedWriter out = w) {
+            while (true) {
+                lot.add(file.take());
+                file.drainTo(lot);
+                for (Object s : lot) {
+                    if (s == FIN)
+                        return;
+                    out.write((String) s);
+                }
+                lot.clear();
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur ecriture journal: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Termine l'ecriture fichier en cours (messages deja recus ecrits). */
+    public synchronized void arreterFichier() {
+        BlockingQueue<Object> f = versFichier;
+        if (f == null)
+            return;
+        versFichier = null;
+        f.offer(FIN);
+        try {
+            ecrivain.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ecrivain = null;
+    }
+
+    /** Arrete le timer et l'ecriture fichier. */
+    public void fermer() {
+        minuterie.stop();
+        arreterFichier();
+    }
+}
@@ -5,10 +5,25 @@ import metier.Solution;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import java.util.List;
 
 /**
  * Panneau de visualisation graphique des tournees VRP.
+ *
+ * - Zoom a la molette (centre sur le curseur), deplacement par glisser,
+ *   double-clic pour revenir a la vue d'ensemble
+ * - Couche statique (clients et depots) pre-rendue dans une {@link BufferedImage},
+ *   reconstruite seulement si la taille, la vue ou le nombre de sommets change
+ * - Grille d'index sur les sommets : seuls les sommets des cellules visibles sont
+ *   parcourus ; les segments hors de l'ecran sont ecartes avant le dessin
+ * - Chaque tournee est un {@link Path2D} dessine en un seul appel
+ * - Taille des sommets adaptee a la densite visible, numeros affiches seulement s'ils tiennent
+ * - Segments sans anticrenelage au-dela de SEUIL_ANTICRENELAGE clients
  */
 public class VRPPanel extends JPanel {
 
@@ -21,9 +36,83 @@ public class VRPPanel extends JPanel {
             new Color(255, 159, 67), new Color(116, 185, 255),
             new Color(162, 217, 206), new Color(255, 177, 193)
     };
+    private static final Color COULEUR_CLIENT = new Color(52, 73, 94);
+    private static final Color COULEUR_DEPOT = new Color(231, 76, 60);
+    private static final Color COULEUR_COUT = new Color(46, 204, 113);
+    private static final Font POLICE_CLIENT = new Font("Arial", Font.BOLD, 10);
+    private static final Font POLICE_DEPOT = new Font("Arial", Font.BOLD, 12);
+    private static final Font POLICE_COUT = new Font("Arial", Font.BOLD, 14);
+    private static final int MARGE = 50;
+    private static final int RAYON_MAX = 12;
+    private static final int SEUIL_ANTICRENELAGE = 1000;
+    private static final int TAILLE_CELLULE = 32;
+    private static final double ZOOM_MIN = 0.5, ZOOM_MAX = 500;
+
+    // --- Vue : ecran = base * zoom + decalage ---
+    private double zoom = 1;
+    private double decalageX, decalageY;
+
+    // --- Coordonnees de base (vue d'ensemble) et grille d'index ---
+    private int largeurBase, hauteurBase, nbNoeudsBase;
+    private float[] bx, by;
+    private int colonnes, lignes;
+    private int[] debutCellule, noeudsCellule;
+
+    // --- Cache de la couche statique ---
+    private BufferedImage coucheStatique;
+    private double zoomCouche, decalageXCouche, decalageYCouche;
+    private float[] sx, sy;
+    private BasicStroke traitRoute;
 
     public VRPPanel(DonneesVRP donnees) {
         this.donnees = donnees;
+
+        MouseAdapter souris = new MouseAdapter() {
+            private int dernierX, dernierY;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dernierX = e.getX();
+                dernierY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                decalageX += e.getX() - dernierX;
+                decalageY += e.getY() - dernierY;
+                dernierX = e.getX();
+                dernierY = e.getY();
+                repaint();
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2)
+                    reinitialiserVue();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double f = Math.pow(1.2, -e.getPreciseWheelRotation());
+                double z = Math.max(ZOOM_MIN, Math.min(ZOOM_MAX, zoom * f));
+                f = z / zoom;
+                decalageX = e.getX() - (e.getX() - decalageX) * f;
+                decalageY = e.getY() - (e.getY() - decalageY) * f;
+                zoom = z;
+                repaint();
+            }
+        };
+        addMouseListener(souris);
+        addMouseMotionListener(souris);
+        addMouseWheelListener(souris);
+    }
+
+    /** Revient a la vue d'ensemble. */
+    public void reinitialiserVue() {
+        zoom = 1;
+        decalageX = 0;
+        decalageY = 0;
+        repaint();
     }
 
     public void setSolution(Solution s) {
@@ -37,75 +126,194 @@ public class VRPPanel extends JPanel {
             return;
 
         Graphics2D g2 = (Graphics2D) g;
+        // L'anticrenelage des segments domine le cout au-dela de quelques milliers de clients
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_ON);
+                donnees.getNbClients() <= SEUIL_ANTICRENELAGE ? RenderingHints.VALUE_ANTIALIAS_ON
+                        : RenderingHints.VALUE_ANTIALIAS_OFF);
+
+        boolean baseAJour = bx != null && largeurBase == getWidth() && hauteurBase == getHeight()
+                && nbNoeudsBase == donnees.getNbNoeuds();
+        if (!baseAJour)
+            construireBase();
+        if (!baseAJour || coucheStatique == null || zoomCouche != zoom
+                || decalageXCouche != decalageX || decalageYCouche != decalageY)
+            construireCouche();
 
-        int w = getWidth(), h = getHeight(), m = 50;
+        // Routes : un Path2D par tournee, segments hors ecran ecartes
+        Solution sol = solution;
+        int w = getWidth(), h = getHeight();
+        g2.setStroke(traitRoute);
+        Path2D.Float chemin = new Path2D.Float();
+        for (int i = 0; i < sol.tournees.size(); i++) {
+            List<Integer> route = sol.tournees.get(i);
+            if (route.isEmpty())
+                continue;
+            int depot = donnees.getDepotVehicule(i);
+            chemin.reset();
+            boolean ouvert = false;
+            int prec = depot;
+            for (int k = 0; k <= route.size(); k++) {
+                int c = (k < route.size()) ? route.get(k) : depot;
+                if (c >= sx.length)
+                    continue;
+                if (segmentVisible(prec, c, w, h)) {
+                    if (!ouvert)
+                        chemin.moveTo(sx[prec], sy[prec]);
+                    chemin.lineTo(sx[c], sy[c]);
+                    ouvert = true;
+                } else {
+                    ouvert = false;
+                }
+                prec = c;
+            }
+            g2.setColor(COULEURS[i % COULEURS.length]);
+            g2.draw(chemin);
+        }
+
+        // Clients et depots
+        g2.drawImage(coucheStatique, 0, 0, null);
+
+        // Cout
+        g2.setFont(POLICE_COUT);
+        g2.setColor(COULEUR_COUT);
+        g2.drawString("Cout: " + String.format("%.2f", sol.cout), 15, 25);
+    }
+
+    private boolean segmentVisible(int a, int b, int w, int h) {
+        return Math.max(sx[a], sx[b]) >= 0 && Math.min(sx[a], sx[b]) <= w
+                && Math.max(sy[a], sy[b]) >= 0 && Math.min(sy[a], sy[b]) <= h;
+    }
+
+    /** Echelle de la vue d'ensemble, coordonnees de base et grille d'index. */
+    private void construireBase() {
+        int w = Math.max(1, getWidth()), h = Math.max(1, getHeight());
+        int nbNoeuds = donnees.getNbNoeuds();
         double[] xc = donnees.getXCoords(), yc = donnees.getYCoords();
-        int n = donnees.getNbClients();
 
         // Echelle
         double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
         double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
-        for (int i = 0; i <= n; i++) {
+        for (int i = 0; i < nbNoeuds; i++) {
             minX = Math.min(minX, xc[i]);
             maxX = Math.max(maxX, xc[i]);
             minY = Math.min(minY, yc[i]);
             maxY = Math.max(maxY, yc[i]);
         }
-        double sc = Math.min((w - 2.0 * m) / (maxX - minX),
-                (h - 2.0 * m) / (maxY - minY));
+        double sc = Math.min((w - 2.0 * MARGE) / Math.max(maxX - minX, 1e-9),
+                (h - 2.0 * MARGE) / Math.max(maxY - minY, 1e-9));
 
-        // Routes
-        for (int i = 0; i < solution.tournees.size(); i++) {
-            List<Integer> route = solution.tournees.get(i);
-            if (route.isEmpty())
-                continue;
-            g2.setColor(COULEURS[i % COULEURS.length]);
-            g2.setStroke(new BasicStroke(3));
-            int px = tx(xc[0], minX, sc, m), py = ty(yc[0], minY, sc, h, m);
-            for (int c : route) {
-                int cx = tx(xc[c], minX, sc, m), cy = ty(yc[c], minY, sc, h, m);
-                g2.drawLine(px, py, cx, cy);
-                px = cx;
-                py = cy;
-            }
-            g2.drawLine(px, py, tx(xc[0], minX, sc, m), ty(yc[0], minY, sc, h, m));
+        bx = new float[nbNoeuds];
+        by = new float[nbNoeuds];
+        for (int i = 0; i < nbNoeuds; i++) {
+            bx[i] = (float) (MARGE + (xc[i] - minX) * sc);
+            by[i] = (float) (h - MARGE - (yc[i] - minY) * sc);
         }
 
-        // Clients
-        g2.setFont(new Font("Arial", Font.BOLD, 10));
-        for (int i = 1; i <= n; i++) {
-            int x = tx(xc[i], minX, sc, m), y = ty(yc[i], minY, sc, h, m);
-            g2.setColor(new Color(52, 73, 94));
-            g2.fillOval(x - 12, y - 12, 24, 24);
-            g2.setColor(Color.WHITE);
-            g2.drawOval(x - 12, y - 12, 24, 24);
-            String s = String.valueOf(i);
-            FontMetrics fm = g2.getFontMetrics();
-            g2.drawString(s, x - fm.stringWidth(s) / 2, y + fm.getAscent() / 2 - 2);
+        // Grille : tableau de debuts par cellule puis sommets ranges par cellule
+        colonnes = w / TAILLE_CELLULE + 1;
+        lignes = h / TAILLE_CELLULE + 1;
+        debutCellule = new int[colonnes * lignes + 1];
+        for (int i = 0; i < nbNoeuds; i++)
+            debutCellule[cellule(bx[i], by[i]) + 1]++;
+        for (int k = 0; k < colonnes * lignes; k++)
+            debutCellule[k + 1] += debutCellule[k];
+        noeudsCellule = new int[nbNoeuds];
+        int[] rempli = new int[colonnes * lignes];
+        for (int i = 0; i < nbNoeuds; i++) {
+            int k = cellule(bx[i], by[i]);
+            noeudsCellule[debutCellule[k] + rempli[k]++] = i;
         }
 
-        // Depot
-        int dx = tx(xc[0], minX, sc, m), dy = ty(yc[0], minY, sc, h, m);
-        g2.setColor(new Color(231, 76, 60));
-        g2.fillRect(dx - 8, dy - 8, 16, 16);
-        g2.setColor(Color.WHITE);
-        g2.drawRect(dx - 8, dy - 8, 16, 16);
-        g2.setFont(new Font("Arial", Font.BOLD, 12));
-        g2.drawString("DEPOT", dx + 12, dy + 4);
+        largeurBase = getWidth();
+        hauteurBase = getHeight();
+        nbNoeudsBase = nbNoeuds;
+    }
 
-        // Cout
-        g2.setFont(new Font("Arial", Font.BOLD, 14));
-        g2.setColor(new Color(46, 204, 113));
-        g2.drawString("Cout: " + String.format("%.2f", solution.cout), 15, 25);
+    private int cellule(float x, float y) {
+        int c = Math.max(0, Math.min(colonnes - 1, (int) (x / TAILLE_CELLULE)));
+        int l = Math.max(0, Math.min(lignes - 1, (int) (y / TAILLE_CELLULE)));
+        return l * colonnes + c;
     }
 
-    private int tx(double v, double min, double sc, int m) {
-        return (int) (m + (v - min) * sc);
+    /** Coordonnees ecran de la vue courante et image des sommets visibles. */
+    private void construireCouche() {
+        int w = Math.max(1, getWidth()), h = Math.max(1, getHeight());
+        int nbNoeuds = bx.length;
+        int n = donnees.getNbClients();
+
+        sx = new float[nbNoeuds];
+        sy = new float[nbNoeuds];
+        for (int i = 0; i < nbNoeuds; i++) {
+            sx[i] = (float) (bx[i] * zoom + decalageX);
+            sy[i] = (float) (by[i] * zoom + decalageY);
+        }
+
+        // Rayon selon l'espacement moyen des clients a l'ecran
+        double espacement = zoom * Math.sqrt((double) (w - 2 * MARGE) * (h - 2 * MARGE) / Math.max(n, 1));
+        int rayon = (int) Math.max(2, Math.min(RAYON_MAX, espacement * 0.35));
+        traitRoute = new BasicStroke(rayon >= 8 ? 3f : rayon >= 4 ? 2f : 1f);
+
+        // Image reutilisee tant que la taille ne change pas
+        BufferedImage img = coucheStatique;
+        if (img == null || img.getWidth() != w || img.getHeight() != h)
+            img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = img.createGraphics();
+        g2.setComposite(AlphaComposite.Clear);
+        g2.fillRect(0, 0, w, h);
+        g2.setComposite(AlphaComposite.SrcOver);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Cellules de la grille couvrant l'ecran (coordonnees de base)
+        double bord = RAYON_MAX / zoom;
+        int c0 = Math.max(0, (int) Math.floor((-decalageX / zoom - bord) / TAILLE_CELLULE));
+        int c1 = Math.min(colonnes - 1, (int) Math.floor(((w - decalageX) / zoom + bord) / TAILLE_CELLULE));
+        int l0 = Math.max(0, (int) Math.floor((-decalageY / zoom - bord) / TAILLE_CELLULE));
+        int l1 = Math.min(lignes - 1, (int) Math.floor(((h - decalageY) / zoom + bord) / TAILLE_CELLULE));
+
+        // Clients
+        g2.setFont(POLICE_CLIENT);
+        FontMetrics fm = g2.getFontMetrics();
+        boolean numeros = 2 * rayon + 4 >= fm.stringWidth(String.valueOf(n));
+        for (int l = l0; l <= l1; l++) {
+            for (int k = l * colonnes + c0; k <= l * colonnes + c1; k++) {
+                for (int j = debutCellule[k]; j < debutCellule[k + 1]; j++) {
+                    int i = noeudsCellule[j];
+                    if (i >= 1 && i <= n)
+                        dessinerClient(g2, fm, i, rayon, numeros);
+                }
+            }
+        }
+
+        // Depots
+        g2.setFont(POLICE_DEPOT);
+        for (int k = 0; k < donnees.getNbDepots(); k++) {
+            int d = donnees.getNoeudDepot(k);
+            int dx = (int) sx[d], dy = (int) sy[d];
+            g2.setColor(COULEUR_DEPOT);
+            g2.fillRect(dx - 8, dy - 8, 16, 16);
+            g2.setColor(Color.WHITE);
+            g2.drawRect(dx - 8, dy - 8, 16, 16);
+            g2.drawString(k == 0 ? "DEPOT" : "DEPOT " + k, dx + 12, dy + 4);
+        }
+        g2.dispose();
+
+        coucheStatique = img;
+        zoomCouche = zoom;
+        decalageXCouche = decalageX;
+        decalageYCouche = decalageY;
     }
 
-    private int ty(double v, double min, double sc, int h, int m) {
-        return (int) (h - m - (v - min) * sc);
+    private void dessinerClient(Graphics2D g2, FontMetrics fm, int i, int rayon, boolean numeros) {
+        int x = (int) sx[i], y = (int) sy[i];
+        g2.setColor(COULEUR_CLIENT);
+        g2.fillOval(x - rayon, y - rayon, 2 * rayon, 2 * rayon);
+        if (rayon >= 4) {
+            g2.setColor(Color.WHITE);
+            g2.drawOval(x - rayon, y - rayon, 2 * rayon, 2 * rayon);
+        }
+        if (numeros) {
+            String s = String.valueOf(i);
+            g2.drawString(s, x - fm.stringWidth(s) / 2, y + fm.getAscent() / 2 - 2);
+        }
     }
 }
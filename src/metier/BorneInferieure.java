@@ -0,0 +1,280 @@
+package metier;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Bornes inferieures rapides du CVRP, pour mesurer l'ecart d'une solution
+ * et arreter la recherche une fois un ecart cible atteint.
+ *
+ * - Nombre de vehicules : borne de bin-packing L2 de Martello-Toth sur les demandes
+ * - Distance : relaxation k-arbre. Une solution a k tournees est une foret couvrante
+ *   des clients a k composantes plus 2k aretes vers le depot (un client au plus deux fois).
+ *   La foret minimale est l'arbre couvrant minimal prive de ses k-1 plus longues aretes.
+ *   Les contraintes de degre 2 des clients sont relaxees par penalites lagrangiennes,
+ *   ajustees par sous-gradient. On garde le minimum sur k entre le nombre minimal
+ *   de vehicules et la taille de la flotte.
+ * - Distance radiale (Haimovich et Rinnooy Kan) : 2/Q x somme des q_i.d(0, i), qui tient
+ *   compte de la capacite ; suppose l'inegalite triangulaire. La plus forte des deux est gardee.
+ *
+ * Distance valable seulement pour une flotte homogene (un depot, memes couts) ;
+ * sinon calculer() rend le cout fixe minimal et ne borne pas la distance.
+ * Arbre couvrant en O(n^2) (Prim) : le nombre d'iterations est limite pour les grandes instances.
+ * Les clients exclus (retires du plan, cf. setExclus) ne comptent dans aucune borne.
+ */
+public class BorneInferieure {
+
+    /** Budget d'operations (n^2 par iteration) de la descente de sous-gradient. */
+    private static final double BUDGET_OPERATIONS = 3e8;
+
+    private final DonneesVRP donnees;
+    private int maxIterations = 100;
+    private int iterationsEffectuees;
+    private boolean[] exclus;
+
+    public BorneInferieure(DonneesVRP donnees) {
+        this.donnees = donnees;
+    }
+
+    public void setMaxIterations(int i) {
+        this.maxIterations = i;
+    }
+
+    /** Clients hors du plan, ignores par toutes les bornes (null = aucun). */
+    public void setExclus(Collection<Integer> clients) {
+        if (clients == null || clients.isEmpty()) {
+            exclus = null;
+            return;
+        }
+        exclus = new boolean[donnees.getNbClients() + 1];
+        for (int c : clients)
+            exclus[c] = true;
+    }
+
+    /** Clients servis, dans l'ordre des indices. */
+    private int[] actifs() {
+        int n = donnees.getNbClients();
+        int[] res = new int[n];
+        int m = 0;
+        for (int c = 1; c <= n; c++)
+            if (exclus == null || !exclus[c])
+                res[m++] = c;
+        return (m == n) ? res : Arrays.copyOf(res, m);
+    }
+
+    public int getIterationsEffectuees() {
+        return iterationsEffectuees;
+    }
+
+    /** Ecart relatif en % d'un cout a une borne inferieure (NaN sans borne utile). */
+    public static double ecart(double cout, double borne) {
+        return (borne > 0) ? 100.0 * (cout - borne) / borne : Double.NaN;
+    }
+
+    // ====================================================================
+    // NOMBRE DE VEHICULES
+    // ====================================================================
+
+    /** Nombre minimal de vehicules pour servir toutes les demandes. */
+    public int nbVehiculesMin() {
+        int[] tous = donnees.getDemandes();
+        int[] actifs = actifs();
+        int[] demandes = new int[actifs.length];
+        for (int i = 0; i < actifs.length; i++)
+            demandes[i] = tous[actifs[i] - 1];
+        long total = 0;
+        for (int q : demandes)
+            total += q;
+        if (!donnees.estFlotteHomogene()) {
+            // Plus grandes capacites d'abord jusqu'a couvrir la demande totale
+            int nbV = donnees.getNbVehicules();
+            int[] capacites = new int[nbV];
+            for (int v = 0; v < nbV; v++)
+                capacites[v] = donnees.getCapacite(v);
+            Arrays.sort(capacites);
+            int k = 0;
+            for (int v = nbV - 1; v >= 0 && total > 0; v--, k++)
+                total -= capacites[v];
+            return (k == 0 && demandes.length > 0) ? 1 : k;
+        }
+
+        int capacite = donnees.getCapacite(0);
+        int borne = (int) ((total + capacite - 1) / capacite);
+        Arrays.sort(demandes);
+        // L2 : pour chaque seuil alpha <= Q/2 parmi les demandes
+        int precedent = -1;
+        for (int alpha : demandes) {
+            if (2 * alpha > capacite)
+                break;
+            if (alpha == precedent)
+                continue;
+            precedent = alpha;
+            int j1 = 0, j2 = 0;
+            long somme2 = 0, somme3 = 0;
+            for (int q : demandes) {
+                if (q > capacite - alpha)
+                    j1++;
+                else if (2 * q > capacite) {
+                    j2++;
+                    somme2 += q;
+                } else if (q >= alpha)
+                    somme3 += q;
+            }
+            long libre = (long) j2 * capacite - somme2;
+            long reste = Math.max(0, somme3 - libre);
+            borne = Math.max(borne, j1 + j2 + (int) ((reste + capacite - 1) / capacite));
+        }
+        return Math.max(borne, demandes.length > 0 ? 1 : 0);
+    }
+
+    // ====================================================================
+    // COUT
+    // ====================================================================
+
+    /**
+     * Borne inferieure du cout total (distance x cout kilometrique + couts fixes).
+     *
+     * @param borneSuperieure cout d'une solution connue, pour le pas du sous-gradient
+     */
+    public double calculer(double borneSuperieure) {
+        int[] actifs = actifs();
+        int n = actifs.length;
+        int kMin = Math.min(nbVehiculesMin(), n);
+        iterationsEffectuees = 0;
+        double coutKm = donnees.getCoutKm(0), fixe = donnees.getCoutFixe(0);
+        if (!donnees.estFlotteHomogene() || n == 0 || coutKm <= 0)
+            return kMin * coutFixeMin();
+        int kMax = Math.max(kMin, Math.min(donnees.getNbVehicules(), n));
+        // Un cout fixe rend les k superieurs plus chers : borne de distance par k
+        double distanceSup = (borneSuperieure - kMin * fixe) / coutKm;
+        double distance = Math.max(borneDistance(actifs, kMin, kMax, fixe / coutKm, distanceSup),
+                borneRadiale(actifs));
+        return coutKm * distance + kMin * fixe;
+    }
+
+    /** 2/Q x somme des q_i.d(0, i) : chaque unite livree fait l'aller-retour au depot. */
+    private double borneRadiale(int[] actifs) {
+        int depot = donnees.getDepot();
+        int[] demandes = donnees.getDemandes();
+        double somme = 0;
+        for (int c : actifs)
+            somme += (double) demandes[c - 1] * donnees.distance(depot, c);
+        return 2 * somme / donnees.getCapacite(0);
+    }
+
+    private double coutFixeMin() {
+        double min = Double.MAX_VALUE;
+        for (int v = 0; v < donnees.getNbVehicules(); v++)
+            min = Math.min(min, donnees.getCoutFixe(v));
+        return (min == Double.MAX_VALUE) ? 0 : min;
+    }
+
+    /**
+     * Sous-gradient sur les penalites des clients. Retourne la meilleure valeur de
+     * min sur k de [k-foret + 2k aretes depot + (k - kMin).fixeParKm] - 2.somme(pi).
+     */
+    private double borneDistance(int[] actifs, int kMin, int kMax, double fixeParKm, double distanceSup) {
+        int n = donnees.getNbClients();
+        int m = actifs.length;
+        int depot = donnees.getDepot();
+        int limite = (int) Math.max(1, Math.min(maxIterations, BUDGET_OPERATIONS / ((double) m * m)));
+
+        double[] pi = new double[n + 1];
+        int[] parent = new int[n + 1];
+        double[] cle = new double[n + 1];
+        boolean[] dansArbre = new boolean[n + 1];
+        double[] poidsAretes = new double[n + 1];
+        Integer[] ordreAretes = new Integer[m - 1];
+        double[] aDepot = new double[n + 1];
+        Integer[] ordreDepot = new Integer[m];
+        int[] degres = new int[n + 1];
+
+        double meilleure = 0;
+        double pas = 2.0;
+        int sansProgres = 0;
+        for (int it = 0; it < limite; it++) {
+            iterationsEffectuees++;
+            // Prim sur les clients, couts c_ij + pi_i + pi_j
+            Arrays.fill(dansArbre, false);
+            Arrays.fill(cle, Double.MAX_VALUE);
+            cle[actifs[0]] = 0;
+            parent[actifs[0]] = 0;
+            double arbre = 0;
+            int nbAretes = 0;
+            for (int etape = 0; etape < m; etape++) {
+                int u = -1;
+                for (int c : actifs)
+                    if (!dansArbre[c] && (u < 0 || cle[c] < cle[u]))
+                        u = c;
+                dansArbre[u] = true;
+                if (parent[u] != 0) {
+                    poidsAretes[u] = cle[u];
+                    ordreAretes[nbAretes++] = u;
+                    arbre += cle[u];
+                }
+                for (int c : actifs) {
+                    if (dansArbre[c])
+                        continue;
+                    double w = donnees.distance(u, c) + pi[u] + pi[c];
+                    if (w < cle[c]) {
+                        cle[c] = w;
+                        parent[c] = u;
+                    }
+                }
+            }
+            Arrays.sort(ordreAretes, 0, nbAretes, (a, b) -> Double.compare(poidsAretes[b], poidsAretes[a]));
+
+            // Aretes depot (chaque client au plus deux fois) : les k moins cheres doublees
+            for (int i = 0; i < m; i++) {
+                int c = actifs[i];
+                aDepot[c] = donnees.distance(depot, c) + pi[c];
+                ordreDepot[i] = c;
+            }
+            Arrays.sort(ordreDepot, (a, b) -> Double.compare(aDepot[a], aDepot[b]));
+
+            // Minimum sur k : retirer k-1 aretes de l'arbre, ajouter 2k aretes depot
+            double valeurK = arbre, meilleurK = Double.MAX_VALUE;
+            int kOpt = kMin;
+            for (int k = 1; k <= kMax; k++) {
+                if (k > 1)
+                    valeurK -= poidsAretes[ordreAretes[k - 2]];
+                valeurK += 2 * aDepot[ordreDepot[k - 1]];
+                double v = valeurK + (k - kMin) * fixeParKm;
+                if (k >= kMin && v < meilleurK) {
+                    meilleurK = v;
+                    kOpt = k;
+                }
+            }
+            double sommePi = 0;
+            for (int c : actifs)
+                sommePi += pi[c];
+            double valeur = meilleurK - 2 * sommePi;
+            if (valeur > meilleure + 1e-9) {
+                meilleure = valeur;
+                sansProgres = 0;
+            } else if (++sansProgres >= 10) {
+                pas /= 2;
+                sansProgres = 0;
+            }
+
+            // Sous-gradient : degre - 2
+            Arrays.fill(degres, 0);
+            for (int e = kOpt - 1; e < nbAretes; e++) {
+                int c = ordreAretes[e];
+                degres[c]++;
+                degres[parent[c]]++;
+            }
+            for (int k = 0; k < kOpt; k++)
+                degres[ordreDepot[k]] += 2;
+            double norme = 0;
+            for (int c : actifs)
+                norme += (degres[c] - 2) * (degres[c] - 2);
+            if (norme == 0 || !(distanceSup > valeur))
+                break;
+            double t = pas * (distanceSup - valeur) / norme;
+            for (int c : actifs)
+                pi[c] += t * (degres[c] - 2);
+        }
+        return meilleure;
+    }
+}
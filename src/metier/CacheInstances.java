@@ -0,0 +1,417 @@
+package metier;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Cache disque des structures derivees d'une instance : matrice des distances,
+ * listes de voisins, ordre polaire et borne inferieure.
+ *
+ * Les fichiers sont cles par une empreinte SHA-256 de la geometrie (coordonnees et
+ * mode d'arrondi, ou matrice explicite) et non du fichier d'instance entier : une
+ * meme tournee de depots avec d'autres demandes reutilise matrice, voisins et ordre
+ * polaire. La borne depend aussi des demandes et de la flotte : sa cle les inclut.
+ *
+ * Format binaire little-endian : MAGIC, VERSION, dimensions, donnees. La matrice est
+ * relue par projection memoire (FileChannel.map) par blocs de lignes. Ecriture dans
+ * un fichier temporaire puis renommage atomique : plusieurs processus peuvent
+ * partager le repertoire. Un fichier illisible ou corrompu est ignore et recalcule.
+ */
+public class CacheInstances {
+
+    private static final int MAGIC = 0x56524341; // "VRCA"
+    private static final int VERSION = 1;
+    private static final int ENTETE = 12;
+    /** Taille maximale d'une projection memoire (limite des tampons a 2 Go). */
+    private static final long MAX_PROJECTION = 1L << 30;
+
+    private final Path repertoire;
+
+    public CacheInstances(Path repertoire) throws IOException {
+        this.repertoire = Files.createDirectories(repertoire);
+    }
+
+    public Path getRepertoire() {
+        return repertoire;
+    }
+
+    // ====================================================================
+    // CLES
+    // ====================================================================
+
+    /** Empreinte des coordonnees et du mode d'arrondi des distances euclidiennes. */
+    static String cleCoordonnees(DonneesVRP d, boolean arrondi) {
+        return cleCoordonnees(d, arrondi ? 2 : 1);
+    }
+
+    private static String cleCoordonnees(DonneesVRP d, int mode) {
+        Empreinte e = new Empreinte();
+        e.entier(mode);
+        e.entier(d.getNbNoeuds());
+        e.reels(d.getXCoords(), d.getNbNoeuds());
+        e.reels(d.getYCoords(), d.getNbNoeuds());
+        return e.hex();
+    }
+
+    /**
+     * Cle de la geometrie : celle posee par distances(), sinon empreinte de la
+     * matrice (matrice explicite ou construite hors chargeur), ou des seules
+     * coordonnees tant qu'aucune matrice n'existe.
+     */
+    String cleGeometrie(DonneesVRP d) {
+        String cle = d.getCleGeometrie();
+        if (cle == null && d.getDistanceMatrix() == null && !d.aDistancesEntieres())
+            return cleCoordonnees(d, 3);
+        if (cle == null) {
+            Empreinte e = new Empreinte();
+            e.entier(0);
+            int n = d.getNbNoeuds();
+            e.entier(n);
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    e.reel(d.distance(i, j));
+            cle = e.hex();
+            d.setCleGeometrie(cle);
+        }
+        return cle;
+    }
+
+    /** Geometrie + demandes + flotte : tout ce dont depend la borne inferieure. */
+    String cleComplete(DonneesVRP d) {
+        Empreinte e = new Empreinte();
+        e.texte(cleGeometrie(d));
+        int[] demandes = d.getDemandes();
+        e.entier(demandes.length);
+        for (int q : demandes)
+            e.entier(q);
+        e.entier(d.getNbVehicules());
+        for (int v = 0; v < d.getNbVehicules(); v++) {
+            e.entier(d.getCapacite(v));
+            e.entier(d.getDepotVehicule(v));
+            e.reel(d.getCoutFixe(v));
+            e.reel(d.getCoutKm(v));
+        }
+        return e.hex();
+    }
+
+    // ====================================================================
+    // STRUCTURES
+    // ====================================================================
+
+    /**
+     * Matrice des distances euclidiennes (arrondies a l'entier si demande) :
+     * relue depuis le cache ou calculee puis ecrite. Pose la cle de geometrie.
+     */
+    public void distances(DonneesVRP d, boolean arrondi) {
+        String cle = cleCoordonnees(d, arrondi);
+        Path fichier = repertoire.resolve(cle + ".dist");
+        double[][] m = null;
+        if (Files.exists(fichier)) {
+            try {
+                m = lireMatrice(fichier, d.getNbNoeuds());
+            } catch (IOException e) {
+                System.err.println("Cache ignore (" + fichier.getFileName() + "): " + e.getMessage());
+            }
+        }
+        if (m != null) {
+            d.setDistanceMatrix(m);
+        } else {
+            d.calculerDistancesEuclidiennes();
+            if (arrondi)
+                d.arrondirDistances();
+            try {
+                ecrireMatrice(fichier, d.getDistanceMatrix());
+            } catch (IOException e) {
+                System.err.println("Ecriture du cache impossible: " + e.getMessage());
+            }
+        }
+        d.setCleGeometrie(cle);
+    }
+
+    /** Listes des k plus proches voisins ; un fichier pour un k plus grand est tronque. */
+    public ListesVoisins voisins(DonneesVRP d, int k) {
+        Path fichier = repertoire.resolve(cleGeometrie(d) + ".vois");
+        if (Files.exists(fichier)) {
+            try {
+                ListesVoisins l = lireVoisins(fichier, d.getNbClients() + 1);
+                if (l.getK() >= k)
+                    return l.tronquer(k);
+            } catch (IOException e) {
+                System.err.println("Cache ignore (" + fichier.getFileName() + "): " + e.getMessage());
+            }
+        }
+        ListesVoisins l = new ListesVoisins(d, k);
+        try {
+            ecrireVoisins(fichier, l);
+        } catch (IOException e) {
+            System.err.println("Ecriture du cache impossible: " + e.getMessage());
+        }
+        return l;
+    }
+
+    /** Clients tries par angle autour du depot 0. */
+    public int[] ordrePolaire(DonneesVRP d) {
+        Path fichier = repertoire.resolve(cleGeometrie(d) + ".pol");
+        if (Files.exists(fichier)) {
+            try {
+                ByteBuffer b = lire(fichier, 0);
+                int[] ordre = new int[b.getInt()];
+                if (ordre.length != d.getNbClients() || b.remaining() != 4L * ordre.length)
+                    throw new IOException("dimensions incoherentes");
+                b.asIntBuffer().get(ordre);
+                return ordre;
+            } catch (IOException e) {
+                System.err.println("Cache ignore (" + fichier.getFileName() + "): " + e.getMessage());
+            }
+        }
+        int[] ordre = d.calculerOrdrePolaire();
+        ByteBuffer b = tampon(4 + 4L * ordre.length);
+        b.putInt(ordre.length);
+        b.asIntBuffer().put(ordre);
+        b.position(b.limit());
+        ecrireSansEchec(fichier, b);
+        return ordre;
+    }
+
+    /**
+     * Borne inferieure du cout. Une borne en cache est reutilisee quelle que soit la
+     * borne superieure : celle-ci ne regle que le pas du sous-gradient.
+     */
+    public double borneInferieure(DonneesVRP d, double borneSuperieure) {
+        Path fichier = repertoire.resolve(cleComplete(d) + ".borne");
+        if (Files.exists(fichier)) {
+            try {
+                ByteBuffer b = lire(fichier, 8);
+                return b.getDouble();
+            } catch (IOException e) {
+                System.err.println("Cache ignore (" + fichier.getFileName() + "): " + e.getMessage());
+            }
+        }
+        double borne = new BorneInferieure(d).calculer(borneSuperieure);
+        ByteBuffer b = tampon(8);
+        b.putDouble(borne);
+        ecrireSansEchec(fichier, b);
+        return borne;
+    }
+
+    // ====================================================================
+    // LECTURE / ECRITURE
+    // ====================================================================
+
+    private static double[][] lireMatrice(Path fichier, int n) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long attendu = ENTETE + 4 + 8L * n * n;
+            if (canal.size() != attendu)
+                throw new IOException("taille " + canal.size() + " au lieu de " + attendu);
+            verifierEntete(canal.map(FileChannel.MapMode.READ_ONLY, 0, ENTETE + 4), n);
+            double[][] m = new double[n][n];
+            int lignesParBloc = (int) Math.max(1, MAX_PROJECTION / (8L * Math.max(n, 1)));
+            for (int i = 0; i < n; i += lignesParBloc) {
+                int nb = Math.min(lignesParBloc, n - i);
+                MappedByteBuffer bloc = canal.map(FileChannel.MapMode.READ_ONLY,
+                        ENTETE + 4 + 8L * i * n, 8L * nb * n);
+                DoubleBuffer db = bloc.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                for (int r = 0; r < nb; r++)
+                    db.get(m[i + r]);
+            }
+            return m;
+        }
+    }
+
+    private void ecrireMatrice(Path fichier, double[][] m) throws IOException {
+        int n = m.length;
+        Path tmp = Files.createTempFile(repertoire, fichier.getFileName().toString(), ".tmp");
+        try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer entete = tampon(4);
+            entete.putInt(n);
+            entete.flip();
+            ecrireTout(canal, entete);
+            int lignesParBloc = (int) Math.max(1, (1 << 22) / (8L * Math.max(n, 1)));
+            ByteBuffer b = ByteBuffer.allocate(8 * n * lignesParBloc).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < n; i += lignesParBloc) {
+                b.clear();
+                DoubleBuffer db = b.asDoubleBuffer();
+                int nb = Math.min(lignesParBloc, n - i);
+                for (int r = 0; r < nb; r++)
+                    db.put(m[i + r]);
+                b.limit(8 * n * nb);
+                ecrireTout(canal, b);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        publier(tmp, fichier);
+    }
+
+    private static ListesVoisins lireVoisins(Path fichier, int nbSommets) throws IOException {
+        ByteBuffer b = lire(fichier, 0);
+        int k = b.getInt();
+        if (b.getInt() != nbSommets)
+            throw new IOException("dimensions incoherentes");
+        IntBuffer ib = b.asIntBuffer();
+        int[][] voisins = new int[nbSommets][];
+        try {
+            for (int i = 0; i < nbSommets; i++) {
+                int taille = ib.get();
+                if (taille < 0 || taille > nbSommets)
+                    throw new IOException("liste de voisins invalide");
+                voisins[i] = new int[taille];
+                ib.get(voisins[i]);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("fichier tronque", e);
+        }
+        return new ListesVoisins(voisins, k);
+    }
+
+    private void ecrireVoisins(Path fichier, ListesVoisins l) throws IOException {
+        long taille = 8;
+        for (int i = 0; i < l.nbSommets(); i++)
+            taille += 4 + 4L * l.getVoisins(i).length;
+        ByteBuffer b = tampon(taille);
+        b.putInt(l.getK()).putInt(l.nbSommets());
+        for (int i = 0; i < l.nbSommets(); i++) {
+            int[] v = l.getVoisins(i);
+            b.putInt(v.length);
+            for (int c : v)
+                b.putInt(c);
+        }
+        ecrire(fichier, b);
+    }
+
+    /** Contenu d'un petit fichier apres verification de l'entete (taille 0 : libre). */
+    private static ByteBuffer lire(Path fichier, int taille) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(fichier)).order(ByteOrder.LITTLE_ENDIAN);
+        if (b.remaining() < ENTETE || (taille > 0 && b.remaining() != ENTETE + taille))
+            throw new IOException("taille incoherente");
+        verifierEntete(b, -1);
+        return b;
+    }
+
+    /** Tampon little-endian de ENTETE + taille octets, entete deja ecrite. */
+    private static ByteBuffer tampon(long taille) {
+        if (ENTETE + taille > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Structure trop grande pour le cache: " + taille);
+        ByteBuffer b = ByteBuffer.allocate((int) (ENTETE + taille)).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).putInt(VERSION).putInt((int) taille);
+        return b;
+    }
+
+    private static void verifierEntete(ByteBuffer b, int n) throws IOException {
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        if (b.getInt() != MAGIC || b.getInt() != VERSION)
+            throw new IOException("entete ou version inconnue");
+        b.getInt();
+        if (n >= 0 && b.getInt() != n)
+            throw new IOException("dimensions incoherentes");
+    }
+
+    private void ecrireSansEchec(Path fichier, ByteBuffer b) {
+        try {
+            ecrire(fichier, b);
+        } catch (IOException e) {
+            System.err.println("Ecriture du cache impossible: " + e.getMessage());
+        }
+    }
+
+    private void ecrire(Path fichier, ByteBuffer b) throws IOException {
+        b.flip();
+        Path tmp = Files.createTempFile(repertoire, fichier.getFileName().toString(), ".tmp");
+        try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ecrireTout(canal, b);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        publier(tmp, fichier);
+    }
+
+    private static void ecrireTout(FileChannel canal, ByteBuffer b) throws IOException {
+        while (b.hasRemaining())
+            canal.write(b);
+    }
+
+    /** Renommage atomique : un lecteur concurrent voit l'ancien fichier ou le nouveau, jamais un fichier partiel. */
+    private static void publier(Path tmp, Path fichier) throws IOException {
+        try {
+            Files.move(tmp, fichier, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, fichier, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ====================================================================
+    // EMPREINTE
+    // ====================================================================
+
+    /** SHA-256 tronque a 128 bits, en hexadecimal. */
+    private static final class Empreinte {
+        private final MessageDigest md;
+        private final ByteBuffer tampon = ByteBuffer.allocate(8 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        Empreinte() {
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 indisponible", e);
+            }
+            entier(MAGIC);
+            entier(VERSION);
+        }
+
+        void entier(int v) {
+            place(4);
+            tampon.putInt(v);
+        }
+
+        void reel(double v) {
+            place(8);
+            tampon.putDouble(v);
+        }
+
+        void reels(double[] t, int n) {
+            for (int i = 0; i < n; i++)
+                reel(t[i]);
+        }
+
+        void texte(String s) {
+            vider();
+            md.update(s.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private void place(int octets) {
+            if (tampon.remaining() < octets)
+                vider();
+        }
+
+        private void vider() {
+            tampon.flip();
+            md.update(tampon);
+            tampon.clear();
+        }
+
+        String hex() {
+            vider();
+            byte[] h = md.digest();
+            StringBuilder sb = new StringBuilder(32);
+            for (int i = 0; i < 16; i++)
+                sb.append(String.format("%02x", h[i]));
+            return sb.toString();
+        }
+    }
+}
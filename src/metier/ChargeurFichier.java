@@ -4,25 +4,64 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
- * Chargement des fichiers de donnees VRP (.txt et .dat).
+ * Chargement des fichiers de donnees VRP (.txt, .dat et .vrp).
  */
 public class ChargeurFichier {
 
+    /** Cache disque des structures derivees, partage par tous les chargements (null : aucun). */
+    private static volatile CacheInstances cache;
+
+    public static void setCache(CacheInstances c) {
+        cache = c;
+    }
+
+    public static CacheInstances getCache() {
+        return cache;
+    }
+
     /**
      * Lit un fichier .txt au format Taillard.
-     * Format attendu : nbClients, capacite, depot(x,y), puis lignes id x y demande.
+     * Format attendu : nbClients [meilleurConnu], capacite, depot(x,y), puis lignes id x y demande.
+     *
+     * Fenetres de temps (optionnel) : "x y debut fin" pour le depot et
+     * "id x y demande debut fin [service]" pour les clients.
+     *
+     * Sections optionnelles apres les clients (flotte heterogene / multi-depot) :
+     * "DEPOTS k" suivie de k lignes "x y" (depots supplementaires 1..k),
+     * "VEHICULES m" suivie de m lignes "capacite coutFixe coutKm depot".
+     * Tout autre contenu final (solution de reference Taillard) est ignore.
      */
     public static DonneesVRP lireFichierTxt(String nomFichier) throws IOException {
+        EvenementsJfr.Phase phase = new EvenementsJfr.Phase("chargement");
+        phase.begin();
+        DonneesVRP donnees;
+        try (BufferedReader reader = new BufferedReader(new FileReader(nomFichier))) {
+            donnees = lireTxt(reader);
+        }
+        phase.detail = nomFichier;
+        phase.commit();
+        return donnees;
+    }
+
+    /**
+     * Lit une instance au format Taillard depuis un flux deja ouvert (non ferme ici).
+     */
+    public static DonneesVRP lireTxt(BufferedReader reader) throws IOException {
         DonneesVRP donnees = new DonneesVRP();
-        BufferedReader reader = new BufferedReader(new FileReader(nomFichier));
 
         // Ligne 1 : nombre de clients
         String ligne = lireLigneNonVide(reader);
         if (ligne == null)
             throw new IOException("Fichier vide");
-        donnees.setNbClients(Integer.parseInt(ligne.trim().split("\\s+")[0]));
+        String[] entete = ligne.trim().split("\\s+");
+        donnees.setNbClients(Integer.parseInt(entete[0]));
+        if (entete.length > 1)
+            donnees.setMeilleurConnu(Double.parseDouble(entete[1]));
 
         // Ligne 2 : capacite vehicule
         ligne = lireLigneNonVide(reader);
@@ -35,6 +74,11 @@ public class ChargeurFichier {
         double depotY = Double.parseDouble(parts[1]);
 
         int nbClients = donnees.getNbClients();
+        double[] debuts = new double[nbClients + 1];
+        double[] fins = new double[nbClients + 1];
+        double[] service = new double[nbClients + 1];
+        Arrays.fill(fins, Double.POSITIVE_INFINITY);
+        boolean fenetres = lireFenetre(parts, 2, 0, debuts, fins, service);
         int[] demandes = new int[nbClients];
         double[] xCoords = new double[nbClients + 1];
         double[] yCoords = new double[nbClients + 1];
@@ -49,21 +93,69 @@ public class ChargeurFichier {
             xCoords[id] = Double.parseDouble(parts[1]);
             yCoords[id] = Double.parseDouble(parts[2]);
             demandes[id - 1] = Integer.parseInt(parts[3]);
+            fenetres |= lireFenetre(parts, 4, id, debuts, fins, service);
+        }
+
+        // Sections optionnelles
+        boolean flotteDetaillee = false;
+        while ((ligne = lireLigneNonVide(reader)) != null) {
+            parts = ligne.trim().split("\\s+");
+            if (parts[0].equalsIgnoreCase("DEPOTS")) {
+                int k = Integer.parseInt(parts[1]);
+                xCoords = Arrays.copyOf(xCoords, nbClients + 1 + k);
+                yCoords = Arrays.copyOf(yCoords, nbClients + 1 + k);
+                debuts = Arrays.copyOf(debuts, nbClients + 1 + k);
+                fins = Arrays.copyOf(fins, nbClients + 1 + k);
+                service = Arrays.copyOf(service, nbClients + 1 + k);
+                for (int i = 1; i <= k; i++) {
+                    parts = lireLigneNonVide(reader).trim().split("\\s+");
+                    xCoords[nbClients + i] = Double.parseDouble(parts[0]);
+                    yCoords[nbClients + i] = Double.parseDouble(parts[1]);
+                    fins[nbClients + i] = Double.POSITIVE_INFINITY;
+                    fenetres |= lireFenetre(parts, 2, nbClients + i, debuts, fins, service);
+                }
+                donnees.setNbDepots(k + 1);
+            } else if (parts[0].equalsIgnoreCase("VEHICULES")) {
+                int m = Integer.parseInt(parts[1]);
+                int[] capacites = new int[m];
+                double[] coutsFixes = new double[m];
+                double[] coutsKm = new double[m];
+                int[] depots = new int[m];
+                for (int v = 0; v < m; v++) {
+                    parts = lireLigneNonVide(reader).trim().split("\\s+");
+                    capacites[v] = Integer.parseInt(parts[0]);
+                    coutsFixes[v] = Double.parseDouble(parts[1]);
+                    coutsKm[v] = Double.parseDouble(parts[2]);
+                    depots[v] = Integer.parseInt(parts[3]);
+                }
+                donnees.setNbVehicules(m);
+                donnees.setCapacites(capacites);
+                donnees.setCoutsFixes(coutsFixes);
+                donnees.setCoutsKm(coutsKm);
+                donnees.setDepotsVehicules(depots);
+                flotteDetaillee = true;
+            } else {
+                break;
+            }
         }
-        reader.close();
 
         donnees.setDemandes(demandes);
         donnees.setXCoords(xCoords);
         donnees.setYCoords(yCoords);
-        donnees.calculerDistancesEuclidiennes();
+        if (fenetres)
+            donnees.setFenetresTemps(debuts, fins, service);
+        calculerDistances(donnees, false);
 
         // Estimation du nombre de vehicules
-        int somme = Arrays.stream(demandes).sum();
-        int nbVehicules = (int) (1.5 * somme / donnees.getCapaciteVehicule()) + 2;
-        if (nbVehicules < 5)
-            nbVehicules = 10;
+        if (!flotteDetaillee) {
+            int somme = Arrays.stream(demandes).sum();
+            int nbVehicules = (int) (1.5 * somme / donnees.getCapaciteVehicule()) + 2;
+            if (nbVehicules < 5)
+                nbVehicules = 10;
 
-        donnees.setNbVehicules(nbVehicules);
+            donnees.setNbVehicules(nbVehicules);
+        }
+        verifierFlotte(donnees);
 
         if (donnees.getNbClients() == 0 || donnees.getCapaciteVehicule() == 0)
             throw new IOException("Donnees incompletes dans le fichier .txt");
@@ -71,20 +163,164 @@ public class ChargeurFichier {
         return donnees;
     }
 
+    /**
+     * Lit un fichier .vrp au format TSPLIB (instances CVRP d'Augerat, Uchoa...).
+     *
+     * Cles reconnues : DIMENSION, CAPACITY, EDGE_WEIGHT_TYPE (EUC_2D uniquement),
+     * COMMENT (meilleure valeur si presente), puis NODE_COORD_SECTION,
+     * DEMAND_SECTION et DEPOT_SECTION. Le depot devient le sommet 0, les autres
+     * sommets gardent leur ordre. Les distances sont arrondies comme dans TSPLIB.
+     */
+    public static DonneesVRP lireFichierVrp(String nomFichier) throws IOException {
+        EvenementsJfr.Phase phase = new EvenementsJfr.Phase("chargement");
+        phase.begin();
+        DonneesVRP donnees;
+        try (BufferedReader reader = new BufferedReader(new FileReader(nomFichier))) {
+            donnees = lireVrp(reader);
+        }
+        phase.detail = nomFichier;
+        phase.commit();
+        return donnees;
+    }
+
+    private static final Pattern VALEUR_COMMENTAIRE = Pattern.compile(
+            "(?:best|optimal)\\s*(?:known\\s*)?(?:value|solution)?\\s*[:=]?\\s*([0-9]+(?:\\.[0-9]+)?)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Lit une instance TSPLIB depuis un flux deja ouvert (non ferme ici).
+     */
+    public static DonneesVRP lireVrp(BufferedReader reader) throws IOException {
+        DonneesVRP donnees = new DonneesVRP();
+        int dimension = 0, depot = 1;
+        double[] x = null, y = null;
+        int[] demandes = null;
+        String ligne;
+
+        while ((ligne = reader.readLine()) != null) {
+            ligne = ligne.trim();
+            if (ligne.isEmpty() || ligne.equals("EOF"))
+                continue;
+            String cle = ligne.split("[\\s:]+")[0].toUpperCase(Locale.ROOT);
+            String valeur = ligne.contains(":") ? ligne.substring(ligne.indexOf(':') + 1).trim() : "";
+
+            if (cle.equals("DIMENSION")) {
+                dimension = Integer.parseInt(valeur);
+                x = new double[dimension + 1];
+                y = new double[dimension + 1];
+                demandes = new int[dimension + 1];
+            } else if (cle.equals("CAPACITY")) {
+                donnees.setCapaciteVehicule(Integer.parseInt(valeur));
+            } else if (cle.equals("EDGE_WEIGHT_TYPE")) {
+                if (!valeur.equals("EUC_2D"))
+                    throw new IOException("EDGE_WEIGHT_TYPE non supporte : " + valeur);
+            } else if (cle.equals("COMMENT")) {
+                Matcher m = VALEUR_COMMENTAIRE.matcher(valeur);
+                if (m.find())
+                    donnees.setMeilleurConnu(Double.parseDouble(m.group(1)));
+            } else if (cle.equals("NODE_COORD_SECTION") || cle.equals("DEMAND_SECTION")) {
+                if (dimension == 0)
+                    throw new IOException("DIMENSION doit preceder " + cle);
+                for (int i = 0; i < dimension; i++) {
+                    String[] parts = lireLigneNonVide(reader).trim().split("\\s+");
+                    int id = Integer.parseInt(parts[0]);
+                    if (cle.equals("DEMAND_SECTION")) {
+                        demandes[id] = Integer.parseInt(parts[1]);
+                    } else {
+                        x[id] = Double.parseDouble(parts[1]);
+                        y[id] = Double.parseDouble(parts[2]);
+                    }
+                }
+            } else if (cle.equals("DEPOT_SECTION")) {
+                depot = Integer.parseInt(lireLigneNonVide(reader).trim());
+                while ((ligne = reader.readLine()) != null && !ligne.trim().equals("-1"))
+                    if (!ligne.trim().isEmpty())
+                        throw new IOException("Plusieurs depots non supportes (format .vrp)");
+            }
+        }
+        if (dimension < 2 || donnees.getCapaciteVehicule() == 0)
+            throw new IOException("Donnees incompletes dans le fichier .vrp");
+
+        // Depot en 0, autres sommets dans l'ordre du fichier
+        int n = dimension - 1;
+        double[] xs = new double[n + 1], ys = new double[n + 1];
+        int[] dem = new int[n];
+        xs[0] = x[depot];
+        ys[0] = y[depot];
+        int k = 1;
+        for (int id = 1; id <= dimension; id++) {
+            if (id == depot)
+                continue;
+            xs[k] = x[id];
+            ys[k] = y[id];
+            dem[k - 1] = demandes[id];
+            k++;
+        }
+        donnees.setNbClients(n);
+        donnees.setDemandes(dem);
+        donnees.setXCoords(xs);
+        donnees.setYCoords(ys);
+        calculerDistances(donnees, true);
+
+        // Meme estimation de flotte que pour le format .txt
+        int somme = Arrays.stream(dem).sum();
+        int nbVehicules = (int) (1.5 * somme / donnees.getCapaciteVehicule()) + 2;
+        donnees.setNbVehicules(nbVehicules < 5 ? 10 : nbVehicules);
+        return donnees;
+    }
+
     /**
      * Lit un fichier .dat au format CPLEX.
+     *
+     * Cles optionnelles (flotte heterogene / multi-depot) : nbDepots, CapacitesVehicules,
+     * CoutsFixes, CoutsKm, DepotsVehicules. La matrice Distance couvre alors
+     * nbClients + nbDepots sommets, depots supplementaires en dernier.
+     *
+     * Fenetres de temps (optionnel) : FenetresDebut, FenetresFin, TempsService, avec
+     * une valeur par client (depots sans contrainte) ou par sommet (depot 0 en tete).
      */
     public static DonneesVRP lireFichierDat(String nomFichier) throws IOException {
+        EvenementsJfr.Phase phase = new EvenementsJfr.Phase("chargement");
+        phase.begin();
+        DonneesVRP donnees;
+        try (BufferedReader reader = new BufferedReader(new FileReader(nomFichier))) {
+            donnees = lireDat(reader);
+        }
+        phase.detail = nomFichier;
+        phase.commit();
+        return donnees;
+    }
+
+    /**
+     * Lit une instance au format CPLEX depuis un flux deja ouvert (non ferme ici).
+     */
+    public static DonneesVRP lireDat(BufferedReader reader) throws IOException {
         DonneesVRP donnees = new DonneesVRP();
-        BufferedReader reader = new BufferedReader(new FileReader(nomFichier));
         String ligne;
+        double[] debuts = null, fins = null, service = null;
 
         while ((ligne = reader.readLine()) != null) {
             ligne = ligne.trim();
             if (ligne.isEmpty() || ligne.startsWith("//"))
                 continue;
 
-            if (ligne.startsWith("nbClients") || ligne.startsWith("nbC"))
+            if (ligne.startsWith("FenetresDebut"))
+                debuts = extraireTableauReels(reader, ligne);
+            else if (ligne.startsWith("FenetresFin"))
+                fins = extraireTableauReels(reader, ligne);
+            else if (ligne.startsWith("TempsService"))
+                service = extraireTableauReels(reader, ligne);
+            else if (ligne.startsWith("nbDepots"))
+                donnees.setNbDepots(extraireEntier(ligne));
+            else if (ligne.startsWith("CapacitesVehicules"))
+                donnees.setCapacites(extraireTableauEntiers(reader, ligne));
+            else if (ligne.startsWith("CoutsFixes"))
+                donnees.setCoutsFixes(extraireTableauReels(reader, ligne));
+            else if (ligne.startsWith("CoutsKm"))
+                donnees.setCoutsKm(extraireTableauReels(reader, ligne));
+            else if (ligne.startsWith("DepotsVehicules"))
+                donnees.setDepotsVehicules(extraireTableauEntiers(reader, ligne));
+            else if (ligne.startsWith("nbClients") || ligne.startsWith("nbC"))
                 donnees.setNbClients(extraireEntier(ligne));
             else if (ligne.startsWith("nbVehicules") || ligne.startsWith("nbV"))
                 donnees.setNbVehicules(extraireEntier(ligne));
@@ -96,15 +332,98 @@ public class ChargeurFichier {
             else if (ligne.startsWith("distances") || ligne.startsWith("Distance"))
                 donnees.setDistanceMatrix(extraireMatrice(reader, ligne));
         }
-        reader.close();
+
+        // Flotte detaillee sans CapaMax : la plus grande capacite sert de reference
+        if (donnees.getCapaciteVehicule() == 0 && donnees.getNbVehicules() > 0) {
+            int max = 0;
+            for (int v = 0; v < donnees.getNbVehicules(); v++)
+                max = Math.max(max, donnees.getCapacite(v));
+            donnees.setCapaciteVehicule(max);
+        }
 
         if (donnees.getNbClients() == 0 || donnees.getNbVehicules() == 0
                 || donnees.getCapaciteVehicule() == 0)
             throw new IOException("Donnees incompletes dans le fichier .dat");
+        verifierFlotte(donnees);
+
+        if (debuts != null || fins != null) {
+            int n = donnees.getNbNoeuds();
+            double[] d = parSommet(debuts, donnees, 0);
+            double[] f = parSommet(fins, donnees, Double.POSITIVE_INFINITY);
+            double[] s = parSommet(service, donnees, 0);
+            if (d.length != n || f.length != n || s.length != n)
+                throw new IOException("Fenetres de temps : taille incoherente");
+            donnees.setFenetresTemps(d, f, s);
+        }
+        donnees.setCache(cache);
 
         return donnees;
     }
 
+    /** Distances euclidiennes (arrondies si demande), via le cache s'il est configure. */
+    private static void calculerDistances(DonneesVRP donnees, boolean arrondi) {
+        CacheInstances c = cache;
+        donnees.setCache(c);
+        if (c != null) {
+            c.distances(donnees, arrondi);
+        } else {
+            donnees.calculerDistancesEuclidiennes();
+            if (arrondi)
+                donnees.arrondirDistances();
+        }
+    }
+
+    /**
+     * Lit "debut fin [service]" a partir de la colonne col si presents.
+     * Retourne vrai si une fenetre a ete lue.
+     */
+    private static boolean lireFenetre(String[] parts, int col, int sommet,
+            double[] debuts, double[] fins, double[] service) {
+        if (parts.length < col + 2)
+            return false;
+        debuts[sommet] = Double.parseDouble(parts[col]);
+        fins[sommet] = Double.parseDouble(parts[col + 1]);
+        if (parts.length > col + 2)
+            service[sommet] = Double.parseDouble(parts[col + 2]);
+        return true;
+    }
+
+    /**
+     * Etend un tableau donne par client (nbClients valeurs) ou par sommet
+     * (nbNoeuds valeurs) a un tableau par sommet ; les sommets absents prennent defaut.
+     */
+    private static double[] parSommet(double[] valeurs, DonneesVRP donnees, double defaut) {
+        int n = donnees.getNbNoeuds();
+        int nbC = donnees.getNbClients();
+        double[] res = new double[n];
+        Arrays.fill(res, defaut);
+        if (valeurs == null)
+            return res;
+        if (valeurs.length == nbC)
+            System.arraycopy(valeurs, 0, res, 1, nbC);
+        else if (valeurs.length <= n)
+            System.arraycopy(valeurs, 0, res, 0, valeurs.length);
+        else
+            return valeurs;
+        return res;
+    }
+
+    /** Verifie la coherence des tableaux de flotte avec nbVehicules et nbDepots. */
+    private static void verifierFlotte(DonneesVRP donnees) throws IOException {
+        int m = donnees.getNbVehicules();
+        try {
+            for (int v = 0; v < m; v++) {
+                int depot = donnees.getDepotVehicule(v);
+                if (donnees.getCapacite(v) <= 0 || donnees.getCoutKm(v) < 0
+                        || depot >= donnees.getNbNoeuds()
+                        || (depot != 0 && depot <= donnees.getNbClients()))
+                    throw new IOException("Flotte incoherente pour le vehicule " + (v + 1));
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Tableaux de flotte plus courts que nbVehicules = " + m);
+        }
+    }
+
     // --- Utilitaires de parsing ---
 
     private static String lireLigneNonVide(BufferedReader reader) throws IOException {
@@ -142,6 +461,26 @@ public class ChargeurFichier {
         return tableau;
     }
 
+    private static double[] extraireTableauReels(BufferedReader reader, String premiereLigne)
+            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String ligne = premiereLigne;
+        while (!ligne.contains("];")) {
+            sb.append(ligne).append(" ");
+            ligne = reader.readLine().trim();
+        }
+        sb.append(ligne);
+
+        String contenu = sb.toString();
+        String valeurs = contenu.substring(contenu.indexOf('[') + 1, contenu.indexOf(']')).trim();
+        String[] tokens = valeurs.split("[,\\s]+");
+
+        double[] tableau = new double[tokens.length];
+        for (int i = 0; i < tokens.length; i++)
+            tableau[i] = Double.parseDouble(tokens[i].trim());
+        return tableau;
+    }
+
     private static double[][] extraireMatrice(BufferedReader reader, String premiereLigne)
             throws IOException {
         List<double[]> lignes = new ArrayList<>();
@@ -0,0 +1,475 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decomposition des grandes instances : partition des clients, resolution des
+ * sous-problemes en parallele, fusion puis polissage aux frontieres.
+ *
+ * - Partition : secteurs angulaires autour du depot ou k-means sur les coordonnees
+ * - Sous-problemes : {@link DonneesVRP} independants (depot + clients du groupe),
+ *   resolus chacun par un {@link RecuitSimule}
+ * - Polissage : les tournees fusionnees sont regroupees par barycentre, avec un
+ *   decalage d'un demi-groupe, puis re-optimisees ; les clients proches d'une
+ *   ancienne frontiere se retrouvent ainsi dans un meme sous-probleme
+ *
+ * Les sous-matrices de distances sont tirees de la matrice de l'instance ; chaque
+ * sous-probleme reprend la capacite et les couts (fixe, kilometrique) des vehicules.
+ * La solution fusionnee est recalculee sur l'instance complete. Si elle depasse la
+ * flotte, des tournees sont eliminees ({@link EliminationTournees}) ; a defaut
+ * la resolution echoue ({@link IllegalStateException}).
+ *
+ * Chaque sous-probleme recoit une graine derivee de celle de la decomposition
+ * ({@link RecuitSimule#graineDerivee}) : le resultat est reproductible quel que
+ * soit l'ordre d'execution des threads.
+ *
+ * Limite : depot unique et flotte homogene.
+ */
+public class Decomposition {
+
+    public enum Partition {
+        SECTEURS, KMEANS
+    }
+
+    private final DonneesVRP donnees;
+    private Partition partition = Partition.SECTEURS;
+    private int tailleGroupe = 250;
+    private int nbThreads = Runtime.getRuntime().availableProcessors();
+    private boolean polissage = true;
+    private ParametresRecuit parametres = new ParametresRecuit();
+    private long graine = new Random().nextLong();
+    /** Budget de l'elimination de tournees quand la fusion depasse la flotte. */
+    private long budgetReparationMs = 5000;
+    private final RecuitSimule outils;
+
+    public Decomposition(DonneesVRP donnees) {
+        if (donnees.getNbDepots() > 1 || !donnees.estFlotteHomogene())
+            throw new IllegalArgumentException(
+                    "Decomposition : depot unique et flotte homogene requis");
+        if (donnees.getXCoords() == null)
+            throw new IllegalArgumentException("Decomposition : coordonnees requises");
+        this.donnees = donnees;
+        this.outils = new RecuitSimule(donnees);
+    }
+
+    // --- Getters / Setters ---
+
+    public Partition getPartition() {
+        return partition;
+    }
+
+    public void setPartition(Partition p) {
+        this.partition = p;
+    }
+
+    public int getTailleGroupe() {
+        return tailleGroupe;
+    }
+
+    /** Nombre de clients vise par sous-probleme. */
+    public void setTailleGroupe(int t) {
+        if (t < 2)
+            throw new IllegalArgumentException("Taille de groupe trop petite : " + t);
+        this.tailleGroupe = t;
+    }
+
+    public int getNbThreads() {
+        return nbThreads;
+    }
+
+    public void setNbThreads(int n) {
+        this.nbThreads = Math.max(1, n);
+    }
+
+    public boolean isPolissage() {
+        return polissage;
+    }
+
+    public void setPolissage(boolean p) {
+        this.polissage = p;
+    }
+
+    public long getGraine() {
+        return graine;
+    }
+
+    public void setGraine(long g) {
+        this.graine = g;
+    }
+
+    public ParametresRecuit getParametres() {
+        return parametres;
+    }
+
+    /** Parametres appliques au recuit de chaque sous-probleme. */
+    public void setParametres(ParametresRecuit p) {
+        this.parametres = p;
+    }
+
+    /** Budget (ms) de l'elimination de tournees si la fusion depasse la flotte. */
+    public void setBudgetReparationMs(long ms) {
+        this.budgetReparationMs = ms;
+    }
+
+    // ====================================================================
+    // RESOLUTION
+    // ====================================================================
+
+    /**
+     * Partitionne les clients, resout chaque groupe en parallele, fusionne
+     * puis polit les frontieres si demande.
+     */
+    public Solution resoudre() {
+        TraceAnytime trace = new TraceAnytime();
+        long debut = System.nanoTime();
+        int[][] groupes = (partition == Partition.KMEANS) ? partitionKMeans() : partitionSecteurs();
+        System.out.printf("Decomposition: %d groupes (%s)%n", groupes.length, partition);
+
+        long graineResolution = RecuitSimule.graineDerivee(graine, 0);
+        List<Callable<Solution>> taches = new ArrayList<>();
+        for (int g = 0; g < groupes.length; g++) {
+            int[] groupe = groupes[g];
+            long graineGroupe = RecuitSimule.graineDerivee(graineResolution, g);
+            taches.add(() -> resoudreGroupe(groupe, null, graineGroupe));
+        }
+        Solution fusion = fusionner(executer(taches));
+        trace.ajouter(System.nanoTime() - debut, 0, fusion.cout);
+        System.out.printf("Solution fusionnee: %.2f%n", fusion.cout);
+
+        Solution res = polissage ? ameliorer(fusion) : fusion;
+        trace.ajouter(System.nanoTime() - debut, 0, res.cout);
+        res.trace = trace;
+        return res;
+    }
+
+    /**
+     * Polissage d'une solution existante : tournees regroupees par angle de leur
+     * barycentre en sous-problemes d'environ tailleGroupe clients (decales d'un
+     * demi-groupe), chacun re-optimise en parallele a basse temperature.
+     */
+    public Solution ameliorer(Solution existante) {
+        List<List<Integer>> tournees = new ArrayList<>();
+        for (List<Integer> route : existante.tournees)
+            if (!route.isEmpty())
+                tournees.add(route);
+        tournees.sort(Comparator.comparingDouble(this::angleBarycentre));
+
+        // Premier groupe d'un demi-groupe pour decaler les frontieres
+        List<List<List<Integer>>> groupes = new ArrayList<>();
+        List<List<Integer>> groupe = new ArrayList<>();
+        int taille = 0, cible = tailleGroupe / 2;
+        for (List<Integer> route : tournees) {
+            groupe.add(route);
+            taille += route.size();
+            if (taille >= cible) {
+                groupes.add(groupe);
+                groupe = new ArrayList<>();
+                taille = 0;
+                cible = tailleGroupe;
+            }
+        }
+        if (!groupe.isEmpty())
+            groupes.add(groupe);
+
+        long grainePolissage = RecuitSimule.graineDerivee(graine, 1);
+        List<Callable<Solution>> taches = new ArrayList<>();
+        for (List<List<Integer>> g : groupes) {
+            long graineGroupe = RecuitSimule.graineDerivee(grainePolissage, taches.size());
+            int n = 0;
+            for (List<Integer> route : g)
+                n += route.size();
+            int[] clients = new int[n];
+            int k = 0;
+            for (List<Integer> route : g)
+                for (int c : route)
+                    clients[k++] = c;
+            taches.add(() -> resoudreGroupe(clients, g, graineGroupe));
+        }
+        Solution res = fusionner(executer(taches));
+        System.out.printf("Solution polie: %.2f%n", res.cout);
+        return res;
+    }
+
+    private double angleBarycentre(List<Integer> route) {
+        double[] x = donnees.getXCoords(), y = donnees.getYCoords();
+        double sx = 0, sy = 0;
+        for (int c : route) {
+            sx += x[c];
+            sy += y[c];
+        }
+        return Math.atan2(sy / route.size() - y[0], sx / route.size() - x[0]);
+    }
+
+    /**
+     * Resout le sous-probleme forme du depot et des clients donnes.
+     * Avec des tournees de depart, re-optimise au lieu de construire.
+     * Retourne une solution exprimee dans la numerotation de l'instance.
+     */
+    private Solution resoudreGroupe(int[] clients, List<List<Integer>> depart, long graineGroupe) {
+        DonneesVRP sous = sousInstance(clients);
+        if (depart != null && depart.size() > sous.getNbVehicules())
+            dimensionnerFlotte(sous, depart.size());
+        RecuitSimule recuit = new RecuitSimule(sous);
+        parametres.appliquer(recuit);
+        recuit.setGraine(graineGroupe);
+
+        Solution locale;
+        if (depart == null) {
+            locale = recuit.executer();
+        } else {
+            Map<Integer, Integer> indiceLocal = new HashMap<>();
+            for (int i = 0; i < clients.length; i++)
+                indiceLocal.put(clients[i], i + 1);
+            Solution s = new Solution(sous.getNbVehicules());
+            for (int t = 0; t < depart.size(); t++)
+                for (int c : depart.get(t))
+                    s.tournees.get(t).add(indiceLocal.get(c));
+            locale = recuit.reoptimiser(s, new ModificationDemandes());
+        }
+
+        Solution globale = new Solution(0);
+        for (List<Integer> route : locale.tournees) {
+            if (route.isEmpty())
+                continue;
+            List<Integer> r = new ArrayList<>(route.size());
+            for (int c : route)
+                r.add(clients[c - 1]);
+            globale.tournees.add(r);
+        }
+        globale.cout = locale.cout;
+        return globale;
+    }
+
+    /** Sous-instance : depot 0 de l'instance puis les clients dans l'ordre donne. */
+    private DonneesVRP sousInstance(int[] clients) {
+        int n = clients.length;
+        int[] sommets = new int[n + 1];
+        System.arraycopy(clients, 0, sommets, 1, n);
+
+        DonneesVRP sous = new DonneesVRP();
+        sous.setNbClients(n);
+        sous.setCapaciteVehicule(donnees.getCapaciteVehicule());
+
+        int[] demandes = new int[n];
+        double[] x = new double[n + 1], y = new double[n + 1];
+        long somme = 0;
+        for (int i = 0; i <= n; i++) {
+            x[i] = donnees.getXCoords()[sommets[i]];
+            y[i] = donnees.getYCoords()[sommets[i]];
+            if (i > 0) {
+                demandes[i - 1] = donnees.getDemandes()[sommets[i] - 1];
+                somme += demandes[i - 1];
+            }
+        }
+        sous.setDemandes(demandes);
+        sous.setXCoords(x);
+        sous.setYCoords(y);
+
+        if (donnees.getDistanceMatrix() == null && !donnees.aDistancesEntieres()) {
+            sous.calculerDistancesEuclidiennes();
+        } else {
+            double[][] m = new double[n + 1][n + 1];
+            for (int i = 0; i <= n; i++)
+                for (int j = 0; j <= n; j++)
+                    m[i][j] = donnees.distance(sommets[i], sommets[j]);
+            sous.setDistanceMatrix(m);
+            // Distances deja a l'echelle : le sous-probleme reste en entiers, meme echelle
+            if (donnees.aDistancesEntieres())
+                sous.adopterDistancesEntieres(donnees.getEchelleDistances());
+        }
+
+        if (donnees.aFenetresTemps()) {
+            double[] debuts = new double[n + 1], fins = new double[n + 1], service = new double[n + 1];
+            for (int i = 0; i <= n; i++) {
+                debuts[i] = donnees.getDebutFenetre(sommets[i]);
+                fins[i] = donnees.getFinFenetre(sommets[i]);
+                service[i] = donnees.getTempsService(sommets[i]);
+            }
+            sous.setFenetresTemps(debuts, fins, service);
+            // Une tournee par client reste toujours realisable
+            dimensionnerFlotte(sous, n);
+        } else {
+            // Meme estimation que le chargeur de fichiers
+            dimensionnerFlotte(sous, (int) (1.5 * somme / donnees.getCapaciteVehicule()) + 2);
+        }
+        return sous;
+    }
+
+    /** Flotte du sous-probleme : nb vehicules identiques a ceux de l'instance. */
+    private void dimensionnerFlotte(DonneesVRP sous, int nb) {
+        double[] fixes = new double[nb], km = new double[nb];
+        Arrays.fill(fixes, donnees.getCoutFixe(0));
+        Arrays.fill(km, donnees.getCoutKm(0));
+        sous.setNbVehicules(nb);
+        sous.setCoutsFixes(fixes);
+        sous.setCoutsKm(km);
+    }
+
+    /**
+     * Concatene les tournees des sous-solutions et recalcule le cout sur l'instance.
+     * Au-dela de la flotte, elimine des tournees ; echoue si la flotte reste depassee.
+     */
+    private Solution fusionner(List<Solution> parties) {
+        int nb = 0;
+        for (Solution p : parties)
+            nb += p.tournees.size();
+        int flotte = donnees.getNbVehicules();
+        Solution res = new Solution(Math.max(nb, flotte));
+        res.graine = graine;
+        int t = 0;
+        for (Solution p : parties)
+            for (List<Integer> route : p.tournees)
+                res.tournees.get(t++).addAll(route);
+        res.cout = outils.calculerCout(res);
+
+        if (nb > flotte) {
+            EliminationTournees elimination = new EliminationTournees(donnees, outils);
+            elimination.setBudgetMs(budgetReparationMs);
+            elimination.setNbTourneesCible(flotte);
+            res = elimination.eliminer(res);
+            res.graine = graine;
+            System.out.printf("Fusion: %d tournees pour %d vehicules, %d eliminees%n",
+                    nb, flotte, elimination.getNbEliminees());
+        }
+        EliminationTournees.compacter(res, donnees);
+        if (res.tournees.size() > flotte)
+            throw new IllegalStateException(String.format(
+                    "Decomposition : %d tournees pour une flotte de %d vehicules",
+                    res.tournees.size(), flotte));
+        while (res.tournees.size() < flotte)
+            res.tournees.add(new ArrayList<>());
+        return res;
+    }
+
+    private List<Solution> executer(List<Callable<Solution>> taches) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(nbThreads, taches.size()), r -> {
+            Thread th = new Thread(r, "decomposition");
+            th.setDaemon(true);
+            return th;
+        });
+        try {
+            List<Solution> res = new ArrayList<>();
+            for (Future<Solution> f : pool.invokeAll(taches))
+                res.add(f.get());
+            return res;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Decomposition interrompue", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ====================================================================
+    // PARTITION DES CLIENTS
+    // ====================================================================
+
+    private int nbGroupes() {
+        return Math.max(1, (donnees.getNbClients() + tailleGroupe - 1) / tailleGroupe);
+    }
+
+    /** Clients tries par angle autour du depot, decoupes en groupes de meme taille. */
+    int[][] partitionSecteurs() {
+        int n = donnees.getNbClients();
+        int[] ordre = donnees.getOrdrePolaire();
+
+        int k = nbGroupes();
+        int[][] groupes = new int[k][];
+        for (int g = 0; g < k; g++) {
+            int debut = (int) ((long) g * n / k), fin = (int) ((long) (g + 1) * n / k);
+            groupes[g] = new int[fin - debut];
+            for (int i = debut; i < fin; i++)
+                groupes[g][i - debut] = ordre[i];
+        }
+        return groupes;
+    }
+
+    /**
+     * Algorithme de Lloyd initialise par les barycentres des secteurs.
+     * Les groupes vides en fin de calcul sont supprimes.
+     */
+    int[][] partitionKMeans() {
+        int n = donnees.getNbClients();
+        double[] x = donnees.getXCoords(), y = donnees.getYCoords();
+        int[][] secteurs = partitionSecteurs();
+        int k = secteurs.length;
+
+        double[] cx = new double[k], cy = new double[k];
+        int[] affectation = new int[n + 1];
+        for (int g = 0; g < k; g++) {
+            for (int c : secteurs[g]) {
+                cx[g] += x[c];
+                cy[g] += y[c];
+                affectation[c] = g;
+            }
+            cx[g] /= secteurs[g].length;
+            cy[g] /= secteurs[g].length;
+        }
+
+        int[] tailles = new int[k];
+        for (int iter = 0; iter < 50; iter++) {
+            boolean change = false;
+            for (int c = 1; c <= n; c++) {
+                int meilleur = affectation[c];
+                double dMin = Double.MAX_VALUE;
+                for (int g = 0; g < k; g++) {
+                    double dx = x[c] - cx[g], dy = y[c] - cy[g];
+                    double d = dx * dx + dy * dy;
+                    if (d < dMin) {
+                        dMin = d;
+                        meilleur = g;
+                    }
+                }
+                if (meilleur != affectation[c]) {
+                    affectation[c] = meilleur;
+                    change = true;
+                }
+            }
+
+            Arrays.fill(cx, 0);
+            Arrays.fill(cy, 0);
+            Arrays.fill(tailles, 0);
+            for (int c = 1; c <= n; c++) {
+                cx[affectation[c]] += x[c];
+                cy[affectation[c]] += y[c];
+                tailles[affectation[c]]++;
+            }
+            for (int g = 0; g < k; g++) {
+                if (tailles[g] > 0) {
+                    cx[g] /= tailles[g];
+                    cy[g] /= tailles[g];
+                }
+            }
+            if (!change)
+                break;
+        }
+
+        List<int[]> groupes = new ArrayList<>();
+        int[] rempli = new int[k];
+        int[][] tmp = new int[k][];
+        for (int g = 0; g < k; g++)
+            tmp[g] = new int[tailles[g]];
+        for (int c = 1; c <= n; c++)
+            tmp[affectation[c]][rempli[affectation[c]]++] = c;
+        for (int[] g : tmp)
+            if (g.length > 0)
+                groupes.add(g);
+        return groupes.toArray(new int[0][]);
+    }
+}
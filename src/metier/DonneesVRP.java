@@ -1,7 +1,22 @@
 package metier;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
 /**
  * Donnees du probleme VRP : clients, vehicules, distances, demandes.
+ *
+ * Numerotation des sommets : 0 = depot principal, 1..nbClients = clients,
+ * nbClients+1..nbClients+nbDepots-1 = depots supplementaires.
+ * Sans flotte detaillee, tous les vehicules partent du depot 0 avec
+ * capaciteVehicule, un cout fixe nul et un cout kilometrique de 1.
+ *
+ * Fenetres de temps (optionnel) : debut, fin et temps de service par sommet.
+ * Le temps de trajet entre deux sommets est egal a leur distance.
+ *
+ * Distances entieres (optionnel, convertirDistancesEntieres) : round(echelle x d)
+ * dans un int[] a plat ; getDistanceMatrix() rend alors null, lire par distance().
  */
 public class DonneesVRP {
 
@@ -9,11 +24,39 @@ public class DonneesVRP {
     private int nbVehicules;
     private int capaciteVehicule;
     private double[][] distanceMatrix;
+    /** Mode entier : d(i, j) = distancesEntieres[i * pasEntier + j] (null sinon). */
+    private int[] distancesEntieres;
+    private int pasEntier;
+    private int echelleDistances;
     private int[] demandes;
     private int depot = 0;
     private double[] xCoords;
     private double[] yCoords;
 
+    // --- Flotte heterogene / multi-depot (optionnel) ---
+    private int nbDepots = 1;
+    private int[] capacites;
+    private double[] coutsFixes;
+    private double[] coutsKm;
+    private int[] depotsVehicules;
+
+    // --- Fenetres de temps (optionnel), indexees par sommet ---
+    private double[] debutsFenetres;
+    private double[] finsFenetres;
+    private double[] tempsService;
+
+    /** Nombre minimal de sommets ajoutes a la matrice quand un ajout de client la fait grandir. */
+    private static final int BLOC_AGRANDISSEMENT = 64;
+
+    /** Cout de la meilleure solution connue (NaN si inconnu). */
+    private double meilleurConnu = Double.NaN;
+
+    // --- Structures derivees, calculees a la demande (voir CacheInstances) ---
+    private CacheInstances cache;
+    private String cleGeometrie;
+    private ListesVoisins listesVoisins;
+    private int[] ordrePolaire;
+
     // --- Getters ---
 
     public int getNbClients() {
@@ -28,10 +71,31 @@ public class DonneesVRP {
         return capaciteVehicule;
     }
 
+    /** Matrice des distances reelles ; null en mode entier (utiliser distance()). */
     public double[][] getDistanceMatrix() {
         return distanceMatrix;
     }
 
+    /** Distance de i a j (en 1/echelle d'unite en mode entier). */
+    public double distance(int i, int j) {
+        int[] e = distancesEntieres;
+        return (e != null) ? e[i * pasEntier + j] : distanceMatrix[i][j];
+    }
+
+    /** Distance entiere de i a j ; mode entier uniquement. */
+    public int distanceEntiere(int i, int j) {
+        return distancesEntieres[i * pasEntier + j];
+    }
+
+    public boolean aDistancesEntieres() {
+        return distancesEntieres != null;
+    }
+
+    /** Facteur d'echelle des distances entieres (0 en mode reel). */
+    public int getEchelleDistances() {
+        return echelleDistances;
+    }
+
     public int[] getDemandes() {
         return demandes;
     }
@@ -48,8 +112,87 @@ public class DonneesVRP {
         return yCoords;
     }
 
+    public int getNbDepots() {
+        return nbDepots;
+    }
+
+    /** Nombre de sommets : depots + clients. */
+    public int getNbNoeuds() {
+        return nbClients + nbDepots;
+    }
+
+    /** Indice de sommet du k-ieme depot (0 = depot principal). */
+    public int getNoeudDepot(int k) {
+        return (k == 0) ? depot : nbClients + k;
+    }
+
+    /** Capacite du vehicule v. */
+    public int getCapacite(int v) {
+        return (capacites == null) ? capaciteVehicule : capacites[v];
+    }
+
+    /** Cout fixe du vehicule v s'il est utilise. */
+    public double getCoutFixe(int v) {
+        return (coutsFixes == null) ? 0 : coutsFixes[v];
+    }
+
+    /** Cout par unite de distance du vehicule v. */
+    public double getCoutKm(int v) {
+        return (coutsKm == null) ? 1 : coutsKm[v];
+    }
+
+    /** Sommet depot de depart et d'arrivee du vehicule v. */
+    public int getDepotVehicule(int v) {
+        return (depotsVehicules == null) ? depot : getNoeudDepot(depotsVehicules[v]);
+    }
+
+    /** Somme des capacites de la flotte. */
+    public long getCapaciteTotale() {
+        long total = 0;
+        for (int v = 0; v < nbVehicules; v++)
+            total += getCapacite(v);
+        return total;
+    }
+
+    /** Vrai si tous les vehicules ont la meme capacite, les memes couts et le meme depot. */
+    public boolean estFlotteHomogene() {
+        for (int v = 1; v < nbVehicules; v++)
+            if (getCapacite(v) != getCapacite(0) || getCoutFixe(v) != getCoutFixe(0)
+                    || getCoutKm(v) != getCoutKm(0) || getDepotVehicule(v) != getDepotVehicule(0))
+                return false;
+        return true;
+    }
+
+    /** Cout de la meilleure solution connue (NaN si inconnu). */
+    public double getMeilleurConnu() {
+        return meilleurConnu;
+    }
+
+    /** Vrai si l'instance comporte des fenetres de temps. */
+    public boolean aFenetresTemps() {
+        return debutsFenetres != null;
+    }
+
+    /** Debut de la fenetre du sommet i (service au plus tot). */
+    public double getDebutFenetre(int i) {
+        return (debutsFenetres == null) ? 0 : debutsFenetres[i];
+    }
+
+    /** Fin de la fenetre du sommet i (service au plus tard, retour au plus tard pour un depot). */
+    public double getFinFenetre(int i) {
+        return (finsFenetres == null) ? Double.POSITIVE_INFINITY : finsFenetres[i];
+    }
+
+    public double getTempsService(int i) {
+        return (tempsService == null) ? 0 : tempsService[i];
+    }
+
     // --- Setters ---
 
+    public void setMeilleurConnu(double c) {
+        this.meilleurConnu = c;
+    }
+
     public void setNbClients(int n) {
         this.nbClients = n;
     }
@@ -64,6 +207,8 @@ public class DonneesVRP {
 
     public void setDistanceMatrix(double[][] m) {
         this.distanceMatrix = m;
+        quitterModeEntier();
+        oublierStructuresDerivees();
     }
 
     public void setDemandes(int[] d) {
@@ -72,27 +217,372 @@ public class DonneesVRP {
 
     public void setXCoords(double[] x) {
         this.xCoords = x;
+        oublierStructuresDerivees();
     }
 
     public void setYCoords(double[] y) {
         this.yCoords = y;
+        oublierStructuresDerivees();
+    }
+
+    public void setNbDepots(int n) {
+        this.nbDepots = n;
+    }
+
+    public void setCapacites(int[] c) {
+        this.capacites = c;
+    }
+
+    public void setCoutsFixes(double[] c) {
+        this.coutsFixes = c;
+    }
+
+    public void setCoutsKm(double[] c) {
+        this.coutsKm = c;
+    }
+
+    /**
+     * Fenetres de temps indexees par sommet (getNbNoeuds() valeurs).
+     * tempsService peut etre null (service instantane).
+     */
+    public void setFenetresTemps(double[] debuts, double[] fins, double[] service) {
+        this.debutsFenetres = debuts;
+        this.finsFenetres = fins;
+        this.tempsService = service;
+    }
+
+    /** Depot (0..nbDepots-1) de chaque vehicule. */
+    public void setDepotsVehicules(int[] d) {
+        this.depotsVehicules = d;
+    }
+
+    // ====================================================================
+    // STRUCTURES DERIVEES
+    // ====================================================================
+
+    /** Cache disque des structures derivees (null : calcul en memoire a chaque chargement). */
+    public void setCache(CacheInstances c) {
+        this.cache = c;
+    }
+
+    public CacheInstances getCache() {
+        return cache;
+    }
+
+    /** Empreinte de la geometrie posee par le cache (null si inconnue). */
+    String getCleGeometrie() {
+        return cleGeometrie;
+    }
+
+    void setCleGeometrie(String cle) {
+        this.cleGeometrie = cle;
+    }
+
+    /**
+     * Listes des k plus proches voisins, calculees une seule fois (ou relues du cache)
+     * et tronquees pour un k plus petit.
+     */
+    public synchronized ListesVoisins getListesVoisins(int k) {
+        if (listesVoisins == null || listesVoisins.getK() < k)
+            listesVoisins = (cache != null) ? cache.voisins(this, k) : new ListesVoisins(this, k);
+        return listesVoisins.tronquer(k);
+    }
+
+    /** Clients tries par angle autour du depot 0 (ne pas modifier le tableau). */
+    public synchronized int[] getOrdrePolaire() {
+        if (ordrePolaire == null)
+            ordrePolaire = (cache != null) ? cache.ordrePolaire(this) : calculerOrdrePolaire();
+        return ordrePolaire;
+    }
+
+    int[] calculerOrdrePolaire() {
+        int n = nbClients;
+        double[] angles = new double[n + 1];
+        Integer[] ordre = new Integer[n];
+        for (int c = 1; c <= n; c++) {
+            angles[c] = Math.atan2(yCoords[c] - yCoords[0], xCoords[c] - xCoords[0]);
+            ordre[c - 1] = c;
+        }
+        Arrays.sort(ordre, Comparator.comparingDouble(c -> angles[c]));
+        int[] t = new int[n];
+        for (int i = 0; i < n; i++)
+            t[i] = ordre[i];
+        return t;
+    }
+
+    /** A appeler des que la geometrie change (distances, coordonnees, clients). */
+    private synchronized void oublierStructuresDerivees() {
+        cleGeometrie = null;
+        listesVoisins = null;
+        ordrePolaire = null;
     }
 
+    /** En dessous de ce nombre de sommets, la matrice est calculee sur un seul thread. */
+    private static final int SEUIL_PARALLELE = 512;
+    /** Cote des blocs de la recopie du triangle superieur vers l'inferieur. */
+    private static final int BLOC_SYMETRIE = 64;
+
     /**
      * Calcule la matrice des distances euclidiennes a partir des coordonnees.
+     *
+     * Seul le triangle superieur est calcule (lignes i et n-1-i appariees pour
+     * equilibrer la charge, reparties sur le pool fork-join commun), puis recopie
+     * par blocs dans le triangle inferieur. La boucle interne ne lit que des
+     * tableaux contigus et reste vectorisable par le JIT.
      */
     public void calculerDistancesEuclidiennes() {
-        int n = nbClients + 1;
-        distanceMatrix = new double[n][n];
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                double dx = xCoords[i] - xCoords[j];
-                double dy = yCoords[i] - yCoords[j];
-                distanceMatrix[i][j] = Math.sqrt(dx * dx + dy * dy);
+        int n = getNbNoeuds();
+        double[][] d = new double[n][n];
+        int nbPaires = (n + 1) / 2;
+        int nbBlocs = (n + BLOC_SYMETRIE - 1) / BLOC_SYMETRIE;
+        if (n < SEUIL_PARALLELE) {
+            for (int p = 0; p < nbPaires; p++)
+                calculerPaireLignes(d, p);
+            for (int b = 0; b < nbBlocs; b++)
+                symetriserBlocLignes(d, b);
+        } else {
+            IntStream.range(0, nbPaires).parallel().forEach(p -> calculerPaireLignes(d, p));
+            IntStream.range(0, nbBlocs).parallel().forEach(b -> symetriserBlocLignes(d, b));
+        }
+        distanceMatrix = d;
+        quitterModeEntier();
+        oublierStructuresDerivees();
+    }
+
+    /** Triangle superieur des lignes p et n-1-p (meme nombre total de cases par paire). */
+    private void calculerPaireLignes(double[][] d, int p) {
+        int q = d.length - 1 - p;
+        calculerLigne(d[p], p);
+        if (q != p)
+            calculerLigne(d[q], q);
+    }
+
+    private void calculerLigne(double[] ligne, int i) {
+        double[] xs = xCoords, ys = yCoords;
+        double xi = xs[i], yi = ys[i];
+        for (int j = i + 1; j < ligne.length; j++) {
+            double dx = xi - xs[j];
+            double dy = yi - ys[j];
+            ligne[j] = Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /** Remplit d[i][j] = d[j][i] (j < i) pour les lignes du bloc b, tuile par tuile. */
+    private static void symetriserBlocLignes(double[][] d, int b) {
+        int debut = b * BLOC_SYMETRIE;
+        int fin = Math.min(d.length, debut + BLOC_SYMETRIE);
+        for (int jb = 0; jb <= debut; jb += BLOC_SYMETRIE) {
+            for (int i = debut; i < fin; i++) {
+                double[] ligne = d[i];
+                int jFin = Math.min(i, jb + BLOC_SYMETRIE);
+                for (int j = jb; j < jFin; j++)
+                    ligne[j] = d[j][i];
             }
         }
     }
 
+    /**
+     * Arrondit chaque distance a l'entier le plus proche (convention TSPLIB EUC_2D,
+     * necessaire pour comparer aux meilleures solutions publiees).
+     */
+    public void arrondirDistances() {
+        if (distancesEntieres != null)
+            return;
+        for (double[] ligne : distanceMatrix)
+            for (int j = 0; j < ligne.length; j++)
+                ligne[j] = Math.rint(ligne[j]);
+        oublierStructuresDerivees();
+    }
+
+    /**
+     * Agrandit la matrice des distances pour accueillir jusqu'a nbClientsMax clients
+     * sans reallocation lors des ajouts suivants. A appeler avant une serie d'ajouts
+     * dont on connait l'ordre de grandeur : chaque agrandissement recopie la matrice.
+     */
+    public void reserverCapacite(int nbClientsMax) {
+        int capacite = capaciteMatrice();
+        int nouvelle = nbClientsMax + 1;
+        if (nouvelle <= capacite)
+            return;
+        if (distancesEntieres != null) {
+            int[] e = new int[tailleEntiere(nouvelle)];
+            for (int i = 0; i < capacite; i++)
+                System.arraycopy(distancesEntieres, i * capacite, e, i * nouvelle, capacite);
+            distancesEntieres = e;
+            pasEntier = nouvelle;
+            return;
+        }
+        double[][] m = new double[nouvelle][];
+        for (int i = 0; i < nouvelle; i++)
+            m[i] = (i < capacite) ? Arrays.copyOf(distanceMatrix[i], nouvelle) : new double[nouvelle];
+        distanceMatrix = m;
+    }
+
+    /**
+     * Ajoute un client (coordonnees + demande) et calcule ses distances.
+     * Sans reserve suffisante ({@link #reserverCapacite}), la matrice grandit d'un
+     * huitieme (au moins BLOC_AGRANDISSEMENT sommets) : ajout en O(n) amorti, pour un
+     * surplus de memoire d'au plus 27 % au lieu du quadruplement d'un doublement.
+     *
+     * @return l'indice du nouveau client
+     */
+    public int ajouterClient(double x, double y, int demande) {
+        if (xCoords == null || yCoords == null)
+            throw new IllegalStateException("Coordonnees absentes : ajout de client impossible");
+        if (nbDepots > 1)
+            throw new IllegalStateException("Ajout de client non supporte en multi-depot");
+
+        int id = nbClients + 1;
+        if (id >= capaciteMatrice())
+            reserverCapacite(capaciteMatrice() + Math.max(BLOC_AGRANDISSEMENT, capaciteMatrice() / 8) - 1);
+
+        xCoords = Arrays.copyOf(xCoords, id + 1);
+        yCoords = Arrays.copyOf(yCoords, id + 1);
+        xCoords[id] = x;
+        yCoords[id] = y;
+        demandes = Arrays.copyOf(demandes, id);
+        demandes[id - 1] = demande;
+        if (debutsFenetres != null) {
+            debutsFenetres = Arrays.copyOf(debutsFenetres, id + 1);
+            finsFenetres = Arrays.copyOf(finsFenetres, id + 1);
+            finsFenetres[id] = Double.POSITIVE_INFINITY;
+            if (tempsService != null)
+                tempsService = Arrays.copyOf(tempsService, id + 1);
+        }
+
+        if (distancesEntieres != null) {
+            for (int j = 0; j < id; j++) {
+                double dx = x - xCoords[j];
+                double dy = y - yCoords[j];
+                int d = versEntier(Math.sqrt(dx * dx + dy * dy), echelleDistances);
+                distancesEntieres[id * pasEntier + j] = d;
+                distancesEntieres[j * pasEntier + id] = d;
+            }
+            distancesEntieres[id * pasEntier + id] = 0;
+        } else {
+            double[] ligne = distanceMatrix[id];
+            for (int j = 0; j < id; j++) {
+                double dx = x - xCoords[j];
+                double dy = y - yCoords[j];
+                ligne[j] = Math.sqrt(dx * dx + dy * dy);
+                distanceMatrix[j][id] = ligne[j];
+            }
+            ligne[id] = 0;
+        }
+        nbClients = id;
+        oublierStructuresDerivees();
+        return id;
+    }
+
+    /**
+     * Annule le dernier {@link #ajouterClient} (client non planifiable) : coordonnees,
+     * demande et fenetre sont retirees, la capacite de la matrice est conservee.
+     */
+    public void retirerDernierClient() {
+        if (nbClients == 0)
+            throw new IllegalStateException("Aucun client a retirer");
+        int id = nbClients;
+        xCoords = Arrays.copyOf(xCoords, id);
+        yCoords = Arrays.copyOf(yCoords, id);
+        demandes = Arrays.copyOf(demandes, id - 1);
+        if (debutsFenetres != null) {
+            debutsFenetres = Arrays.copyOf(debutsFenetres, id);
+            finsFenetres = Arrays.copyOf(finsFenetres, id);
+            if (tempsService != null)
+                tempsService = Arrays.copyOf(tempsService, id);
+        }
+        nbClients = id - 1;
+        oublierStructuresDerivees();
+    }
+
+    // ====================================================================
+    // DISTANCES ENTIERES
+    // ====================================================================
+
+    /**
+     * Passe en distances entieres : d(i, j) devient round(echelle x d(i, j)), stocke
+     * dans un int[] (moitie de la memoire des doubles, la matrice reelle est liberee).
+     * Toutes les grandeurs de temps et de cout passent en 1/echelle d'unite : fenetres,
+     * temps de service, couts fixes et meilleur connu sont multiplies par echelle.
+     * Les sommes de distances sont alors exactes et independantes de l'ordre.
+     * echelle = 1 reproduit la convention entiere des bancs CVRP (TSPLIB nint).
+     */
+    public void convertirDistancesEntieres(int echelle) {
+        if (echelle <= 0)
+            throw new IllegalArgumentException("Echelle des distances invalide: " + echelle);
+        if (distancesEntieres != null)
+            throw new IllegalStateException("Distances deja entieres (echelle " + echelleDistances + ")");
+        remplacerParEntiers(echelle);
+        echelleDistances = echelle;
+
+        mettreAEchelle(debutsFenetres, echelle);
+        mettreAEchelle(finsFenetres, echelle);
+        mettreAEchelle(tempsService, echelle);
+        mettreAEchelle(coutsFixes, echelle);
+        meilleurConnu *= echelle;
+        oublierStructuresDerivees();
+    }
+
+    /**
+     * Passe en distances entieres sans mise a l'echelle : la matrice reelle contient
+     * deja des valeurs en 1/echelle d'unite (sous-instance d'une instance entiere,
+     * dont fenetres et couts fixes sont eux aussi deja a l'echelle).
+     */
+    public void adopterDistancesEntieres(int echelle) {
+        if (echelle <= 0)
+            throw new IllegalArgumentException("Echelle des distances invalide: " + echelle);
+        if (distancesEntieres != null)
+            throw new IllegalStateException("Distances deja entieres (echelle " + echelleDistances + ")");
+        remplacerParEntiers(1);
+        echelleDistances = echelle;
+        oublierStructuresDerivees();
+    }
+
+    /** Remplace la matrice reelle par round(facteur x d) dans un int[]. */
+    private void remplacerParEntiers(int facteur) {
+        int n = distanceMatrix.length;
+        int[] e = new int[tailleEntiere(n)];
+        for (int i = 0; i < n; i++) {
+            double[] ligne = distanceMatrix[i];
+            for (int j = 0; j < n; j++)
+                e[i * n + j] = versEntier(ligne[j], facteur);
+        }
+        distancesEntieres = e;
+        pasEntier = n;
+        distanceMatrix = null;
+    }
+
+    private static int versEntier(double d, int facteur) {
+        long v = Math.round(facteur * d);
+        if (v > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(
+                    "Distance " + d + " trop grande pour l'echelle " + facteur);
+        return (int) v;
+    }
+
+    private static int tailleEntiere(int n) {
+        if ((long) n * n > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Matrice entiere trop grande: " + n + " sommets");
+        return n * n;
+    }
+
+    private static void mettreAEchelle(double[] t, int echelle) {
+        if (t != null)
+            for (int i = 0; i < t.length; i++)
+                t[i] *= echelle;
+    }
+
+    private void quitterModeEntier() {
+        distancesEntieres = null;
+        pasEntier = 0;
+        echelleDistances = 0;
+    }
+
+    /** Nombre de sommets que la matrice peut accueillir sans reallocation. */
+    private int capaciteMatrice() {
+        return (distancesEntieres != null) ? pasEntier : distanceMatrix.length;
+    }
+
     /**
      * Affiche un resume des donnees dans la console.
      */
@@ -100,7 +590,14 @@ public class DonneesVRP {
         System.out.println("=== DONNEES DU PROBLEME ===");
         System.out.println("Nombre de clients: " + nbClients);
         System.out.println("Nombre de vehicules: " + nbVehicules);
-        System.out.println("Capacite par vehicule: " + capaciteVehicule);
+        if (estFlotteHomogene()) {
+            System.out.println("Capacite par vehicule: " + capaciteVehicule);
+        } else {
+            System.out.println("Depots: " + nbDepots);
+            for (int v = 0; v < nbVehicules; v++)
+                System.out.printf("  V%d: capacite %d, cout fixe %.2f, cout/km %.2f, sommet depot %d%n",
+                        v + 1, getCapacite(v), getCoutFixe(v), getCoutKm(v), getDepotVehicule(v));
+        }
 
         System.out.print("Demandes des clients: [");
         for (int i = 0; i < demandes.length; i++) {
@@ -110,7 +607,8 @@ public class DonneesVRP {
         }
         System.out.println("]");
 
-        System.out.println("\nMatrice des distances (" +
-                distanceMatrix.length + "x" + distanceMatrix[0].length + ")");
+        int n = capaciteMatrice();
+        System.out.println("\nMatrice des distances (" + n + "x" + n
+                + (distancesEntieres != null ? ", entieres a l'echelle " + echelleDistances : "") + ")");
     }
 }
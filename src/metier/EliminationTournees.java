@@ -0,0 +1,281 @@
+package metier;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Phase de minimisation du nombre de vehicules avant l'optimisation des distances.
+ *
+ * On tente de vider les tournees une a une, de la plus petite a la plus grande, avec
+ * une reserve d'ejection (Nagata et Braysy) : les clients de la tournee visee vont
+ * dans la reserve, puis chaque client de la reserve est insere au moindre surcout
+ * dans une autre tournee non vide. Si aucune insertion n'est realisable, il prend la
+ * place d'un client d'une tournee, choisi parmi les moins souvent ejectes, qui
+ * rejoint la reserve. La tournee est supprimee quand la reserve se vide ; au-dela
+ * d'un nombre d'ejections ou du budget de temps, la tentative est abandonnee.
+ *
+ * Les couts ne guident que le choix des positions : la phase peut allonger la
+ * distance, que le recuit reduit ensuite sur une flotte plus petite.
+ */
+public class EliminationTournees {
+
+    /** Positions d'insertion verifiees (fenetres de temps) par client candidat a l'ejection. */
+    private static final int POSITIONS_VERIFIEES = 3;
+
+    private final DonneesVRP donnees;
+    private final RecuitSimule outils;
+    private long budgetMs = 2000;
+    private int ejectionsParClient = 50;
+    private int nbTourneesCible;
+    private int nbEliminees;
+
+    public EliminationTournees(DonneesVRP donnees) {
+        this(donnees, new RecuitSimule(donnees));
+    }
+
+    EliminationTournees(DonneesVRP donnees, RecuitSimule outils) {
+        this.donnees = donnees;
+        this.outils = outils;
+    }
+
+    public void setBudgetMs(long ms) {
+        this.budgetMs = ms;
+    }
+
+    /** Ejections autorisees par client de la tournee a vider. */
+    public void setEjectionsParClient(int n) {
+        this.ejectionsParClient = n;
+    }
+
+    /** Arrete l'elimination des que la solution a au plus nb tournees non vides (0 = au plus tot). */
+    public void setNbTourneesCible(int nb) {
+        this.nbTourneesCible = nb;
+    }
+
+    public int getNbEliminees() {
+        return nbEliminees;
+    }
+
+    // ====================================================================
+    // ELIMINATION
+    // ====================================================================
+
+    /** Solution de depart privee d'autant de tournees que possible dans le budget. */
+    public Solution eliminer(Solution depart) {
+        long limite = System.nanoTime() + budgetMs * 1_000_000L;
+        Solution sol = depart.copier();
+        nbEliminees = 0;
+        boolean progres = true;
+        while (progres && System.nanoTime() < limite && compterNonVides(sol) > nbTourneesCible) {
+            progres = false;
+            for (int t : tourneesParTaille(sol)) {
+                if (System.nanoTime() >= limite)
+                    break;
+                Solution essai = sol.copier();
+                if (vider(essai, t, limite)) {
+                    sol = essai;
+                    nbEliminees++;
+                    progres = true;
+                    break;
+                }
+            }
+        }
+        sol.cout = outils.calculerCout(sol);
+        return sol;
+    }
+
+    /**
+     * Retire les tournees vides d'une solution a flotte homogene : tous les vehicules
+     * sont interchangeables, l'indice d'une tournee reste celui d'un vehicule.
+     * Sans effet sur une flotte heterogene (tournee i = vehicule i).
+     */
+    public static void compacter(Solution sol, DonneesVRP donnees) {
+        if (donnees.estFlotteHomogene())
+            sol.tournees.removeIf(List::isEmpty);
+    }
+
+    private static int compterNonVides(Solution sol) {
+        int n = 0;
+        for (List<Integer> route : sol.tournees)
+            if (!route.isEmpty())
+                n++;
+        return n;
+    }
+
+    /** Tournees non vides, les moins chargees en clients (puis en demande) d'abord. */
+    private List<Integer> tourneesParTaille(Solution sol) {
+        int[] demandes = donnees.getDemandes();
+        List<Integer> res = new ArrayList<>();
+        long[] cles = new long[sol.tournees.size()];
+        for (int t = 0; t < sol.tournees.size(); t++) {
+            List<Integer> route = sol.tournees.get(t);
+            if (route.isEmpty())
+                continue;
+            long charge = 0;
+            for (int c : route)
+                charge += demandes[c - 1];
+            cles[t] = ((long) route.size() << 32) | charge;
+            res.add(t);
+        }
+        res.sort((a, b) -> Long.compare(cles[a], cles[b]));
+        return res;
+    }
+
+    /** Vide la tournee cible dans les autres ; sol est modifiee meme en cas d'echec. */
+    private boolean vider(Solution sol, int cible, long limite) {
+        List<Integer> route = sol.tournees.get(cible);
+        int[] demandes = donnees.getDemandes();
+        int[] penalites = new int[donnees.getNbClients() + 1];
+        Deque<Integer> reserve = new ArrayDeque<>();
+        // Plus grosses demandes d'abord : ce sont les plus difficiles a placer
+        route.sort((a, b) -> Integer.compare(demandes[a - 1], demandes[b - 1]));
+        for (int c : route)
+            reserve.push(c);
+        route.clear();
+
+        EtatTournees etat = new EtatTournees(donnees, sol);
+        int maxEjections = ejectionsParClient * reserve.size();
+        int ejections = 0;
+        while (!reserve.isEmpty()) {
+            if (System.nanoTime() >= limite)
+                return false;
+            int c = reserve.pop();
+            if (insererMoindreCout(etat, c, cible))
+                continue;
+            penalites[c]++;
+            if (++ejections > maxEjections)
+                return false;
+            int ejecte = insererAvecEjection(etat, c, cible, penalites);
+            if (ejecte < 0)
+                return false;
+            reserve.push(ejecte);
+        }
+        return true;
+    }
+
+    /** Insertion realisable de moindre surcout dans une tournee non vide autre que la cible. */
+    private boolean insererMoindreCout(EtatTournees etat, int client, int cible) {
+        Solution sol = etat.solution;
+        int meilleureRoute = -1, meilleurePos = -1;
+        double meilleurSurcout = Double.MAX_VALUE;
+        for (int k = 0; k < etat.nonVides.taille(); k++) {
+            int t = etat.nonVides.get(k);
+            if (t == cible)
+                continue;
+            List<Integer> route = sol.tournees.get(t);
+            for (int p = 0; p <= route.size(); p++) {
+                if (!etat.insertionRealisable(t, p, client))
+                    continue;
+                double s = surcout(route, t, p, -1, client);
+                if (s < meilleurSurcout) {
+                    meilleurSurcout = s;
+                    meilleureRoute = t;
+                    meilleurePos = p;
+                }
+            }
+        }
+        if (meilleureRoute < 0)
+            return false;
+        sol.tournees.get(meilleureRoute).add(meilleurePos, client);
+        etat.recalculer(meilleureRoute);
+        return true;
+    }
+
+    /**
+     * Place le client a la place d'un autre : parmi les remplacements realisables,
+     * celui dont le client ejecte a la plus petite penalite, puis le moindre surcout.
+     * Retourne le client ejecte, -1 si aucun remplacement n'est realisable.
+     */
+    private int insererAvecEjection(EtatTournees etat, int client, int cible, int[] penalites) {
+        Solution sol = etat.solution;
+        int[] demandes = donnees.getDemandes();
+        boolean fenetres = donnees.aFenetresTemps();
+        int meilleureRoute = -1, meilleurRetrait = -1, meilleurePos = -1;
+        int meilleurePenalite = Integer.MAX_VALUE;
+        double meilleurSurcout = Double.MAX_VALUE;
+        double[] surcouts = new double[0];
+        List<Integer> essai = new ArrayList<>();
+
+        for (int k = 0; k < etat.nonVides.taille(); k++) {
+            int t = etat.nonVides.get(k);
+            if (t == cible)
+                continue;
+            List<Integer> route = sol.tournees.get(t);
+            if (surcouts.length < route.size())
+                surcouts = new double[route.size()];
+            for (int r = 0; r < route.size(); r++) {
+                int e = route.get(r);
+                if (penalites[e] > meilleurePenalite
+                        || etat.charges[t] - demandes[e - 1] + demandes[client - 1] > donnees.getCapacite(t))
+                    continue;
+                // Positions dans la tournee privee de e, par surcout croissant
+                int nbPos = route.size();
+                for (int p = 0; p < nbPos; p++)
+                    surcouts[p] = surcout(route, t, p, r, client);
+                for (int essais = 0; essais < POSITIONS_VERIFIEES; essais++) {
+                    int p = -1;
+                    for (int q = 0; q < nbPos; q++)
+                        if (surcouts[q] < Double.MAX_VALUE && (p < 0 || surcouts[q] < surcouts[p]))
+                            p = q;
+                    if (p < 0)
+                        break;
+                    double s = surcouts[p];
+                    surcouts[p] = Double.MAX_VALUE;
+                    if (penalites[e] == meilleurePenalite && s >= meilleurSurcout)
+                        break;
+                    if (fenetres) {
+                        essai.clear();
+                        essai.addAll(route);
+                        essai.remove(r);
+                        essai.add(p, client);
+                        if (!outils.respecteFenetres(essai, t))
+                            continue;
+                    }
+                    meilleurePenalite = penalites[e];
+                    meilleurSurcout = s;
+                    meilleureRoute = t;
+                    meilleurRetrait = r;
+                    meilleurePos = p;
+                    break;
+                }
+            }
+        }
+        if (meilleureRoute < 0)
+            return -1;
+        List<Integer> route = sol.tournees.get(meilleureRoute);
+        int ejecte = route.remove(meilleurRetrait);
+        route.add(meilleurePos, client);
+        etat.recalculer(meilleureRoute);
+        return ejecte;
+    }
+
+    /**
+     * Surcout de l'insertion du client en position p de la tournee t privee de sa
+     * position retrait (-1 : aucun retrait), retrait compris.
+     */
+    private double surcout(List<Integer> route, int t, int p, int retrait, int client) {
+        int depot = donnees.getDepotVehicule(t);
+        double delta = 0;
+        if (retrait >= 0) {
+            int a = (retrait == 0) ? depot : route.get(retrait - 1);
+            int b = (retrait == route.size() - 1) ? depot : route.get(retrait + 1);
+            int e = route.get(retrait);
+            delta = donnees.distance(a, b) - donnees.distance(a, e) - donnees.distance(e, b);
+        }
+        // Voisins de la position p dans la tournee apres retrait
+        int prec = sommetApresRetrait(route, p - 1, retrait, depot);
+        int suiv = sommetApresRetrait(route, p, retrait, depot);
+        delta += donnees.distance(prec, client) + donnees.distance(client, suiv) - donnees.distance(prec, suiv);
+        return donnees.getCoutKm(t) * delta;
+    }
+
+    /** Sommet en position k de la tournee privee de la position retrait (depot hors bornes). */
+    private static int sommetApresRetrait(List<Integer> route, int k, int retrait, int depot) {
+        int taille = route.size() - (retrait >= 0 ? 1 : 0);
+        if (k < 0 || k >= taille)
+            return depot;
+        return route.get((retrait >= 0 && k >= retrait) ? k + 1 : k);
+    }
+}
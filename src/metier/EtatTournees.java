@@ -0,0 +1,431 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solution courante du recuit et attributs mis en cache par tournee
+ * (charge, longueur) : un {@link Mouvement} est evalue en temps constant,
+ * sans copie de la solution ni parcours complet des tournees.
+ *
+ * L'evaluation ne modifie pas l'etat ; seule {@link #appliquer} le fait,
+ * en recalculant les attributs des tournees touchees.
+ *
+ * Avec fenetres de temps, chaque tournee garde pour chaque position k
+ * (0 = depart du depot, L+1 = retour) le debut de service au plus tot (debuts)
+ * et au plus tard compatible avec la suite de la tournee (tards). Un mouvement
+ * inter-tournees se verifie alors en O(1) par concatenation prefixe + client + suffixe ;
+ * les mouvements intra-tournee sont verifies par simulation de la tournee.
+ *
+ * Charges et longueurs cumulees par position permettent aussi d'evaluer en O(1)
+ * l'echange de fins de tournees (2-opt*).
+ *
+ * Les indices des tournees non vides et de celles d'au moins deux clients sont
+ * tenus a jour par recalculer() : le tirage d'un mouvement ne parcourt pas les
+ * tournees vides.
+ */
+class EtatTournees {
+
+    private final DonneesVRP donnees;
+    private int[] demandes;
+
+    final Solution solution;
+    final int[] charges;
+    final double[] longueurs;
+    /** Charge et longueur (depuis le depot) des k premiers clients de chaque tournee. */
+    private final int[][] chargesPrefixe;
+    private final double[][] longueursPrefixe;
+
+    private final boolean fenetres;
+    private final double[][] debuts;
+    private final double[][] tards;
+
+    /** Tournees d'au moins un client, puis d'au moins deux, par indice croissant. */
+    final IndicesTries nonVides;
+    final IndicesTries aDeuxClients;
+
+    EtatTournees(DonneesVRP donnees, Solution solution) {
+        this.donnees = donnees;
+        this.demandes = donnees.getDemandes();
+        this.solution = solution;
+
+        int nbT = solution.tournees.size();
+        charges = new int[nbT];
+        longueurs = new double[nbT];
+        chargesPrefixe = new int[nbT][];
+        longueursPrefixe = new double[nbT][];
+        fenetres = donnees.aFenetresTemps();
+        debuts = fenetres ? new double[nbT][] : null;
+        tards = fenetres ? new double[nbT][] : null;
+        nonVides = new IndicesTries(nbT);
+        aDeuxClients = new IndicesTries(nbT);
+        double total = 0;
+        for (int t = 0; t < nbT; t++) {
+            recalculer(t);
+            total += coutTournee(t);
+        }
+        solution.cout = total;
+    }
+
+    private double dist(int i, int j) {
+        return donnees.distance(i, j);
+    }
+
+    /** Relit les demandes apres un ajout de client dans {@link DonneesVRP}. */
+    void synchroniserDonnees() {
+        this.demandes = donnees.getDemandes();
+    }
+
+    /** Recalcule la charge et la longueur d'une tournee. */
+    void recalculer(int t) {
+        List<Integer> route = solution.tournees.get(t);
+        int depot = donnees.getDepotVehicule(t);
+        if (chargesPrefixe[t] == null || chargesPrefixe[t].length < route.size() + 1) {
+            chargesPrefixe[t] = new int[route.size() + 10];
+            longueursPrefixe[t] = new double[route.size() + 10];
+        }
+        int[] cp = chargesPrefixe[t];
+        double[] lp = longueursPrefixe[t];
+        int charge = 0;
+        double longueur = 0;
+        int prec = depot;
+        int k = 0;
+        for (int c : route) {
+            cp[k] = charge;
+            lp[k++] = longueur;
+            charge += demandes[c - 1];
+            longueur += dist(prec, c);
+            prec = c;
+        }
+        cp[k] = charge;
+        lp[k] = longueur;
+        longueur += dist(prec, depot);
+        charges[t] = charge;
+        longueurs[t] = route.isEmpty() ? 0 : longueur;
+        nonVides.mettreAJour(t, route.size() >= 1);
+        aDeuxClients.mettreAJour(t, route.size() >= 2);
+        if (fenetres)
+            calculerHoraires(t);
+    }
+
+    /** Debuts de service au plus tot (avant) et au plus tard (arriere) de la tournee t. */
+    private void calculerHoraires(int t) {
+        List<Integer> route = solution.tournees.get(t);
+        int depot = donnees.getDepotVehicule(t);
+        int taille = route.size();
+        if (debuts[t] == null || debuts[t].length < taille + 2) {
+            debuts[t] = new double[taille + 10];
+            tards[t] = new double[taille + 10];
+        }
+        double[] deb = debuts[t], tard = tards[t];
+
+        deb[0] = donnees.getDebutFenetre(depot);
+        int prec = depot;
+        for (int k = 1; k <= taille + 1; k++) {
+            int c = (k <= taille) ? route.get(k - 1) : depot;
+            deb[k] = Math.max(donnees.getDebutFenetre(c),
+                    deb[k - 1] + donnees.getTempsService(prec) + dist(prec, c));
+            prec = c;
+        }
+
+        tard[taille + 1] = donnees.getFinFenetre(depot);
+        int suiv = depot;
+        for (int k = taille; k >= 0; k--) {
+            int c = (k >= 1) ? route.get(k - 1) : depot;
+            tard[k] = Math.min(donnees.getFinFenetre(c),
+                    tard[k + 1] - dist(c, suiv) - donnees.getTempsService(c));
+            suiv = c;
+        }
+    }
+
+    /** Cout d'une tournee : cout kilometrique + cout fixe si elle est utilisee. */
+    double coutTournee(int t) {
+        if (solution.tournees.get(t).isEmpty())
+            return 0;
+        return donnees.getCoutKm(t) * longueurs[t] + donnees.getCoutFixe(t);
+    }
+
+    // ====================================================================
+    // EVALUATION
+    // ====================================================================
+
+    /** Calcule delta et realisable du mouvement, sans modifier l'etat. */
+    void evaluer(Mouvement m) {
+        if (m.type == Mouvement.SWAP)
+            evaluerSwap(m);
+        else if (m.type == Mouvement.RELOCATE)
+            evaluerRelocate(m);
+        else
+            evaluerDeuxOptEtoile(m);
+    }
+
+    private void evaluerSwap(Mouvement m) {
+        List<Integer> r1 = solution.tournees.get(m.t1);
+        List<Integer> r2 = solution.tournees.get(m.t2);
+
+        if (m.t1 == m.t2) {
+            int depot = donnees.getDepotVehicule(m.t1);
+            int i = Math.min(m.p1, m.p2), j = Math.max(m.p1, m.p2);
+            int ci = r1.get(i), cj = r1.get(j);
+            int a = avant(r1, i, depot), b = apres(r1, j, depot);
+            double dl;
+            if (j == i + 1) {
+                dl = dist(a, cj) + dist(cj, ci) + dist(ci, b)
+                        - dist(a, ci) - dist(ci, cj) - dist(cj, b);
+            } else {
+                int bi = r1.get(i + 1), aj = r1.get(j - 1);
+                dl = dist(a, cj) + dist(cj, bi) + dist(aj, ci) + dist(ci, b)
+                        - dist(a, ci) - dist(ci, bi) - dist(aj, cj) - dist(cj, b);
+            }
+            m.realisable = !fenetres || simulationRealisable(m);
+            m.delta = donnees.getCoutKm(m.t1) * dl;
+            return;
+        }
+
+        int c1 = r1.get(m.p1), c2 = r2.get(m.p2);
+        int q1 = demandes[c1 - 1], q2 = demandes[c2 - 1];
+        m.realisable = charges[m.t1] - q1 + q2 <= donnees.getCapacite(m.t1)
+                && charges[m.t2] - q2 + q1 <= donnees.getCapacite(m.t2)
+                && (!fenetres || (concatenationRealisable(m.t1, m.p1, c2, m.p1 + 2)
+                        && concatenationRealisable(m.t2, m.p2, c1, m.p2 + 2)));
+        if (!m.realisable)
+            return;
+        m.delta = donnees.getCoutKm(m.t1) * remplacement(r1, m.p1, c2, donnees.getDepotVehicule(m.t1))
+                + donnees.getCoutKm(m.t2) * remplacement(r2, m.p2, c1, donnees.getDepotVehicule(m.t2));
+    }
+
+    private void evaluerRelocate(Mouvement m) {
+        List<Integer> src = solution.tournees.get(m.t1);
+        int depot1 = donnees.getDepotVehicule(m.t1);
+        int c = src.get(m.p1);
+        int a = avant(src, m.p1, depot1), b = apres(src, m.p1, depot1);
+        double retrait = dist(a, b) - dist(a, c) - dist(c, b);
+
+        if (m.t1 == m.t2) {
+            m.realisable = src.size() == 1 || !fenetres || simulationRealisable(m);
+            if (src.size() == 1) {
+                m.delta = 0;
+                return;
+            }
+            // Insertion dans la tournee apres retrait
+            int taille = src.size() - 1;
+            int x = (m.p2 == 0) ? depot1 : elementApresRetrait(src, m.p1, m.p2 - 1);
+            int y = (m.p2 == taille) ? depot1 : elementApresRetrait(src, m.p1, m.p2);
+            m.delta = donnees.getCoutKm(m.t1) * (retrait + dist(x, c) + dist(c, y) - dist(x, y));
+            return;
+        }
+
+        m.realisable = charges[m.t2] + demandes[c - 1] <= donnees.getCapacite(m.t2)
+                && (!fenetres || (concatenationRealisable(m.t1, m.p1, -1, m.p1 + 2)
+                        && concatenationRealisable(m.t2, m.p2, c, m.p2 + 1)));
+        if (!m.realisable)
+            return;
+        List<Integer> dst = solution.tournees.get(m.t2);
+        int depot2 = donnees.getDepotVehicule(m.t2);
+        int x = (m.p2 == 0) ? depot2 : dst.get(m.p2 - 1);
+        int y = (m.p2 == dst.size()) ? depot2 : dst.get(m.p2);
+        double delta = donnees.getCoutKm(m.t1) * retrait
+                + donnees.getCoutKm(m.t2) * (dist(x, c) + dist(c, y) - dist(x, y));
+        if (src.size() == 1)
+            delta -= donnees.getCoutFixe(m.t1);
+        if (dst.isEmpty())
+            delta += donnees.getCoutFixe(m.t2);
+        m.delta = delta;
+    }
+
+    /** Echange des fins de deux tournees de meme depot, en O(1) (fenetres comprises). */
+    private void evaluerDeuxOptEtoile(Mouvement m) {
+        int t1 = m.t1, t2 = m.t2;
+        List<Integer> r1 = solution.tournees.get(t1), r2 = solution.tournees.get(t2);
+        int depot = donnees.getDepotVehicule(t1);
+        m.realisable = t1 != t2 && depot == donnees.getDepotVehicule(t2)
+                && chargesPrefixe[t1][m.p1] + charges[t2] - chargesPrefixe[t2][m.p2] <= donnees.getCapacite(t1)
+                && chargesPrefixe[t2][m.p2] + charges[t1] - chargesPrefixe[t1][m.p1] <= donnees.getCapacite(t2)
+                && (!fenetres || (jonctionRealisable(t1, m.p1, t2, m.p2 + 1)
+                        && jonctionRealisable(t2, m.p2, t1, m.p1 + 1)));
+        if (!m.realisable)
+            return;
+        int fin1 = (m.p1 == 0) ? depot : r1.get(m.p1 - 1);
+        int fin2 = (m.p2 == 0) ? depot : r2.get(m.p2 - 1);
+        int tete1 = (m.p1 == r1.size()) ? depot : r1.get(m.p1);
+        int tete2 = (m.p2 == r2.size()) ? depot : r2.get(m.p2);
+        double suffixe1 = longueurs[t1] - longueursPrefixe[t1][m.p1] - dist(fin1, tete1);
+        double suffixe2 = longueurs[t2] - longueursPrefixe[t2][m.p2] - dist(fin2, tete2);
+        boolean vide1 = m.p1 == 0 && m.p2 == r2.size();
+        boolean vide2 = m.p2 == 0 && m.p1 == r1.size();
+        double apres1 = vide1 ? 0 : donnees.getCoutKm(t1)
+                * (longueursPrefixe[t1][m.p1] + dist(fin1, tete2) + suffixe2) + donnees.getCoutFixe(t1);
+        double apres2 = vide2 ? 0 : donnees.getCoutKm(t2)
+                * (longueursPrefixe[t2][m.p2] + dist(fin2, tete1) + suffixe1) + donnees.getCoutFixe(t2);
+        m.delta = apres1 + apres2 - coutTournee(t1) - coutTournee(t2);
+    }
+
+    /** Vrai si le client peut etre insere a la position p de la tournee t. */
+    boolean insertionRealisable(int t, int p, int client) {
+        return charges[t] + demandes[client - 1] <= donnees.getCapacite(t)
+                && (!fenetres || concatenationRealisable(t, p, client, p + 1));
+    }
+
+    // ====================================================================
+    // FENETRES DE TEMPS
+    // ====================================================================
+
+    /**
+     * Verifie en O(1) la tournee t composee du prefixe jusqu'a la position i,
+     * du client x (ou rien si x < 0), puis du suffixe a partir de la position j.
+     */
+    private boolean concatenationRealisable(int t, int i, int x, int j) {
+        int u = sommet(t, i), w = sommet(t, j);
+        double h = debuts[t][i];
+        int prec = u;
+        if (x >= 0) {
+            h = Math.max(donnees.getDebutFenetre(x), h + donnees.getTempsService(u) + dist(u, x));
+            if (h > donnees.getFinFenetre(x))
+                return false;
+            prec = x;
+        }
+        double hw = Math.max(donnees.getDebutFenetre(w),
+                h + donnees.getTempsService(prec) + dist(prec, w));
+        return hw <= tards[t][j];
+    }
+
+    /**
+     * Verifie en O(1) la tournee formee du prefixe de t1 jusqu'a la position i
+     * suivi du suffixe de t2 a partir de la position j (meme depot).
+     */
+    private boolean jonctionRealisable(int t1, int i, int t2, int j) {
+        int u = sommet(t1, i), w = sommet(t2, j);
+        double hw = Math.max(donnees.getDebutFenetre(w),
+                debuts[t1][i] + donnees.getTempsService(u) + dist(u, w));
+        return hw <= tards[t2][j];
+    }
+
+    /** Simule en O(L) la tournee obtenue par un mouvement intra-tournee. */
+    private boolean simulationRealisable(Mouvement m) {
+        List<Integer> route = solution.tournees.get(m.t1);
+        int depot = donnees.getDepotVehicule(m.t1);
+        int taille = route.size();
+        double h = donnees.getDebutFenetre(depot);
+        int prec = depot;
+        for (int k = 0; k <= taille; k++) {
+            int c = (k < taille) ? elementApres(m, route, k) : depot;
+            h = Math.max(donnees.getDebutFenetre(c), h + donnees.getTempsService(prec) + dist(prec, c));
+            if (h > donnees.getFinFenetre(c))
+                return false;
+            prec = c;
+        }
+        return true;
+    }
+
+    /** Element d'indice k de la tournee t1 apres application d'un mouvement intra-tournee. */
+    private static int elementApres(Mouvement m, List<Integer> route, int k) {
+        if (m.type == Mouvement.SWAP)
+            return route.get(k == m.p1 ? m.p2 : k == m.p2 ? m.p1 : k);
+        if (k == m.p2)
+            return route.get(m.p1);
+        return elementApresRetrait(route, m.p1, k < m.p2 ? k : k - 1);
+    }
+
+    private int sommet(int t, int k) {
+        List<Integer> route = solution.tournees.get(t);
+        return (k == 0 || k == route.size() + 1) ? donnees.getDepotVehicule(t) : route.get(k - 1);
+    }
+
+    // ====================================================================
+    // APPLICATION
+    // ====================================================================
+
+    /** Applique un mouvement realisable et met a jour les attributs et le cout. */
+    void appliquer(Mouvement m) {
+        double avant = coutTournee(m.t1) + (m.t1 != m.t2 ? coutTournee(m.t2) : 0);
+
+        List<Integer> r1 = solution.tournees.get(m.t1);
+        List<Integer> r2 = solution.tournees.get(m.t2);
+        if (m.type == Mouvement.SWAP) {
+            int tmp = r1.get(m.p1);
+            r1.set(m.p1, r2.get(m.p2));
+            r2.set(m.p2, tmp);
+        } else if (m.type == Mouvement.DEUX_OPT_ETOILE) {
+            List<Integer> fin1 = r1.subList(m.p1, r1.size());
+            List<Integer> fin2 = r2.subList(m.p2, r2.size());
+            List<Integer> copie1 = new ArrayList<>(fin1);
+            fin1.clear();
+            fin1.addAll(fin2);
+            fin2.clear();
+            fin2.addAll(copie1);
+        } else {
+            int client = r1.remove(m.p1);
+            r2.add(m.p2, client);
+        }
+
+        recalculer(m.t1);
+        if (m.t1 != m.t2)
+            recalculer(m.t2);
+        double apres = coutTournee(m.t1) + (m.t1 != m.t2 ? coutTournee(m.t2) : 0);
+        solution.cout += apres - avant;
+    }
+
+    // ====================================================================
+    // UTILITAIRES
+    // ====================================================================
+
+    private double remplacement(List<Integer> route, int p, int nouveau, int depot) {
+        int a = avant(route, p, depot), b = apres(route, p, depot);
+        int ancien = route.get(p);
+        return dist(a, nouveau) + dist(nouveau, b) - dist(a, ancien) - dist(ancien, b);
+    }
+
+    private static int avant(List<Integer> route, int p, int depot) {
+        return (p == 0) ? depot : route.get(p - 1);
+    }
+
+    private static int apres(List<Integer> route, int p, int depot) {
+        return (p == route.size() - 1) ? depot : route.get(p + 1);
+    }
+
+    /** Element d'indice k de la tournee privee de sa position retiree. */
+    private static int elementApresRetrait(List<Integer> route, int retiree, int k) {
+        return route.get(k < retiree ? k : k + 1);
+    }
+
+    /**
+     * Ensemble d'indices de tournees garde trie. Une insertion ou un retrait decale
+     * le tableau en O(nombre de tournees), mais n'a lieu que lorsqu'une tournee se
+     * vide ou se remplit ; l'appartenance se teste en O(1).
+     */
+    static final class IndicesTries {
+        private final int[] indices;
+        private final boolean[] present;
+        private int taille;
+
+        IndicesTries(int nbTournees) {
+            indices = new int[nbTournees];
+            present = new boolean[nbTournees];
+        }
+
+        int taille() {
+            return taille;
+        }
+
+        int get(int k) {
+            return indices[k];
+        }
+
+        void mettreAJour(int t, boolean dedans) {
+            if (present[t] == dedans)
+                return;
+            present[t] = dedans;
+            int p = Arrays.binarySearch(indices, 0, taille, t);
+            if (dedans) {
+                p = -p - 1;
+                System.arraycopy(indices, p, indices, p + 1, taille - p);
+                indices[p] = t;
+                taille++;
+            } else {
+                System.arraycopy(indices, p + 1, indices, p, taille - p - 1);
+                taille--;
+            }
+        }
+    }
+}
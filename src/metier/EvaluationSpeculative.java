@@ -0,0 +1,103 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluation speculative d'un lot de mouvements d'une meme chaine de recuit.
+ *
+ * Les mouvements et leurs tirages de Metropolis sont generes en sequence par le
+ * thread du solveur, puis evalues en parallele sur l'etat courant (lecture seule).
+ * Le premier mouvement accepte dans l'ordre du lot l'emporte : tous les precedents
+ * ont ete rejetes depuis le meme etat, exactement comme en sequentiel, et les
+ * suivants sont abandonnes. Un thread s'arrete des qu'un mouvement accepte
+ * le precede dans le lot.
+ */
+class EvaluationSpeculative {
+
+    final Mouvement[] mouvements;
+    final boolean[] generes;
+    final double[] tirages;
+
+    private final int nbThreads;
+    private final ExecutorService pool;
+    private final List<Future<?>> enCours = new ArrayList<>();
+    private final AtomicInteger premier = new AtomicInteger();
+
+    private EtatTournees etat;
+    private double temperature;
+    private int nb;
+
+    EvaluationSpeculative(int nbThreads, int tailleLot) {
+        this.nbThreads = nbThreads;
+        mouvements = new Mouvement[tailleLot];
+        for (int k = 0; k < tailleLot; k++)
+            mouvements[k] = new Mouvement();
+        generes = new boolean[tailleLot];
+        tirages = new double[tailleLot];
+        AtomicInteger numero = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(nbThreads - 1, r -> {
+            Thread t = new Thread(r, "speculation-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    int taille() {
+        return mouvements.length;
+    }
+
+    /**
+     * Evalue les nb premiers mouvements du lot et retourne l'indice du premier
+     * accepte, -1 si tous sont rejetes. Les mouvements d'indice inferieur sont
+     * tous evalues (delta et realisable a jour).
+     */
+    int evaluer(EtatTournees etat, double temperature, int nb) {
+        this.etat = etat;
+        this.temperature = temperature;
+        this.nb = nb;
+        premier.set(nb);
+
+        int bloc = (nb + nbThreads - 1) / nbThreads;
+        enCours.clear();
+        for (int b = 1; b < nbThreads && b * bloc < nb; b++) {
+            int debut = b * bloc;
+            enCours.add(pool.submit(() -> evaluerBloc(debut, debut + bloc)));
+        }
+        evaluerBloc(0, bloc);
+        try {
+            for (Future<?> f : enCours)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation speculative interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Echec de l'evaluation speculative", e.getCause());
+        }
+        int p = premier.get();
+        return (p < nb) ? p : -1;
+    }
+
+    private void evaluerBloc(int debut, int fin) {
+        fin = Math.min(fin, nb);
+        for (int k = debut; k < fin && k < premier.get(); k++) {
+            if (!generes[k])
+                continue;
+            Mouvement m = mouvements[k];
+            etat.evaluer(m);
+            if (m.realisable && (m.delta < 0 || Math.exp(-m.delta / temperature) > tirages[k])) {
+                premier.accumulateAndGet(k, Math::min);
+                return;
+            }
+        }
+    }
+
+    void fermer() {
+        pool.shutdownNow();
+    }
+}
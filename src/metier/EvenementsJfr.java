@@ -0,0 +1,79 @@
+package metier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evenements Java Flight Recorder emis par le solveur.
+ *
+ * Visibles avec {@code jcmd <pid> JFR.start} a cote des donnees GC et CPU ;
+ * sans enregistrement actif, {@code shouldCommit()} renvoie faux et le cout est negligeable.
+ */
+public final class EvenementsJfr {
+
+    private EvenementsJfr() {
+    }
+
+    /** Phase du solveur : chargement, construction, elimination, 2-opt. */
+    @Name("vrp.Phase")
+    @Label("Phase du solveur")
+    @Category({ "VRP", "Recuit" })
+    @StackTrace(false)
+    public static class Phase extends Event {
+
+        @Label("Phase")
+        public String phase;
+
+        @Label("Detail")
+        public String detail;
+
+        @Label("Cout")
+        public double cout;
+
+        Phase(String phase) {
+            this.phase = phase;
+        }
+    }
+
+    /** Un palier de temperature du recuit. */
+    @Name("vrp.PalierTemperature")
+    @Label("Palier de temperature")
+    @Category({ "VRP", "Recuit" })
+    @StackTrace(false)
+    public static class PalierTemperature extends Event {
+
+        @Label("Temperature")
+        public double temperature;
+
+        @Label("Cout courant")
+        public double coutCourant;
+
+        @Label("Meilleur cout")
+        public double meilleurCout;
+
+        @Label("Iteration")
+        @Description("Iteration cumulee a la fin du palier")
+        public long iteration;
+    }
+
+    /** Nouvelle meilleure solution trouvee. */
+    @Name("vrp.NouveauMeilleur")
+    @Label("Nouvelle meilleure solution")
+    @Category({ "VRP", "Recuit" })
+    @StackTrace(false)
+    public static class NouveauMeilleur extends Event {
+
+        @Label("Cout")
+        public double cout;
+
+        @Label("Temperature")
+        public double temperature;
+
+        @Label("Iteration")
+        public long iteration;
+    }
+}
@@ -0,0 +1,535 @@
+package metier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Export d'une solution en JSON, CSV, binaire compact ou carte HTML statique.
+ *
+ * Les sorties texte sont ecrites en flux depuis les tournees : entiers et reels
+ * sont convertis dans un tampon de caracteres reutilise, sans chaine intermediaire
+ * par arret. Le format est deduit de l'extension (.json, .csv, .vrps, .html).
+ *
+ * Format binaire (DataOutputStream) : entete, nombre de clients, cout, graine,
+ * nombre de tournees non vides, puis pour chacune le vehicule, la taille et les
+ * clients, entiers en longueur variable (7 bits par octet).
+ *
+ * La carte HTML est un SVG autonome : coordonnees de l'instance, ou a defaut
+ * reconstituees depuis la matrice des distances par positionnement
+ * multidimensionnel classique (instances .dat sans coordonnees).
+ */
+public class ExportSolution {
+
+    private static final int MAGIC = 0x56525053; // "VRPS"
+    private static final int VERSION = 1;
+    /** Borne du nombre de tournees relu (flotte), contre les entetes corrompus. */
+    private static final int TOURNEES_MAX = 1 << 20;
+    /** Decimales des reels dans les sorties texte. */
+    private static final int DECIMALES = 4;
+    private static final long FACTEUR = 10_000;
+    private static final double LARGEUR_CARTE = 1000;
+
+    private final DonneesVRP donnees;
+    private String nomInstance = "";
+
+    public ExportSolution(DonneesVRP donnees) {
+        this.donnees = donnees;
+    }
+
+    /** Nom affiche dans la carte HTML et ecrit dans le JSON. */
+    public void setNomInstance(String nom) {
+        this.nomInstance = nom;
+    }
+
+    // ====================================================================
+    // DISPATCH
+    // ====================================================================
+
+    /** Ecrit la solution dans le format designe par l'extension du fichier. */
+    public void exporter(Solution sol, Path fichier) throws IOException {
+        String nom = fichier.getFileName().toString().toLowerCase();
+        if (nom.endsWith(".vrps")) {
+            ecrireBinaire(sol, fichier);
+            return;
+        }
+        try (Writer w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            if (nom.endsWith(".json"))
+                ecrireJson(sol, w);
+            else if (nom.endsWith(".csv"))
+                ecrireCsv(sol, w);
+            else if (nom.endsWith(".html") || nom.endsWith(".htm"))
+                ecrireHtml(sol, w);
+            else
+                throw new IllegalArgumentException("Format d'export inconnu : " + fichier);
+        }
+    }
+
+    // ====================================================================
+    // JSON / CSV
+    // ====================================================================
+
+    public void ecrireJson(Solution sol, Writer w) throws IOException {
+        Sortie out = new Sortie(w);
+        out.texte("{\"instance\":\"").echappe(nomInstance, false).texte("\",\"nbClients\":")
+                .entier(donnees.getNbClients()).texte(",\"cout\":").reel(sol.cout)
+                .texte(",\"graine\":").entier(sol.graine);
+        if (donnees.aDistancesEntieres())
+            out.texte(",\"echelle\":").entier(donnees.getEchelleDistances());
+        if (sol.borneInferieure > 0)
+            out.texte(",\"borne\":").reel(sol.borneInferieure);
+        out.texte(",\"tournees\":[");
+        boolean premiere = true;
+        for (int v = 0; v < sol.tournees.size(); v++) {
+            List<Integer> route = sol.tournees.get(v);
+            if (route.isEmpty())
+                continue;
+            if (!premiere)
+                out.car(',');
+            premiere = false;
+            out.texte("{\"vehicule\":").entier(v + 1).texte(",\"distance\":").reel(longueur(route, v))
+                    .texte(",\"charge\":").entier(charge(route)).texte(",\"clients\":[");
+            for (int k = 0; k < route.size(); k++) {
+                if (k > 0)
+                    out.car(',');
+                out.entier(route.get(k));
+            }
+            out.texte("]}");
+        }
+        out.texte("]}\n").vider();
+    }
+
+    /** Une ligne par arret (depots compris) : charge et distance cumulees. */
+    public void ecrireCsv(Solution sol, Writer w) throws IOException {
+        Sortie out = new Sortie(w);
+        int[] demandes = donnees.getDemandes();
+        out.texte("vehicule,ordre,sommet,demande,chargeCumulee,distanceCumulee\n");
+        for (int v = 0; v < sol.tournees.size(); v++) {
+            List<Integer> route = sol.tournees.get(v);
+            if (route.isEmpty())
+                continue;
+            int depot = donnees.getDepotVehicule(v);
+            int prec = depot, charge = 0;
+            double dist = 0;
+            ligneCsv(out, v, 0, depot, 0, 0, 0);
+            for (int k = 0; k < route.size(); k++) {
+                int c = route.get(k);
+                dist += donnees.distance(prec, c);
+                charge += demandes[c - 1];
+                ligneCsv(out, v, k + 1, c, demandes[c - 1], charge, dist);
+                prec = c;
+            }
+            dist += donnees.distance(prec, depot);
+            ligneCsv(out, v, route.size() + 1, depot, 0, charge, dist);
+        }
+        out.vider();
+    }
+
+    private static void ligneCsv(Sortie out, int v, int ordre, int sommet, int demande,
+            int charge, double dist) throws IOException {
+        out.entier(v + 1).car(',').entier(ordre).car(',').entier(sommet).car(',').entier(demande)
+                .car(',').entier(charge).car(',').reel(dist).car('\n');
+    }
+
+    // ====================================================================
+    // BINAIRE
+    // ====================================================================
+
+    public void ecrireBinaire(Solution sol, Path fichier) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(fichier)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(donnees.getNbClients());
+            out.writeDouble(sol.cout);
+            out.writeLong(sol.graine);
+            ecrireVariable(out, sol.tournees.size());
+            ecrireVariable(out, compterNonVides(sol));
+            for (int v = 0; v < sol.tournees.size(); v++) {
+                List<Integer> route = sol.tournees.get(v);
+                if (route.isEmpty())
+                    continue;
+                ecrireVariable(out, v);
+                ecrireVariable(out, route.size());
+                for (int c : route)
+                    ecrireVariable(out, c);
+            }
+        }
+    }
+
+    /**
+     * Relit une solution binaire ; les tournees absentes du fichier sont vides.
+     * Les tailles et indices lus sont verifies contre l'entete (nombre de clients) :
+     * un fichier tronque ou corrompu donne une IOException.
+     */
+    public static Solution lireBinaire(Path fichier) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(fichier)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Fichier de solution invalide : " + fichier);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Version de solution non supportee : " + version);
+            int nbClients = in.readInt();
+            if (nbClients < 0)
+                throw new IOException("Nombre de clients invalide : " + nbClients);
+            double cout = in.readDouble();
+            long graine = in.readLong();
+            int nbTournees = lireVariable(in);
+            if (nbTournees < 0 || nbTournees > TOURNEES_MAX)
+                throw new IOException("Nombre de tournees invalide : " + nbTournees);
+            int nonVides = lireVariable(in);
+            if (nonVides < 0 || nonVides > Math.min(nbTournees, nbClients))
+                throw new IOException("Nombre de tournees non vides invalide : " + nonVides);
+            Solution s = new Solution(nbTournees);
+            int restants = nbClients;
+            for (int t = 0; t < nonVides; t++) {
+                int v = lireVariable(in);
+                if (v < 0 || v >= nbTournees || !s.tournees.get(v).isEmpty())
+                    throw new IOException("Indice de tournee invalide : " + v);
+                List<Integer> route = s.tournees.get(v);
+                int taille = lireVariable(in);
+                if (taille < 1 || taille > restants)
+                    throw new IOException("Taille de tournee invalide : " + taille + " (vehicule " + v + ")");
+                restants -= taille;
+                for (int k = 0; k < taille; k++) {
+                    int c = lireVariable(in);
+                    if (c < 1 || c > nbClients)
+                        throw new IOException("Client invalide : " + c + " (vehicule " + v + ")");
+                    route.add(c);
+                }
+            }
+            s.cout = cout;
+            s.graine = graine;
+            return s;
+        }
+    }
+
+    private static void ecrireVariable(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int lireVariable(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int decalage = 0; decalage < 32; decalage += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << decalage;
+            if ((b & 0x80) == 0)
+                return v;
+        }
+        throw new IOException("Entier variable trop long");
+    }
+
+    // ====================================================================
+    // CARTE HTML
+    // ====================================================================
+
+    /** Page HTML autonome : tournees en SVG (une polyligne par vehicule) et legende. */
+    public void ecrireHtml(Solution sol, Writer w) throws IOException {
+        boolean reconstituees = !aCoordonnees();
+        double[][] xy = reconstituees ? positionnementMultidimensionnel()
+                : new double[][] { donnees.getXCoords(), donnees.getYCoords() };
+        double[] x = xy[0], y = xy[1];
+        int nbNoeuds = donnees.getNbNoeuds();
+        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < nbNoeuds; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double etendue = Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+        double echelle = LARGEUR_CARTE / etendue;
+        double marge = 20;
+        double hauteur = (maxY - minY) * echelle + 2 * marge;
+        double largeur = (maxX - minX) * echelle + 2 * marge;
+        // Abscisses et ordonnees ecran (y vers le bas)
+        double[] px = new double[nbNoeuds], py = new double[nbNoeuds];
+        for (int i = 0; i < nbNoeuds; i++) {
+            px[i] = marge + (x[i] - minX) * echelle;
+            py[i] = hauteur - marge - (y[i] - minY) * echelle;
+        }
+
+        Sortie out = new Sortie(w);
+        out.texte("<!DOCTYPE html>\n<html lang=\"fr\">\n<head>\n<meta charset=\"utf-8\">\n<title>")
+                .echappe(nomInstance, true).texte("</title>\n<style>\n")
+                .texte("body{font-family:sans-serif;margin:1em}svg{border:1px solid #ccc;max-width:100%;height:auto}\n")
+                .texte("polyline{fill:none;stroke-width:2;stroke-opacity:.75}circle{fill:orange;stroke:#000;stroke-width:.5}\n")
+                .texte("table{border-collapse:collapse}td,th{padding:2px 8px;text-align:right}\n")
+                .texte("</style>\n</head>\n<body>\n<h1>").echappe(nomInstance, true).texte("</h1>\n<p>Cout : ")
+                .reel(sol.cout).texte(" | Vehicules : ").entier(compterNonVides(sol))
+                .texte(" | Clients : ").entier(donnees.getNbClients()).texte(" | Graine : ").entier(sol.graine);
+        if (reconstituees)
+            out.texte(" | Coordonnees reconstituees depuis les distances");
+        out.texte("</p>\n<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ").reel(largeur).car(' ')
+                .reel(hauteur).texte("\" width=\"").reel(largeur).texte("\" height=\"").reel(hauteur).texte("\">\n");
+
+        int nbTournees = sol.tournees.size();
+        for (int v = 0; v < nbTournees; v++) {
+            List<Integer> route = sol.tournees.get(v);
+            if (route.isEmpty())
+                continue;
+            int depot = donnees.getDepotVehicule(v);
+            out.texte("<polyline stroke=\"hsl(").entier(teinte(v)).texte(",70%,40%)\" points=\"");
+            point(out, px, py, depot);
+            for (int c : route)
+                point(out.car(' '), px, py, c);
+            point(out.car(' '), px, py, depot);
+            out.texte("\"><title>V").entier(v + 1).texte("</title></polyline>\n");
+        }
+        int[] demandes = donnees.getDemandes();
+        int demandeMax = 1;
+        for (int d : demandes)
+            demandeMax = Math.max(demandeMax, d);
+        for (int c = 1; c <= donnees.getNbClients(); c++) {
+            out.texte("<circle cx=\"").reel(px[c]).texte("\" cy=\"").reel(py[c]).texte("\" r=\"")
+                    .reel(2 + 4.0 * demandes[c - 1] / demandeMax).texte("\"><title>C").entier(c)
+                    .texte(" (").entier(demandes[c - 1]).texte(")</title></circle>\n");
+        }
+        for (int k = 0; k < donnees.getNbDepots(); k++) {
+            int d = donnees.getNoeudDepot(k);
+            out.texte("<rect x=\"").reel(px[d] - 6).texte("\" y=\"").reel(py[d] - 6)
+                    .texte("\" width=\"12\" height=\"12\"><title>Depot ").entier(k + 1).texte("</title></rect>\n");
+        }
+        out.texte("</svg>\n<table>\n<tr><th>Vehicule</th><th>Clients</th><th>Distance</th><th>Charge</th></tr>\n");
+        for (int v = 0; v < nbTournees; v++) {
+            List<Integer> route = sol.tournees.get(v);
+            if (route.isEmpty())
+                continue;
+            out.texte("<tr><td style=\"color:hsl(").entier(teinte(v)).texte(",70%,40%)\">V").entier(v + 1)
+                    .texte("</td><td>").entier(route.size()).texte("</td><td>").reel(longueur(route, v))
+                    .texte("</td><td>").entier(charge(route)).car('/').entier(donnees.getCapacite(v))
+                    .texte("</td></tr>\n");
+        }
+        out.texte("</table>\n</body>\n</html>\n").vider();
+    }
+
+    private static Sortie point(Sortie out, double[] px, double[] py, int i) throws IOException {
+        return out.reel(px[i]).car(',').reel(py[i]);
+    }
+
+    /** Teintes reparties par l'angle d'or : vehicules voisins bien distincts. */
+    private static int teinte(int v) {
+        return (int) ((v * 137.508) % 360);
+    }
+
+    private boolean aCoordonnees() {
+        double[] x = donnees.getXCoords(), y = donnees.getYCoords();
+        return x != null && y != null && x.length >= donnees.getNbNoeuds();
+    }
+
+    /**
+     * MDS classique : double centrage de la matrice des carres des distances, puis
+     * les deux premiers vecteurs propres par la methode de la puissance (avec
+     * deflation), mis a l'echelle par la racine de leur valeur propre.
+     */
+    double[][] positionnementMultidimensionnel() {
+        int n = donnees.getNbNoeuds();
+        double[][] b = new double[n][n];
+        double[] moyLignes = new double[n];
+        double moy = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++) {
+                double d = donnees.distance(i, j);
+                b[i][j] = d * d;
+                moyLignes[i] += b[i][j] / n;
+            }
+        for (double m : moyLignes)
+            moy += m / n;
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                b[i][j] = -0.5 * (b[i][j] - moyLignes[i] - moyLignes[j] + moy);
+
+        double[][] res = new double[2][];
+        double[] premier = null;
+        double lambda1 = 0;
+        for (int axe = 0; axe < 2; axe++) {
+            double[] v = new double[n];
+            for (int i = 0; i < n; i++)
+                v[i] = 1 + (i * 7919 % 13) / 13.0; // depart deterministe non degenere
+            double lambda = 0;
+            double[] w = new double[n];
+            for (int iter = 0; iter < 300; iter++) {
+                double p = 0;
+                if (premier != null)
+                    for (int j = 0; j < n; j++)
+                        p += premier[j] * v[j];
+                double norme = 0;
+                for (int i = 0; i < n; i++) {
+                    double s = 0;
+                    for (int j = 0; j < n; j++)
+                        s += b[i][j] * v[j];
+                    if (premier != null)
+                        s -= lambda1 * premier[i] * p;
+                    w[i] = s;
+                    norme += s * s;
+                }
+                norme = Math.sqrt(norme);
+                if (norme < 1e-12)
+                    break;
+                double ecart = 0;
+                for (int i = 0; i < n; i++) {
+                    double nv = w[i] / norme;
+                    ecart += Math.abs(nv - v[i]);
+                    v[i] = nv;
+                }
+                lambda = norme;
+                if (ecart < 1e-9 * n)
+                    break;
+            }
+            double racine = Math.sqrt(Math.max(lambda, 0));
+            res[axe] = new double[n];
+            for (int i = 0; i < n; i++)
+                res[axe][i] = v[i] * racine;
+            premier = v.clone();
+            lambda1 = lambda;
+        }
+        return res;
+    }
+
+    // ====================================================================
+    // OUTILS
+    // ====================================================================
+
+    private double longueur(List<Integer> route, int v) {
+        int depot = donnees.getDepotVehicule(v);
+        double d = 0;
+        int prec = depot;
+        for (int c : route) {
+            d += donnees.distance(prec, c);
+            prec = c;
+        }
+        return d + donnees.distance(prec, depot);
+    }
+
+    private int charge(List<Integer> route) {
+        int[] demandes = donnees.getDemandes();
+        int charge = 0;
+        for (int c : route)
+            charge += demandes[c - 1];
+        return charge;
+    }
+
+    private static int compterNonVides(Solution sol) {
+        int n = 0;
+        for (List<Integer> route : sol.tournees)
+            if (!route.isEmpty())
+                n++;
+        return n;
+    }
+
+    /**
+     * Ecriture tamponnee de caracteres : entiers et reels (4 decimales, zeros de fin
+     * retires) sont convertis en place, sans allouer de chaine.
+     */
+    private static final class Sortie {
+        private final Writer w;
+        private final char[] tampon = new char[8192];
+        private final char[] chiffres = new char[20];
+        private int pos;
+
+        Sortie(Writer w) {
+            this.w = w;
+        }
+
+        Sortie car(char c) throws IOException {
+            if (pos == tampon.length)
+                vider();
+            tampon[pos++] = c;
+            return this;
+        }
+
+        Sortie texte(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++)
+                car(s.charAt(i));
+            return this;
+        }
+
+        /** Chaine echappee pour JSON (html faux) ou pour HTML (html vrai). */
+        Sortie echappe(String s, boolean html) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (html && c == '<')
+                    texte("&lt;");
+                else if (html && c == '>')
+                    texte("&gt;");
+                else if (html && c == '&')
+                    texte("&amp;");
+                else if (!html && (c == '"' || c == '\\'))
+                    car('\\').car(c);
+                else if (!html && c < 0x20)
+                    car(' ');
+                else
+                    car(c);
+            }
+            return this;
+        }
+
+        Sortie entier(long v) throws IOException {
+            if (v == Long.MIN_VALUE)
+                return texte(Long.toString(v));
+            if (v < 0) {
+                car('-');
+                v = -v;
+            }
+            int n = 0;
+            do {
+                chiffres[n++] = (char) ('0' + v % 10);
+                v /= 10;
+            } while (v != 0);
+            while (n > 0)
+                car(chiffres[--n]);
+            return this;
+        }
+
+        Sortie reel(double v) throws IOException {
+            if (Double.isNaN(v) || Double.isInfinite(v) || Math.abs(v) >= 1e14)
+                return texte(Double.isFinite(v) ? Double.toString(v) : "null");
+            long r = Math.round(v * FACTEUR);
+            if (r < 0) {
+                car('-');
+                r = -r;
+            }
+            entier(r / FACTEUR);
+            long frac = r % FACTEUR;
+            if (frac == 0)
+                return this;
+            int n = DECIMALES;
+            while (frac % 10 == 0) {
+                frac /= 10;
+                n--;
+            }
+            car('.');
+            for (long p = pow10(n - 1); p > 0; p /= 10) {
+                car((char) ('0' + frac / p));
+                frac %= p;
+            }
+            return this;
+        }
+
+        private static long pow10(int n) {
+            long p = 1;
+            for (int i = 0; i < n; i++)
+                p *= 10;
+            return p;
+        }
+
+        Sortie vider() throws IOException {
+            w.write(tampon, 0, pos);
+            pos = 0;
+            return this;
+        }
+    }
+}
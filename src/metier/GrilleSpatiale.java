@@ -0,0 +1,108 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grille uniforme sur les coordonnees des clients, alimentee au fil des arrivees.
+ * Les k plus proches voisins sont cherches par anneaux de cellules autour du point :
+ * cout independant du nombre de clients pour une repartition homogene, au lieu
+ * du parcours complet de {@link ListesVoisins#plusProches}.
+ */
+final class GrilleSpatiale {
+
+    private final double cote;
+    private final Map<Long, List<Integer>> cellules = new HashMap<>();
+    private int minI = Integer.MAX_VALUE, maxI = Integer.MIN_VALUE;
+    private int minJ = Integer.MAX_VALUE, maxJ = Integer.MIN_VALUE;
+
+    /** Cote choisi pour environ deux clients par cellule sur l'emprise des clients 1..nbClients. */
+    GrilleSpatiale(double[] x, double[] y, int nbClients) {
+        double x0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y0 = Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (int c = 1; c <= nbClients; c++) {
+            x0 = Math.min(x0, x[c]);
+            x1 = Math.max(x1, x[c]);
+            y0 = Math.min(y0, y[c]);
+            y1 = Math.max(y1, y[c]);
+        }
+        double largeur = (nbClients > 0) ? x1 - x0 : 0, hauteur = (nbClients > 0) ? y1 - y0 : 0;
+        double c = Math.sqrt(2 * largeur * hauteur / Math.max(1, nbClients));
+        if (!(c > 0))
+            c = Math.max(largeur, hauteur) / Math.max(1, nbClients);
+        this.cote = (c > 0) ? c : 1.0;
+    }
+
+    void ajouter(int client, double x, double y) {
+        int i = indice(x), j = indice(y);
+        cellules.computeIfAbsent(cle(i, j), k -> new ArrayList<>(4)).add(client);
+        minI = Math.min(minI, i);
+        maxI = Math.max(maxI, i);
+        minJ = Math.min(minJ, j);
+        maxJ = Math.max(maxJ, j);
+    }
+
+    /** Les k clients de la grille les plus proches de (px, py), du plus proche au plus lointain. */
+    int[] plusProches(double[] x, double[] y, double px, double py, int k) {
+        if (k <= 0 || cellules.isEmpty())
+            return new int[0];
+        int[] ids = new int[k];
+        double[] ds = new double[k];
+        int rempli = 0;
+        int ci = indice(px), cj = indice(py);
+
+        for (int r = 0; ; r++) {
+            // Les cellules au-dela de l'anneau r sont a plus de r x cote du point
+            if (rempli == k && ds[k - 1] <= r * cote)
+                break;
+            if (ci - r < minI && ci + r > maxI && cj - r < minJ && cj + r > maxJ)
+                break;
+            for (int i = Math.max(ci - r, minI); i <= Math.min(ci + r, maxI); i++) {
+                if (i == ci - r || i == ci + r) {
+                    for (int j = Math.max(cj - r, minJ); j <= Math.min(cj + r, maxJ); j++)
+                        rempli = examiner(i, j, x, y, px, py, ids, ds, rempli);
+                } else {
+                    if (cj - r >= minJ)
+                        rempli = examiner(i, cj - r, x, y, px, py, ids, ds, rempli);
+                    if (cj + r <= maxJ)
+                        rempli = examiner(i, cj + r, x, y, px, py, ids, ds, rempli);
+                }
+            }
+        }
+        return (rempli == k) ? ids : Arrays.copyOf(ids, rempli);
+    }
+
+    /** Insere les clients de la cellule (i, j) dans la liste triee ids/ds, retourne sa nouvelle taille. */
+    private int examiner(int i, int j, double[] x, double[] y, double px, double py,
+            int[] ids, double[] ds, int rempli) {
+        List<Integer> cellule = cellules.get(cle(i, j));
+        if (cellule == null)
+            return rempli;
+        int k = ids.length;
+        for (int c : cellule) {
+            double dx = x[c] - px, dy = y[c] - py;
+            double d = Math.sqrt(dx * dx + dy * dy);
+            if (rempli == k && d >= ds[k - 1])
+                continue;
+            int p = (rempli < k) ? rempli++ : k - 1;
+            while (p > 0 && ds[p - 1] > d) {
+                ds[p] = ds[p - 1];
+                ids[p] = ids[p - 1];
+                p--;
+            }
+            ds[p] = d;
+            ids[p] = c;
+        }
+        return rempli;
+    }
+
+    private int indice(double v) {
+        return (int) Math.floor(v / cote);
+    }
+
+    private static long cle(int i, int j) {
+        return ((long) i << 32) | (j & 0xffffffffL);
+    }
+}
@@ -0,0 +1,190 @@
+package metier;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Mode en ligne : maintient une solution vivante et y insere les clients
+ * qui arrivent en cours de journee, sans re-resoudre l'instance.
+ *
+ * 1. Le client est ajoute a {@link DonneesVRP} (coordonnees + demande)
+ * 2. Insertion au moindre cout realisable, limitee aux positions voisines
+ *    de ses k plus proches clients deja planifies (grille spatiale tenue a jour
+ *    a chaque insertion) ; sans position realisable l'ajout est annule
+ * 3. Une passe 2-opt est planifiee en arriere-plan sur la tournee touchee
+ *
+ * Toutes les operations sur la solution sont serialisees par le moniteur de
+ * l'instance : l'insertion attend au plus la fin d'une passe 2-opt sur une tournee.
+ */
+public class InsertionEnLigne {
+
+    private final DonneesVRP donnees;
+    private final RecuitSimule outils;
+    private final Solution solution;
+    private final EtatTournees etat;
+    private int[] tourneeDe;
+    private final GrilleSpatiale grille;
+    private int nbVoisins = 16;
+
+    private final ExecutorService arrierePlan;
+    private final Set<Integer> tourneesEnAttente = ConcurrentHashMap.newKeySet();
+
+    public InsertionEnLigne(DonneesVRP donnees, Solution initiale) {
+        this.donnees = donnees;
+        this.outils = new RecuitSimule(donnees);
+        this.solution = initiale.copier();
+        this.etat = new EtatTournees(donnees, solution);
+
+        tourneeDe = new int[donnees.getNbClients() + 1];
+        Arrays.fill(tourneeDe, -1);
+        grille = new GrilleSpatiale(donnees.getXCoords(), donnees.getYCoords(), donnees.getNbClients());
+        for (int t = 0; t < solution.tournees.size(); t++)
+            for (int c : solution.tournees.get(t)) {
+                tourneeDe[c] = t;
+                grille.ajouter(c, donnees.getXCoords()[c], donnees.getYCoords()[c]);
+            }
+
+        arrierePlan = Executors.newSingleThreadExecutor(r -> {
+            Thread th = new Thread(r, "insertion-en-ligne");
+            th.setDaemon(true);
+            return th;
+        });
+    }
+
+    public void setNbVoisins(int k) {
+        this.nbVoisins = k;
+    }
+
+    /** Retourne une copie de la solution courante. */
+    public synchronized Solution getSolution() {
+        return solution.copier();
+    }
+
+    /** Arrete les passes d'optimisation en arriere-plan (les insertions restent possibles). */
+    public void arreter() {
+        arrierePlan.shutdownNow();
+    }
+
+    /**
+     * Ajoute un client et l'insere dans la solution courante.
+     *
+     * @return l'indice du client dans {@link DonneesVRP}
+     * @throws IllegalStateException si aucune tournee ne peut l'accueillir ; le client
+     *         est alors retire de {@link DonneesVRP} et la solution est inchangee
+     */
+    public synchronized int ajouterClient(double x, double y, int demande) {
+        int client = donnees.ajouterClient(x, y, demande);
+        etat.synchroniserDonnees();
+        if (client >= tourneeDe.length) {
+            int ancienne = tourneeDe.length;
+            tourneeDe = Arrays.copyOf(tourneeDe, Math.max(2 * ancienne, client + 1));
+            Arrays.fill(tourneeDe, ancienne, tourneeDe.length, -1);
+        }
+
+        int meilleureRoute = -1, meilleurePos = -1;
+        double meilleurSurcout = Double.MAX_VALUE;
+
+        // Positions adjacentes aux plus proches voisins deja planifies
+        for (int v : grille.plusProches(donnees.getXCoords(), donnees.getYCoords(), x, y, nbVoisins)) {
+            int t = tourneeDe[v];
+            List<Integer> route = solution.tournees.get(t);
+            int p = route.indexOf(v);
+            for (int pos = p; pos <= p + 1; pos++) {
+                if (!etat.insertionRealisable(t, pos, client))
+                    continue;
+                double s = surcout(t, route, pos, client);
+                if (s < meilleurSurcout) {
+                    meilleurSurcout = s;
+                    meilleureRoute = t;
+                    meilleurePos = pos;
+                }
+            }
+        }
+
+        // Ouverture d'une tournee vide
+        for (int t = 0; t < solution.tournees.size(); t++) {
+            if (solution.tournees.get(t).isEmpty() && etat.insertionRealisable(t, 0, client)) {
+                double s = surcout(t, solution.tournees.get(t), 0, client);
+                if (s < meilleurSurcout) {
+                    meilleurSurcout = s;
+                    meilleureRoute = t;
+                    meilleurePos = 0;
+                }
+            }
+        }
+
+        // Repli : parcours complet si aucun voisin n'est realisable
+        if (meilleureRoute == -1) {
+            for (int t = 0; t < solution.tournees.size(); t++) {
+                List<Integer> route = solution.tournees.get(t);
+                for (int pos = 0; pos <= route.size(); pos++) {
+                    if (!etat.insertionRealisable(t, pos, client))
+                        continue;
+                    double s = surcout(t, route, pos, client);
+                    if (s < meilleurSurcout) {
+                        meilleurSurcout = s;
+                        meilleureRoute = t;
+                        meilleurePos = pos;
+                    }
+                }
+            }
+        }
+        if (meilleureRoute == -1) {
+            donnees.retirerDernierClient();
+            etat.synchroniserDonnees();
+            throw new IllegalStateException(String.format(
+                    "Impossible d'inserer le client %d (demande %d) : capacite ou fenetres insuffisantes.",
+                    client, demande));
+        }
+
+        solution.tournees.get(meilleureRoute).add(meilleurePos, client);
+        etat.recalculer(meilleureRoute);
+        tourneeDe[client] = meilleureRoute;
+        grille.ajouter(client, x, y);
+        solution.cout += meilleurSurcout;
+
+        planifierOptimisation(meilleureRoute);
+        return client;
+    }
+
+    /** Surcout d'insertion dans la tournee t : distance ponderee + cout fixe si elle est vide. */
+    private double surcout(int t, List<Integer> route, int pos, int client) {
+        int depot = donnees.getDepotVehicule(t);
+        int prec = (pos == 0) ? depot : route.get(pos - 1);
+        int suiv = (pos == route.size()) ? depot : route.get(pos);
+        double s = donnees.getCoutKm(t)
+                * (donnees.distance(prec, client) + donnees.distance(client, suiv) - donnees.distance(prec, suiv));
+        return route.isEmpty() ? s + donnees.getCoutFixe(t) : s;
+    }
+
+    // ====================================================================
+    // OPTIMISATION EN ARRIERE-PLAN
+    // ====================================================================
+
+    /** Rien n'est planifie apres {@link #arreter()} : l'insertion reste acquise sans 2-opt. */
+    private void planifierOptimisation(int tournee) {
+        if (arrierePlan.isShutdown() || !tourneesEnAttente.add(tournee))
+            return;
+        try {
+            arrierePlan.execute(() -> {
+                tourneesEnAttente.remove(tournee);
+                optimiserTournee(tournee);
+            });
+        } catch (RejectedExecutionException e) {
+            // arreter() concurrent
+            tourneesEnAttente.remove(tournee);
+        }
+    }
+
+    private synchronized void optimiserTournee(int tournee) {
+        double avant = outils.longueurTournee(solution, tournee);
+        outils.optimiserTournee2Opt(solution.tournees.get(tournee), tournee);
+        etat.recalculer(tournee);
+        solution.cout += donnees.getCoutKm(tournee) * (outils.longueurTournee(solution, tournee) - avant);
+    }
+}
@@ -0,0 +1,82 @@
+package metier;
+
+import java.util.Arrays;
+
+/**
+ * Listes des k plus proches voisins (clients) de chaque sommet.
+ *
+ * voisins[i] contient les clients tries par distance croissante depuis i
+ * (i exclu, depot exclu).
+ */
+public class ListesVoisins {
+
+    private final int[][] voisins;
+    private final int k;
+
+    public ListesVoisins(DonneesVRP donnees, int k) {
+        int n = donnees.getNbClients();
+        voisins = new int[n + 1][];
+        for (int i = 0; i <= n; i++)
+            voisins[i] = plusProches(donnees, i, n, k, i);
+        this.k = k;
+    }
+
+    /** Listes deja calculees (relues depuis le cache). */
+    ListesVoisins(int[][] voisins, int k) {
+        this.voisins = voisins;
+        this.k = k;
+    }
+
+    public int[] getVoisins(int sommet) {
+        return voisins[sommet];
+    }
+
+    /** Nombre de voisins demande (les listes peuvent etre plus courtes si n <= k). */
+    public int getK() {
+        return k;
+    }
+
+    int nbSommets() {
+        return voisins.length;
+    }
+
+    /** Les k premiers voisins de chaque liste (listes triees : memes resultats qu'un calcul direct). */
+    public ListesVoisins tronquer(int k) {
+        if (k >= this.k)
+            return this;
+        int[][] t = new int[voisins.length][];
+        for (int i = 0; i < voisins.length; i++)
+            t[i] = Arrays.copyOf(voisins[i], Math.min(k, voisins[i].length));
+        return new ListesVoisins(t, k);
+    }
+
+    /**
+     * Retourne les k clients (parmi 1..nbClients) les plus proches du sommet donne,
+     * par insertion dans un tableau trie de taille k : O(n.k) au pire, O(n) en pratique.
+     */
+    public static int[] plusProches(DonneesVRP donnees, int sommet, int nbClients, int k, int exclu) {
+        int taille = Math.min(k, nbClients - (exclu >= 1 && exclu <= nbClients ? 1 : 0));
+        if (taille <= 0)
+            return new int[0];
+        int[] ids = new int[taille];
+        double[] ds = new double[taille];
+        int rempli = 0;
+
+        for (int c = 1; c <= nbClients; c++) {
+            if (c == exclu)
+                continue;
+            double d = donnees.distance(sommet, c);
+            if (rempli == taille && d >= ds[taille - 1])
+                continue;
+            int p = (rempli < taille) ? rempli++ : taille - 1;
+            while (p > 0 && ds[p - 1] > d) {
+                ds[p] = ds[p - 1];
+                ids[p] = ids[p - 1];
+                p--;
+            }
+            ds[p] = d;
+            ids[p] = c;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,127 @@
+package metier;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs du recuit (propositions, acceptations, temps par phase).
+ *
+ * Les compteurs sont des {@link LongAdder} : incrementes par le thread du solveur
+ * sans contention, lus a tout moment par {@link #instantane()}.
+ * Une meme instance peut etre partagee par plusieurs executions.
+ */
+public class MetriquesRecuit {
+
+    final LongAdder propositionsSwap = new LongAdder();
+    final LongAdder propositionsRelocate = new LongAdder();
+    final LongAdder acceptations = new LongAdder();
+    final LongAdder rejetsCapacite = new LongAdder();
+    final LongAdder ameliorations = new LongAdder();
+    final LongAdder iterations = new LongAdder();
+    final LongAdder nanosConstruction = new LongAdder();
+    final LongAdder nanosRecuit = new LongAdder();
+    final LongAdder nanos2Opt = new LongAdder();
+
+    private ScheduledExecutorService export;
+
+    /** Valeurs figees des compteurs a un instant donne. */
+    public static class Instantane {
+        public final long horodatage;
+        public final long propositionsSwap;
+        public final long propositionsRelocate;
+        public final long acceptations;
+        public final long rejetsCapacite;
+        public final long ameliorations;
+        public final long iterations;
+        public final long nanosConstruction;
+        public final long nanosRecuit;
+        public final long nanos2Opt;
+
+        Instantane(MetriquesRecuit m) {
+            horodatage = System.currentTimeMillis();
+            propositionsSwap = m.propositionsSwap.sum();
+            propositionsRelocate = m.propositionsRelocate.sum();
+            acceptations = m.acceptations.sum();
+            rejetsCapacite = m.rejetsCapacite.sum();
+            ameliorations = m.ameliorations.sum();
+            iterations = m.iterations.sum();
+            nanosConstruction = m.nanosConstruction.sum();
+            nanosRecuit = m.nanosRecuit.sum();
+            nanos2Opt = m.nanos2Opt.sum();
+        }
+
+        /** Iterations du recuit par seconde de recuit. */
+        public double iterationsParSeconde() {
+            return nanosRecuit == 0 ? 0 : iterations * 1e9 / nanosRecuit;
+        }
+
+        /** Serialise l'instantane sur une ligne JSON. */
+        public String versJson() {
+            return String.format(Locale.ROOT,
+                    "{\"horodatage\":%d,\"propositionsSwap\":%d,\"propositionsRelocate\":%d,"
+                            + "\"acceptations\":%d,\"rejetsCapacite\":%d,\"ameliorations\":%d,"
+                            + "\"iterations\":%d,\"msConstruction\":%.3f,\"msRecuit\":%.3f,"
+                            + "\"ms2Opt\":%.3f,\"iterationsParSeconde\":%.1f}",
+                    horodatage, propositionsSwap, propositionsRelocate, acceptations,
+                    rejetsCapacite, ameliorations, iterations, nanosConstruction / 1e6,
+                    nanosRecuit / 1e6, nanos2Opt / 1e6, iterationsParSeconde());
+        }
+    }
+
+    public Instantane instantane() {
+        return new Instantane(this);
+    }
+
+    /** Remet tous les compteurs a zero. */
+    public void reinitialiser() {
+        for (LongAdder a : new LongAdder[] { propositionsSwap, propositionsRelocate, acceptations,
+                rejetsCapacite, ameliorations, iterations, nanosConstruction, nanosRecuit, nanos2Opt })
+            a.reset();
+    }
+
+    // ====================================================================
+    // EXPORT PERIODIQUE (JSON lines)
+    // ====================================================================
+
+    /**
+     * Ajoute un instantane au fichier toutes les periodeMs millisecondes,
+     * depuis un thread demon dedie.
+     */
+    public synchronized void demarrerExport(Path fichier, long periodeMs) {
+        arreterExport();
+        export = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread th = new Thread(r, "metriques-recuit");
+            th.setDaemon(true);
+            return th;
+        });
+        export.scheduleAtFixedRate(() -> ecrire(fichier), periodeMs, periodeMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Arrete l'export periodique. */
+    public synchronized void arreterExport() {
+        if (export == null)
+            return;
+        export.shutdown();
+        export = null;
+    }
+
+    /** Ajoute immediatement un instantane au fichier. */
+    public void ecrire(Path fichier) {
+        try (BufferedWriter w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            w.write(instantane().versJson());
+            w.newLine();
+        } catch (IOException e) {
+            System.err.println("Erreur export metriques: " + e.getMessage());
+        }
+    }
+}
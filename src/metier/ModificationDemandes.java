@@ -0,0 +1,52 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta applique a une solution existante : demandes modifiees,
+ * clients ajoutes au plan et clients retires du plan.
+ *
+ * Les clients sont designes par leur indice dans {@link DonneesVRP} (1..nbClients).
+ */
+public class ModificationDemandes {
+
+    private final Map<Integer, Integer> demandesModifiees = new LinkedHashMap<>();
+    private final List<Integer> ajoutes = new ArrayList<>();
+    private final List<Integer> retires = new ArrayList<>();
+
+    /** Nouvelle demande pour un client deja planifie. */
+    public ModificationDemandes modifierDemande(int client, int demande) {
+        demandesModifiees.put(client, demande);
+        return this;
+    }
+
+    /** Client a inserer dans le plan, avec sa demande. */
+    public ModificationDemandes ajouterClient(int client, int demande) {
+        demandesModifiees.put(client, demande);
+        ajoutes.add(client);
+        return this;
+    }
+
+    /** Client a retirer du plan (il n'est plus visite). */
+    public ModificationDemandes retirerClient(int client) {
+        retires.add(client);
+        return this;
+    }
+
+    // --- Getters ---
+
+    public Map<Integer, Integer> getDemandesModifiees() {
+        return demandesModifiees;
+    }
+
+    public List<Integer> getAjoutes() {
+        return ajoutes;
+    }
+
+    public List<Integer> getRetires() {
+        return retires;
+    }
+}
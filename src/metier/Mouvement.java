@@ -0,0 +1,39 @@
+package metier;
+
+/**
+ * Mouvement elementaire sur une solution, evalue sans etre applique.
+ *
+ * SWAP : echange le client (t1, p1) avec le client (t2, p2), t1 == t2 pour l'intra-tournee.
+ * RELOCATE : retire le client (t1, p1) et l'insere a la position p2 de la tournee t2,
+ * p2 etant compte apres le retrait.
+ * DEUX_OPT_ETOILE : echange les fins des tournees t1 et t2 (meme depot) a partir
+ * des positions p1 et p2 ; t1 garde ses p1 premiers clients suivis de la fin de t2.
+ */
+class Mouvement {
+
+    static final int SWAP = 0;
+    static final int RELOCATE = 1;
+    static final int DEUX_OPT_ETOILE = 2;
+
+    int type;
+    int t1, p1, t2, p2;
+
+    /** Variation de cout si le mouvement est applique. */
+    double delta;
+    /** Faux si le mouvement viole une contrainte (capacite, fenetres de temps). */
+    boolean realisable;
+
+    void definir(int type, int t1, int p1, int t2, int p2) {
+        this.type = type;
+        this.t1 = t1;
+        this.p1 = p1;
+        this.t2 = t2;
+        this.p2 = p2;
+    }
+
+    void copier(Mouvement m) {
+        definir(m.type, m.t1, m.p1, m.t2, m.p2);
+        delta = m.delta;
+        realisable = m.realisable;
+    }
+}
@@ -0,0 +1,241 @@
+package metier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Jeu de parametres du recuit, transportable independamment d'une instance
+ * de {@link RecuitSimule} (file de requetes, profils, bancs d'essai).
+ *
+ * Un profil est un fichier de proprietes (cles = noms des champs) ; les cles
+ * absentes gardent leur valeur par defaut. La graine n'est pas enregistree.
+ */
+public class ParametresRecuit {
+
+    private double temperatureInitiale = 200.0;
+    private double temperatureFinale = 0.1;
+    private double tauxRefroidissement = 0.9;
+    private int iterationsParTemperature = 3000;
+    private int maxIterationsSansAmelioration = 100000;
+    private Long graine;
+    private double ecartCible = 0;
+    private long budgetEliminationMs = 0;
+    private int threadsSpeculation = 1;
+    private int tailleLotSpeculation = 256;
+    private int tailleReserve = 0;
+    private long budgetRecombinaisonMs = 0;
+
+    /** Recopie les parametres courants d'un recuit. */
+    public static ParametresRecuit depuis(RecuitSimule recuit) {
+        ParametresRecuit p = new ParametresRecuit();
+        p.temperatureInitiale = recuit.getTemperatureInitiale();
+        p.temperatureFinale = recuit.getTemperatureFinale();
+        p.tauxRefroidissement = recuit.getTauxRefroidissement();
+        p.iterationsParTemperature = recuit.getIterationsParTemperature();
+        p.maxIterationsSansAmelioration = recuit.getMaxIterationsSansAmelioration();
+        p.graine = recuit.getGraine();
+        p.ecartCible = recuit.getEcartCible();
+        p.budgetEliminationMs = recuit.getEliminationTournees();
+        p.threadsSpeculation = recuit.getThreadsSpeculation();
+        p.tailleLotSpeculation = recuit.getTailleLotSpeculation();
+        if (recuit.getPoolTournees() != null) {
+            p.tailleReserve = recuit.getPoolTournees().getMaxTournees();
+            p.budgetRecombinaisonMs = recuit.getBudgetRecombinaisonMs();
+        }
+        return p;
+    }
+
+    /**
+     * Applique ces parametres a un recuit. Une reserve de tournees neuve est creee
+     * pour chaque recuit (flottes homogenes seulement, ignoree sinon).
+     */
+    public void appliquer(RecuitSimule recuit) {
+        recuit.setTemperatureInitiale(temperatureInitiale);
+        recuit.setTemperatureFinale(temperatureFinale);
+        recuit.setTauxRefroidissement(tauxRefroidissement);
+        recuit.setIterationsParTemperature(iterationsParTemperature);
+        recuit.setMaxIterationsSansAmelioration(maxIterationsSansAmelioration);
+        if (graine != null)
+            recuit.setGraine(graine);
+        recuit.setEcartCible(ecartCible);
+        recuit.setEliminationTournees(budgetEliminationMs);
+        recuit.setEvaluationSpeculative(threadsSpeculation, tailleLotSpeculation);
+        DonneesVRP donnees = recuit.getDonnees();
+        if (tailleReserve > 0 && donnees.estFlotteHomogene())
+            recuit.setPoolTournees(new PoolTournees(donnees, tailleReserve), budgetRecombinaisonMs);
+        else
+            recuit.setPoolTournees(null, 0);
+    }
+
+    // ====================================================================
+    // PROFIL
+    // ====================================================================
+
+    /** Lit un profil ecrit par {@link #ecrire}. */
+    public static ParametresRecuit charger(Path fichier) throws IOException {
+        Properties pr = new Properties();
+        try (Reader r = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            pr.load(r);
+        }
+        ParametresRecuit p = new ParametresRecuit();
+        try {
+            p.temperatureInitiale = reel(pr, "temperatureInitiale", p.temperatureInitiale);
+            p.temperatureFinale = reel(pr, "temperatureFinale", p.temperatureFinale);
+            p.tauxRefroidissement = reel(pr, "tauxRefroidissement", p.tauxRefroidissement);
+            p.iterationsParTemperature = (int) reel(pr, "iterationsParTemperature", p.iterationsParTemperature);
+            p.maxIterationsSansAmelioration = (int) reel(pr, "maxIterationsSansAmelioration",
+                    p.maxIterationsSansAmelioration);
+            p.ecartCible = reel(pr, "ecartCible", p.ecartCible);
+            p.budgetEliminationMs = (long) reel(pr, "budgetEliminationMs", p.budgetEliminationMs);
+            p.threadsSpeculation = (int) reel(pr, "threadsSpeculation", p.threadsSpeculation);
+            p.tailleLotSpeculation = (int) reel(pr, "tailleLotSpeculation", p.tailleLotSpeculation);
+            p.tailleReserve = (int) reel(pr, "tailleReserve", p.tailleReserve);
+            p.budgetRecombinaisonMs = (long) reel(pr, "budgetRecombinaisonMs", p.budgetRecombinaisonMs);
+        } catch (NumberFormatException e) {
+            throw new IOException("Profil invalide " + fichier + ": " + e.getMessage(), e);
+        }
+        if (p.temperatureInitiale <= p.temperatureFinale || p.tauxRefroidissement <= 0
+                || p.tauxRefroidissement >= 1 || p.iterationsParTemperature <= 0
+                || p.tailleLotSpeculation < 1)
+            throw new IOException("Profil incoherent " + fichier);
+        return p;
+    }
+
+    /** Ecrit ces parametres (sauf la graine) comme profil, avec un commentaire d'en-tete. */
+    public void ecrire(Path fichier, String commentaire) throws IOException {
+        Properties pr = new Properties();
+        pr.setProperty("temperatureInitiale", Double.toString(temperatureInitiale));
+        pr.setProperty("temperatureFinale", Double.toString(temperatureFinale));
+        pr.setProperty("tauxRefroidissement", Double.toString(tauxRefroidissement));
+        pr.setProperty("iterationsParTemperature", Integer.toString(iterationsParTemperature));
+        pr.setProperty("maxIterationsSansAmelioration", Integer.toString(maxIterationsSansAmelioration));
+        pr.setProperty("ecartCible", Double.toString(ecartCible));
+        pr.setProperty("budgetEliminationMs", Long.toString(budgetEliminationMs));
+        pr.setProperty("threadsSpeculation", Integer.toString(threadsSpeculation));
+        pr.setProperty("tailleLotSpeculation", Integer.toString(tailleLotSpeculation));
+        pr.setProperty("tailleReserve", Integer.toString(tailleReserve));
+        pr.setProperty("budgetRecombinaisonMs", Long.toString(budgetRecombinaisonMs));
+        try (Writer w = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            pr.store(w, commentaire);
+        }
+    }
+
+    private static double reel(Properties pr, String cle, double defaut) {
+        String v = pr.getProperty(cle);
+        return (v == null) ? defaut : Double.parseDouble(v.trim());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "T0=%.4g Tf=%.4g alpha=%.4f iterations=%d stagnation=%d",
+                temperatureInitiale, temperatureFinale, tauxRefroidissement,
+                iterationsParTemperature, maxIterationsSansAmelioration);
+    }
+
+    // --- Getters / Setters ---
+
+    public double getTemperatureInitiale() {
+        return temperatureInitiale;
+    }
+
+    public void setTemperatureInitiale(double t) {
+        this.temperatureInitiale = t;
+    }
+
+    public double getTemperatureFinale() {
+        return temperatureFinale;
+    }
+
+    public void setTemperatureFinale(double t) {
+        this.temperatureFinale = t;
+    }
+
+    public double getTauxRefroidissement() {
+        return tauxRefroidissement;
+    }
+
+    public void setTauxRefroidissement(double t) {
+        this.tauxRefroidissement = t;
+    }
+
+    public int getIterationsParTemperature() {
+        return iterationsParTemperature;
+    }
+
+    public void setIterationsParTemperature(int i) {
+        this.iterationsParTemperature = i;
+    }
+
+    public int getMaxIterationsSansAmelioration() {
+        return maxIterationsSansAmelioration;
+    }
+
+    public void setMaxIterationsSansAmelioration(int i) {
+        this.maxIterationsSansAmelioration = i;
+    }
+
+    /** Graine du recuit, null = graine aleatoire a chaque execution. */
+    public Long getGraine() {
+        return graine;
+    }
+
+    public void setGraine(Long g) {
+        this.graine = g;
+    }
+
+    /** Ecart cible (%) a la borne inferieure pour l'arret anticipe, 0 = desactive. */
+    public double getEcartCible() {
+        return ecartCible;
+    }
+
+    public void setEcartCible(double e) {
+        this.ecartCible = e;
+    }
+
+    /** Budget (ms) de la phase d'elimination de tournees avant le recuit, 0 = desactivee. */
+    public long getBudgetEliminationMs() {
+        return budgetEliminationMs;
+    }
+
+    public void setBudgetEliminationMs(long ms) {
+        this.budgetEliminationMs = ms;
+    }
+
+    /** Threads de l'evaluation speculative a basse temperature, 1 = desactivee. */
+    public int getThreadsSpeculation() {
+        return threadsSpeculation;
+    }
+
+    /** Taille des lots de propositions evalues en mode speculatif. */
+    public int getTailleLotSpeculation() {
+        return tailleLotSpeculation;
+    }
+
+    public void setEvaluationSpeculative(int nbThreads, int tailleLot) {
+        if (tailleLot < 1)
+            throw new IllegalArgumentException("Taille de lot invalide : " + tailleLot);
+        this.threadsSpeculation = nbThreads;
+        this.tailleLotSpeculation = tailleLot;
+    }
+
+    /** Capacite de la reserve de tournees (PoolTournees), 0 = pas de reserve. */
+    public int getTailleReserve() {
+        return tailleReserve;
+    }
+
+    /** Budget (ms) de la recombinaison finale sur la reserve, 0 = collecte seule. */
+    public long getBudgetRecombinaisonMs() {
+        return budgetRecombinaisonMs;
+    }
+
+    public void setReserve(int taille, long budgetRecombinaisonMs) {
+        this.tailleReserve = taille;
+        this.budgetRecombinaisonMs = budgetRecombinaisonMs;
+    }
+}
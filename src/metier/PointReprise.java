@@ -0,0 +1,167 @@
+package metier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Point de reprise du recuit, pris entre deux paliers de temperature : solutions
+ * courante et meilleure, temperature du prochain palier, compteurs, parametres
+ * de refroidissement, graine et etat du generateur aleatoire.
+ *
+ * Format binaire (DataOutputStream) : entete, scalaires, etat du Random
+ * serialise, puis chaque solution (cout, nombre de tournees, tailles et clients).
+ * Le fichier pouvant venir de l'utilisateur, la relecture du Random n'accepte que
+ * java.util.Random et ses champs primitifs (filtre de deserialisation).
+ * L'ecriture passe par un fichier temporaire renomme atomiquement : un arret
+ * brutal laisse toujours le point precedent intact.
+ */
+public class PointReprise {
+
+    private static final int MAGIC = 0x56525052; // "VRPR"
+    private static final int VERSION = 2;
+    /** Taille maximale de l'etat serialise du generateur (quelques dizaines d'octets en pratique). */
+    private static final int TAILLE_MAX_ETAT = 1024;
+    /** Seule classe admise a la relecture de l'etat du generateur. */
+    private static final ObjectInputFilter FILTRE_ALEATOIRE = ObjectInputFilter.Config.createFilter(
+            "maxdepth=2;maxrefs=16;maxbytes=" + TAILLE_MAX_ETAT + ";java.util.Random;!*");
+
+    int nbClients;
+    Solution courante;
+    Solution meilleure;
+    double temperature;
+    int iteration;
+    int sansAmelioration;
+    int limiteSansAmelioration;
+    double temperatureFinale;
+    double tauxRefroidissement;
+    int iterationsParTemperature;
+    long graine;
+    byte[] etatAleatoire;
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public double getMeilleurCout() {
+        return meilleure.cout;
+    }
+
+    // ====================================================================
+    // GENERATEUR ALEATOIRE
+    // ====================================================================
+
+    static byte[] capturer(Random random) {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(random);
+        } catch (IOException e) {
+            throw new IllegalStateException("Etat du generateur non serialisable", e);
+        }
+        return octets.toByteArray();
+    }
+
+    Random restaurerAleatoire() throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(etatAleatoire))) {
+            in.setObjectInputFilter(FILTRE_ALEATOIRE);
+            return (Random) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Etat du generateur invalide", e);
+        }
+    }
+
+    // ====================================================================
+    // LECTURE / ECRITURE
+    // ====================================================================
+
+    /** Ecrit le point dans fichier.tmp puis le renomme atomiquement en fichier. */
+    public void ecrire(Path fichier) throws IOException {
+        Path tmp = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nbClients);
+            out.writeDouble(temperature);
+            out.writeInt(iteration);
+            out.writeInt(sansAmelioration);
+            out.writeInt(limiteSansAmelioration);
+            out.writeDouble(temperatureFinale);
+            out.writeDouble(tauxRefroidissement);
+            out.writeInt(iterationsParTemperature);
+            out.writeLong(graine);
+            out.writeInt(etatAleatoire.length);
+            out.write(etatAleatoire);
+            ecrireSolution(out, courante);
+            ecrireSolution(out, meilleure);
+        }
+        Files.move(tmp, fichier, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static PointReprise lire(Path fichier) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(fichier)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Fichier de reprise invalide : " + fichier);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Version de reprise non supportee : " + version);
+            PointReprise p = new PointReprise();
+            p.nbClients = in.readInt();
+            p.temperature = in.readDouble();
+            p.iteration = in.readInt();
+            p.sansAmelioration = in.readInt();
+            p.limiteSansAmelioration = in.readInt();
+            p.temperatureFinale = in.readDouble();
+            p.tauxRefroidissement = in.readDouble();
+            p.iterationsParTemperature = in.readInt();
+            p.graine = in.readLong();
+            int tailleEtat = in.readInt();
+            if (tailleEtat < 0 || tailleEtat > TAILLE_MAX_ETAT)
+                throw new IOException("Etat du generateur invalide (" + tailleEtat + " octets) : " + fichier);
+            p.etatAleatoire = new byte[tailleEtat];
+            in.readFully(p.etatAleatoire);
+            p.courante = lireSolution(in);
+            p.meilleure = lireSolution(in);
+            return p;
+        }
+    }
+
+    private static void ecrireSolution(DataOutputStream out, Solution s) throws IOException {
+        out.writeDouble(s.cout);
+        out.writeInt(s.tournees.size());
+        for (List<Integer> route : s.tournees) {
+            out.writeInt(route.size());
+            for (int c : route)
+                out.writeInt(c);
+        }
+    }
+
+    private static Solution lireSolution(DataInputStream in) throws IOException {
+        double cout = in.readDouble();
+        Solution s = new Solution(in.readInt());
+        for (List<Integer> route : s.tournees) {
+            int taille = in.readInt();
+            for (int k = 0; k < taille; k++)
+                route.add(in.readInt());
+        }
+        s.cout = cout;
+        return s;
+    }
+}
@@ -0,0 +1,189 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reserve de tournees realisables rencontrees pendant la recherche, sans doublon.
+ *
+ * Une tournee est identifiee par l'ensemble de ses clients (bitset de n+1 bits) :
+ * pour un meme ensemble on ne garde que l'ordre de visite le moins cher. La reserve
+ * est bornee ; une fois pleine, seules les ameliorations d'ensembles connus entrent.
+ * Couts calcules pour le vehicule 0 : reserve reservee aux flottes homogenes.
+ * Thread-safe (plusieurs recuits peuvent alimenter la meme reserve).
+ */
+public class PoolTournees {
+
+    private final DonneesVRP donnees;
+    private final int maxTournees;
+    private final int nbMots;
+    private final RecuitSimule outils;
+
+    private final Map<Cle, Integer> index = new HashMap<>();
+    private final List<int[]> tournees = new ArrayList<>();
+    private final List<long[]> ensembles = new ArrayList<>();
+    private double[] couts = new double[256];
+    /** Colonnes de la meilleure solution complete versee dans la reserve. */
+    private int[] meilleureSolution;
+    private double coutMeilleureSolution = Double.MAX_VALUE;
+
+    /** Bitset des clients, compare par contenu. */
+    private static final class Cle {
+        final long[] bits;
+        final int hash;
+
+        Cle(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Cle && Arrays.equals(bits, ((Cle) o).bits);
+        }
+    }
+
+    public PoolTournees(DonneesVRP donnees, int maxTournees) {
+        this.donnees = donnees;
+        this.maxTournees = maxTournees;
+        this.nbMots = (donnees.getNbClients() >> 6) + 1;
+        this.outils = new RecuitSimule(donnees);
+    }
+
+    /** Nombre maximal de tournees conservees. */
+    public int getMaxTournees() {
+        return maxTournees;
+    }
+
+    public synchronized int taille() {
+        return tournees.size();
+    }
+
+    synchronized int[] getTournee(int i) {
+        return tournees.get(i);
+    }
+
+    synchronized long[] getEnsemble(int i) {
+        return ensembles.get(i);
+    }
+
+    synchronized double getCout(int i) {
+        return couts[i];
+    }
+
+    /** Remplace l'ordre de visite d'une tournee par un ordre moins cher (meme ensemble). */
+    synchronized void remplacer(int i, int[] route, double cout) {
+        if (cout < couts[i]) {
+            tournees.set(i, route);
+            couts[i] = cout;
+        }
+    }
+
+    // ====================================================================
+    // AJOUT
+    // ====================================================================
+
+    /**
+     * Ajoute toutes les tournees non vides d'une solution ; si toutes sont dans la
+     * reserve, la solution devient la meilleure connue lorsqu'elle est moins chere.
+     */
+    public synchronized void ajouterSolution(Solution s) {
+        List<Integer> colonnes = new ArrayList<>();
+        double total = 0;
+        for (List<Integer> route : s.tournees) {
+            if (route.isEmpty())
+                continue;
+            int i = ajouterIndice(route);
+            if (i < 0) {
+                colonnes = null;
+                continue;
+            }
+            if (colonnes != null) {
+                colonnes.add(i);
+                total += couts[i];
+            }
+        }
+        if (colonnes != null && total < coutMeilleureSolution) {
+            coutMeilleureSolution = total;
+            meilleureSolution = colonnes.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /** Colonnes de la meilleure solution complete connue (null si aucune). */
+    synchronized int[] getMeilleureSolution() {
+        return meilleureSolution;
+    }
+
+    /**
+     * Ajoute une tournee si elle est realisable (capacite, fenetres de temps) et
+     * nouvelle, ou remplace la tournee connue sur le meme ensemble si elle est moins
+     * chere. Retourne vrai si l'ensemble est dans la reserve.
+     */
+    public synchronized boolean ajouter(List<Integer> route) {
+        return ajouterIndice(route) >= 0;
+    }
+
+    /** Indice de la tournee dans la reserve apres ajout, -1 si irrealisable ou reserve pleine. */
+    private int ajouterIndice(List<Integer> route) {
+        if (route.isEmpty())
+            return -1;
+        int[] demandes = donnees.getDemandes();
+        long[] bits = new long[nbMots];
+        int charge = 0;
+        for (int c : route) {
+            charge += demandes[c - 1];
+            bits[c >> 6] |= 1L << c;
+        }
+        if (charge > donnees.getCapacite(0)
+                || (donnees.aFenetresTemps() && !outils.respecteFenetres(route, 0)))
+            return -1;
+        double cout = cout(route);
+
+        Cle cle = new Cle(bits);
+        Integer i = index.get(cle);
+        if (i != null) {
+            if (cout < couts[i] - 1e-9) {
+                tournees.set(i, versTableau(route));
+                couts[i] = cout;
+            }
+            return i;
+        }
+        if (tournees.size() >= maxTournees)
+            return -1;
+        int n = tournees.size();
+        if (n == couts.length)
+            couts = Arrays.copyOf(couts, 2 * n);
+        couts[n] = cout;
+        tournees.add(versTableau(route));
+        ensembles.add(bits);
+        index.put(cle, n);
+        return n;
+    }
+
+    private double cout(List<Integer> route) {
+        int depot = donnees.getDepotVehicule(0);
+        double longueur = 0;
+        int prec = depot;
+        for (int c : route) {
+            longueur += donnees.distance(prec, c);
+            prec = c;
+        }
+        longueur += donnees.distance(prec, depot);
+        return donnees.getCoutKm(0) * longueur + donnees.getCoutFixe(0);
+    }
+
+    private static int[] versTableau(List<Integer> route) {
+        int[] t = new int[route.size()];
+        for (int k = 0; k < t.length; k++)
+            t[k] = route.get(k);
+        return t;
+    }
+}
@@ -0,0 +1,452 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recherche tabou granulaire, moteur alternatif au {@link RecuitSimule}.
+ *
+ * A chaque iteration tout le voisinage restreint par les listes de voisins est
+ * evalue : pour chaque client c et chaque voisin v, relocate de c avant et apres v,
+ * swap de c et v, 2-opt* creant l'arc (c, v), plus le relocate de c dans une
+ * tournee vide. Le meilleur mouvement admissible est applique, meme s'il degrade.
+ *
+ * Memoire tabou : attribut (client, tournee) = iteration jusqu'a laquelle le client
+ * ne peut pas revenir dans une tournee qu'il vient de quitter. Tableau d'entiers
+ * indexe directement si (n+1) x nbTournees est petit, par hachage sinon (une
+ * collision rend seulement un mouvement tabou a tort). Aspiration : un mouvement
+ * tabou est admis s'il ameliore la meilleure solution connue. Si tout est tabou,
+ * le meilleur mouvement tabou est applique.
+ *
+ * L'evaluation est repartie par blocs de tournees sur nbThreads ; le mouvement
+ * retenu (premier minimum dans l'ordre des tournees) ne depend pas du nombre de threads.
+ */
+public class RechercheTabou {
+
+    /** Taille maximale de la memoire tabou indexee directement. */
+    private static final int TAILLE_MAX_DIRECTE = 1 << 22;
+
+    private final DonneesVRP donnees;
+    private long graine = new Random().nextLong();
+    private Random random = new Random(graine);
+
+    // --- Parametres ---
+    private int nbVoisins = 20;
+    private int maxIterations = 10000;
+    private int maxIterationsSansAmelioration = 2000;
+    private int tenureMin = 10;
+    private int tenureMax = 25;
+    private int nbThreads = 1;
+    private int frequenceAffichage = 50;
+
+    // --- Controle d'execution ---
+    private volatile boolean arretDemande = false;
+    private long dateLimiteNanos = 0;
+    private RecuitSimule.RecuitListener listener;
+    private TraceAnytime trace = new TraceAnytime();
+    private long debutExecution;
+
+    // --- Etat de la recherche ---
+    private EtatTournees etat;
+    private int[][] voisins;
+    private int[] tourneeDe;
+    private int[] positionDe;
+    private int[] tabou;
+    private int nbTournees;
+    private boolean tabouDirect;
+    private int masqueTabou;
+    private int iteration;
+    private double meilleurCout;
+    private final List<Integer> tourneesVides = new ArrayList<>();
+
+    /** Meilleurs mouvements trouves par un bloc de tournees. */
+    private static final class Meilleurs {
+        final Mouvement essai = new Mouvement();
+        final Mouvement admis = new Mouvement();
+        final Mouvement tabou = new Mouvement();
+        boolean aAdmis;
+        boolean aTabou;
+    }
+
+    public RechercheTabou(DonneesVRP donnees) {
+        this.donnees = donnees;
+    }
+
+    public void setListener(RecuitSimule.RecuitListener l) {
+        this.listener = l;
+    }
+
+    public long getGraine() {
+        return graine;
+    }
+
+    /** Fixe la graine (utilisee seulement pour tirer la duree des interdictions). */
+    public void setGraine(long graine) {
+        this.graine = graine;
+        this.random = new Random(graine);
+    }
+
+    public TraceAnytime getTrace() {
+        return trace;
+    }
+
+    /** Iterations effectuees par la derniere recherche. */
+    public int getNbIterations() {
+        return iteration;
+    }
+
+    public int getNbVoisins() {
+        return nbVoisins;
+    }
+
+    public void setNbVoisins(int k) {
+        this.nbVoisins = k;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int i) {
+        this.maxIterations = i;
+    }
+
+    public int getMaxIterationsSansAmelioration() {
+        return maxIterationsSansAmelioration;
+    }
+
+    public void setMaxIterationsSansAmelioration(int i) {
+        this.maxIterationsSansAmelioration = i;
+    }
+
+    /** Duree d'interdiction tiree uniformement dans [min, max] a chaque mouvement. */
+    public void setTenure(int min, int max) {
+        if (min < 1 || max < min)
+            throw new IllegalArgumentException("Tenure invalide : [" + min + ", " + max + "]");
+        this.tenureMin = min;
+        this.tenureMax = max;
+    }
+
+    public int getNbThreads() {
+        return nbThreads;
+    }
+
+    public void setNbThreads(int n) {
+        this.nbThreads = Math.max(1, n);
+    }
+
+    public void setFrequenceAffichage(int f) {
+        this.frequenceAffichage = f;
+    }
+
+    /** Voir {@link RecuitSimule#setDateLimiteNanos(long)}. */
+    public void setDateLimiteNanos(long dateLimite) {
+        this.dateLimiteNanos = dateLimite;
+    }
+
+    public void arreter() {
+        this.arretDemande = true;
+    }
+
+    private boolean doitArreter() {
+        return arretDemande || (dateLimiteNanos != 0 && System.nanoTime() - dateLimiteNanos >= 0);
+    }
+
+    // ====================================================================
+    // ALGORITHME PRINCIPAL
+    // ====================================================================
+
+    /** Construit la solution du plus proche voisin puis lance la recherche. */
+    public Solution executer() {
+        RecuitSimule outils = new RecuitSimule(donnees);
+        Solution depart = outils.genererSolutionInitiale();
+        System.out.printf("Solution initiale: %.2f%n", depart.cout);
+        return ameliorer(depart);
+    }
+
+    /** Recherche tabou depuis une solution existante (non modifiee). */
+    public Solution ameliorer(Solution depart) {
+        random = new Random(graine);
+        trace = new TraceAnytime();
+        debutExecution = System.nanoTime();
+        System.out.println("Graine: " + graine);
+        RecuitSimule outils = new RecuitSimule(donnees);
+
+        Solution courante = depart.copier();
+        etat = new EtatTournees(donnees, courante);
+        nbTournees = courante.tournees.size();
+        initialiserVoisins();
+        initialiserTabou();
+        int n = donnees.getNbClients();
+        tourneeDe = new int[n + 1];
+        positionDe = new int[n + 1];
+        for (int t = 0; t < nbTournees; t++)
+            indexer(t);
+
+        Solution meilleure = courante.copier();
+        meilleurCout = courante.cout;
+        trace.ajouter(System.nanoTime() - debutExecution, 0, meilleurCout);
+
+        ExecutorService pool = null;
+        if (nbThreads > 1) {
+            AtomicInteger numero = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(nbThreads - 1, r -> {
+                Thread th = new Thread(r, "tabou-" + numero.incrementAndGet());
+                th.setDaemon(true);
+                return th;
+            });
+        }
+        Meilleurs[] blocs = new Meilleurs[nbThreads];
+        for (int b = 0; b < nbThreads; b++)
+            blocs[b] = new Meilleurs();
+
+        try {
+            iteration = 0;
+            int sansAmelioration = 0;
+            while (iteration < maxIterations && sansAmelioration < maxIterationsSansAmelioration
+                    && !doitArreter()) {
+                iteration++;
+                sansAmelioration++;
+
+                Mouvement m = meilleurMouvement(blocs, pool);
+                if (m == null)
+                    break;
+                appliquer(m);
+
+                if (courante.cout < meilleurCout - 1e-9) {
+                    meilleure = courante.copier();
+                    meilleurCout = courante.cout;
+                    sansAmelioration = 0;
+                    trace.ajouter(System.nanoTime() - debutExecution, iteration, meilleurCout);
+                    if (listener != null) {
+                        listener.onNouveauMeilleur(iteration, meilleurCout, 0,
+                                outils.compterVehicules(meilleure));
+                        listener.onSolutionMiseAJour(meilleure);
+                    }
+                }
+                if (listener != null && iteration % frequenceAffichage == 0)
+                    listener.onMiseAJour(iteration, 0, meilleurCout, outils.compterVehicules(meilleure));
+            }
+        } finally {
+            if (pool != null)
+                pool.shutdownNow();
+        }
+
+        // Recherche locale 2-opt finale (cout recalcule sans derive)
+        meilleure = outils.rechercheLocale2Opt(meilleure);
+        meilleure.graine = graine;
+        trace.ajouter(System.nanoTime() - debutExecution, iteration, meilleure.cout);
+        meilleure.trace = trace;
+        System.out.printf("Resultat final: %.2f (%d iterations)%n", meilleure.cout, iteration);
+        if (listener != null) {
+            listener.onNouveauMeilleur(iteration, meilleure.cout, 0, outils.compterVehicules(meilleure));
+            listener.onSolutionMiseAJour(meilleure);
+        }
+        return meilleure;
+    }
+
+    private void initialiserVoisins() {
+        ListesVoisins listes = donnees.getListesVoisins(nbVoisins);
+        int n = donnees.getNbClients();
+        voisins = new int[n + 1][];
+        for (int c = 1; c <= n; c++)
+            voisins[c] = listes.getVoisins(c);
+    }
+
+    private void initialiserTabou() {
+        long taille = (long) (donnees.getNbClients() + 1) * nbTournees;
+        tabouDirect = taille <= TAILLE_MAX_DIRECTE;
+        if (tabouDirect) {
+            tabou = new int[(int) taille];
+        } else {
+            tabou = new int[TAILLE_MAX_DIRECTE];
+            masqueTabou = TAILLE_MAX_DIRECTE - 1;
+        }
+    }
+
+    private void indexer(int t) {
+        List<Integer> route = etat.solution.tournees.get(t);
+        for (int p = 0; p < route.size(); p++) {
+            int c = route.get(p);
+            tourneeDe[c] = t;
+            positionDe[c] = p;
+        }
+    }
+
+    // ====================================================================
+    // MEMOIRE TABOU
+    // ====================================================================
+
+    private int indiceTabou(int client, int tournee) {
+        long cle = (long) client * nbTournees + tournee;
+        if (tabouDirect)
+            return (int) cle;
+        cle *= 0x9E3779B97F4A7C15L;
+        return (int) (cle ^ (cle >>> 32)) & masqueTabou;
+    }
+
+    /** Vrai si le client ne peut pas (encore) entrer dans la tournee. */
+    private boolean estTabou(int client, int tournee) {
+        return tabou[indiceTabou(client, tournee)] > iteration;
+    }
+
+    private void interdire(int client, int tournee) {
+        int tenure = tenureMin + random.nextInt(tenureMax - tenureMin + 1);
+        tabou[indiceTabou(client, tournee)] = iteration + tenure;
+    }
+
+    /** Vrai si le mouvement ramene un client dans une tournee interdite. */
+    private boolean estTabou(Mouvement m) {
+        List<Integer> r1 = etat.solution.tournees.get(m.t1);
+        List<Integer> r2 = etat.solution.tournees.get(m.t2);
+        if (m.type == Mouvement.RELOCATE)
+            return estTabou(r1.get(m.p1), m.t2);
+        if (m.type == Mouvement.SWAP)
+            return estTabou(r1.get(m.p1), m.t2) || estTabou(r2.get(m.p2), m.t1);
+        return (m.p1 < r1.size() && estTabou(r1.get(m.p1), m.t2))
+                || (m.p2 < r2.size() && estTabou(r2.get(m.p2), m.t1));
+    }
+
+    // ====================================================================
+    // VOISINAGE
+    // ====================================================================
+
+    /**
+     * Evalue tout le voisinage granulaire et retourne le meilleur mouvement admissible
+     * (a defaut le meilleur tabou), null si aucun mouvement n'est realisable.
+     */
+    private Mouvement meilleurMouvement(Meilleurs[] blocs, ExecutorService pool) {
+        listerTourneesVides();
+
+        // Bornes des blocs equilibrees sur le nombre de clients
+        int nbBlocs = blocs.length;
+        int[] bornes = new int[nbBlocs + 1];
+        int n = donnees.getNbClients(), cumul = 0, b = 1;
+        for (int t = 0; t < nbTournees && b < nbBlocs; t++) {
+            cumul += etat.solution.tournees.get(t).size();
+            while (b < nbBlocs && cumul >= (long) n * b / nbBlocs)
+                bornes[b++] = t + 1;
+        }
+        while (b <= nbBlocs)
+            bornes[b++] = nbTournees;
+
+        if (pool == null) {
+            evaluerBloc(bornes[0], bornes[1], blocs[0]);
+        } else {
+            List<Future<?>> taches = new ArrayList<>();
+            for (int k = 1; k < nbBlocs; k++) {
+                int debut = bornes[k], fin = bornes[k + 1];
+                Meilleurs res = blocs[k];
+                taches.add(pool.submit(() -> evaluerBloc(debut, fin, res)));
+            }
+            evaluerBloc(bornes[0], bornes[1], blocs[0]);
+            try {
+                for (Future<?> f : taches)
+                    f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Recherche tabou interrompue", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Echec de l'evaluation du voisinage", e.getCause());
+            }
+        }
+
+        // Reduction dans l'ordre des blocs : premier minimum strict
+        Mouvement admis = null, tabouMin = null;
+        for (Meilleurs res : blocs) {
+            if (res.aAdmis && (admis == null || res.admis.delta < admis.delta))
+                admis = res.admis;
+            if (res.aTabou && (tabouMin == null || res.tabou.delta < tabouMin.delta))
+                tabouMin = res.tabou;
+        }
+        return (admis != null) ? admis : tabouMin;
+    }
+
+    /** Une tournee vide par depot, candidate pour y deplacer un client. */
+    private void listerTourneesVides() {
+        tourneesVides.clear();
+        for (int t = 0; t < nbTournees; t++) {
+            if (!etat.solution.tournees.get(t).isEmpty())
+                continue;
+            boolean dejaVu = false;
+            for (int v : tourneesVides)
+                if (donnees.getDepotVehicule(v) == donnees.getDepotVehicule(t)
+                        && donnees.getCapacite(v) == donnees.getCapacite(t))
+                    dejaVu = true;
+            if (!dejaVu)
+                tourneesVides.add(t);
+        }
+    }
+
+    /** Evalue les mouvements des clients des tournees [debut, fin). */
+    private void evaluerBloc(int debut, int fin, Meilleurs res) {
+        res.aAdmis = false;
+        res.aTabou = false;
+        for (int t = debut; t < fin; t++) {
+            List<Integer> route = etat.solution.tournees.get(t);
+            for (int p = 0; p < route.size(); p++) {
+                int c = route.get(p);
+                for (int v : voisins[c]) {
+                    int tv = tourneeDe[v], pv = positionDe[v];
+                    // Relocate avant / apres v (position comptee apres retrait de c)
+                    int avantV = (tv == t && p < pv) ? pv - 1 : pv;
+                    if (tv != t || avantV != p)
+                        considerer(Mouvement.RELOCATE, t, p, tv, avantV, res);
+                    if (tv != t || avantV + 1 != p)
+                        considerer(Mouvement.RELOCATE, t, p, tv, avantV + 1, res);
+                    considerer(Mouvement.SWAP, t, p, tv, pv, res);
+                    if (tv != t)
+                        considerer(Mouvement.DEUX_OPT_ETOILE, t, p + 1, tv, pv, res);
+                }
+                if (route.size() > 1)
+                    for (int tv : tourneesVides)
+                        considerer(Mouvement.RELOCATE, t, p, tv, 0, res);
+            }
+        }
+    }
+
+    private void considerer(int type, int t1, int p1, int t2, int p2, Meilleurs res) {
+        Mouvement m = res.essai;
+        m.definir(type, t1, p1, t2, p2);
+        etat.evaluer(m);
+        if (!m.realisable)
+            return;
+        boolean interdit = estTabou(m) && etat.solution.cout + m.delta >= meilleurCout - 1e-9;
+        if (!interdit) {
+            if (!res.aAdmis || m.delta < res.admis.delta) {
+                res.admis.copier(m);
+                res.aAdmis = true;
+            }
+        } else if (!res.aTabou || m.delta < res.tabou.delta) {
+            res.tabou.copier(m);
+            res.aTabou = true;
+        }
+    }
+
+    /** Marque les attributs quittes, applique le mouvement et reindexe les tournees touchees. */
+    private void appliquer(Mouvement m) {
+        List<Integer> r1 = etat.solution.tournees.get(m.t1);
+        List<Integer> r2 = etat.solution.tournees.get(m.t2);
+        if (m.type == Mouvement.RELOCATE) {
+            interdire(r1.get(m.p1), m.t1);
+        } else if (m.type == Mouvement.SWAP) {
+            interdire(r1.get(m.p1), m.t1);
+            interdire(r2.get(m.p2), m.t2);
+        } else {
+            if (m.p1 < r1.size())
+                interdire(r1.get(m.p1), m.t1);
+            if (m.p2 < r2.size())
+                interdire(r2.get(m.p2), m.t2);
+        }
+        etat.appliquer(m);
+        indexer(m.t1);
+        if (m.t2 != m.t1)
+            indexer(m.t2);
+    }
+}
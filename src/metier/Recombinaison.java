@@ -0,0 +1,349 @@
+package metier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recombinaison par partitionnement d'ensembles sur un {@link PoolTournees} :
+ * choisir des tournees de la reserve couvrant chaque client exactement une fois,
+ * au plus nbVehicules tournees, de cout minimal.
+ *
+ * Resolution par separation et evaluation, sans solveur externe, en recherche a
+ * divergences limitees : le passage d numero d autorise au plus d choix autres que
+ * la meilleure colonne compatible le long d'un chemin (d = 0 : plongee gloutonne).
+ * Un passage sans branche coupee par la limite est exhaustif : la partition est optimale.
+ * - Branchement sur le client non couvert ayant le moins de tournees encore
+ *   compatibles avec les tournees choisies (arret immediat si un client n'en a plus),
+ *   tournees essayees par cout par client croissant
+ * - Relaxation lagrangienne des contraintes de couverture (multiplicateurs u par client,
+ *   sous-gradient) : borne proche de la relaxation continue, et elimination des
+ *   colonnes de cout reduit superieur a l'ecart entre la solution de depart et la borne
+ * - Evaluation d'un noeud : cout courant + somme, sur les clients non couverts, de u
+ *   et du plus petit cout reduit par client d'une tournee compatible les contenant
+ * - Solution de depart : la meilleure entre la solution fournie (versee dans la reserve)
+ *   et la meilleure solution complete deja versee dans la reserve
+ * Arret sur budget de temps ou de noeuds : rend la meilleure partition trouvee.
+ * Les tournees de la reserve passent d'abord par le 2-opt.
+ */
+public class Recombinaison {
+
+    private final DonneesVRP donnees;
+    private final PoolTournees pool;
+    private long budgetMs = 2000;
+    private long maxNoeuds = 5_000_000;
+    private int iterationsLagrangiennes = 300;
+
+    // --- Probleme de partitionnement ---
+    private int nbColonnes;
+    private long[][] ensembles;
+    private double[] couts;
+    private double[] parts;
+    private double[] multiplicateurs;
+    private int[][] colonnesParClient;
+    private int[] tailles;
+
+    // --- Exploration ---
+    private long[] couverts;
+    private int[] choisies;
+    private int[] meilleuresColonnes;
+    private int nbMeilleures;
+    private double meilleurCout;
+    private long noeuds;
+    private long dateLimite;
+    private boolean interrompu;
+    private boolean coupe;
+
+    public Recombinaison(DonneesVRP donnees, PoolTournees pool) {
+        this.donnees = donnees;
+        this.pool = pool;
+    }
+
+    public void setBudgetMs(long ms) {
+        this.budgetMs = ms;
+    }
+
+    public void setMaxNoeuds(long n) {
+        this.maxNoeuds = n;
+    }
+
+    public long getNoeuds() {
+        return noeuds;
+    }
+
+    /** Vrai si la derniere resolution a ete interrompue (optimalite non prouvee). */
+    public boolean estInterrompu() {
+        return interrompu;
+    }
+
+    /**
+     * Retourne la meilleure partition de la reserve, au pire la solution fournie.
+     * Flotte heterogene ou multi-depot : la solution est rendue telle quelle.
+     */
+    public Solution resoudre(Solution depart) {
+        if (!donnees.estFlotteHomogene()) {
+            System.out.println("Recombinaison ignoree : flotte heterogene");
+            return depart;
+        }
+        long debut = System.nanoTime();
+        dateLimite = debut + budgetMs * 1_000_000L;
+        pool.ajouterSolution(depart);
+        polirReserve();
+        construire();
+
+        int n = donnees.getNbClients();
+        couverts = new long[(n >> 6) + 1];
+        choisies = new int[n];
+        meilleuresColonnes = null;
+        meilleurCout = depart.cout - 1e-6;
+        noeuds = 0;
+        interrompu = false;
+
+        int[] connue = pool.getMeilleureSolution();
+        if (connue != null) {
+            double cout = 0;
+            for (int j : connue)
+                cout += couts[j];
+            if (cout < meilleurCout && connue.length <= donnees.getNbVehicules()) {
+                meilleurCout = cout;
+                meilleuresColonnes = connue.clone();
+                nbMeilleures = connue.length;
+            }
+        }
+        double borne = relaxationLagrangienne();
+        int restantes = eliminerColonnes(borne);
+        System.out.printf("Recombinaison: borne lagrangienne %.2f, %d/%d colonnes conservees%n",
+                borne, restantes, nbColonnes);
+
+        int divergences = 0;
+        do {
+            coupe = false;
+            explorer(0, 0, n, divergences++);
+        } while (coupe && !interrompu);
+
+        System.out.printf("Recombinaison: %d tournees, %d noeuds, %d ms%s -> %s%n",
+                nbColonnes, noeuds, (System.nanoTime() - debut) / 1_000_000,
+                interrompu ? " (interrompue)" : "",
+                meilleuresColonnes == null ? "pas d'amelioration"
+                        : String.format("%.2f (depart %.2f)", meilleurCout, depart.cout));
+        if (meilleuresColonnes == null)
+            return depart;
+
+        Solution res = new Solution(Math.max(donnees.getNbVehicules(), nbMeilleures));
+        for (int k = 0; k < nbMeilleures; k++)
+            for (int c : pool.getTournee(meilleuresColonnes[k]))
+                res.tournees.get(k).add(c);
+        res.cout = new RecuitSimule(donnees).calculerCout(res);
+        res.graine = depart.graine;
+        res.trace = depart.trace;
+        res.borneInferieure = depart.borneInferieure;
+        return res;
+    }
+
+    /** 2-opt sur chaque tournee de la reserve (ordre remplace s'il est moins cher). */
+    private void polirReserve() {
+        RecuitSimule outils = new RecuitSimule(donnees);
+        Solution une = new Solution(1);
+        List<Integer> route = une.tournees.get(0);
+        for (int i = 0; i < pool.taille(); i++) {
+            route.clear();
+            for (int c : pool.getTournee(i))
+                route.add(c);
+            if (route.size() < 3)
+                continue;
+            outils.optimiserTournee2Opt(route, 0);
+            double cout = donnees.getCoutKm(0) * outils.longueurTournee(une, 0) + donnees.getCoutFixe(0);
+            int[] t = new int[route.size()];
+            for (int k = 0; k < t.length; k++)
+                t[k] = route.get(k);
+            pool.remplacer(i, t, cout);
+        }
+    }
+
+    /** Colonnes, cout par client de chaque colonne et listes de colonnes par client. */
+    private void construire() {
+        int n = donnees.getNbClients();
+        nbColonnes = pool.taille();
+        ensembles = new long[nbColonnes][];
+        couts = new double[nbColonnes];
+        parts = new double[nbColonnes];
+        tailles = new int[nbColonnes];
+        int[] nbParClient = new int[n + 1];
+        for (int j = 0; j < nbColonnes; j++) {
+            ensembles[j] = pool.getEnsemble(j);
+            couts[j] = pool.getCout(j);
+            int[] t = pool.getTournee(j);
+            tailles[j] = t.length;
+            for (int c : t)
+                nbParClient[c]++;
+        }
+        colonnesParClient = new int[n + 1][];
+        for (int c = 1; c <= n; c++)
+            colonnesParClient[c] = new int[nbParClient[c]];
+        int[] rempli = new int[n + 1];
+        for (int j = 0; j < nbColonnes; j++)
+            for (int c : pool.getTournee(j))
+                colonnesParClient[c][rempli[c]++] = j;
+    }
+
+    /**
+     * Sous-gradient sur L(u) = somme(u) + somme des couts reduits negatifs
+     * (cout reduit = c_j - somme des u_i de la colonne). Garde les meilleurs u.
+     */
+    private double relaxationLagrangienne() {
+        int n = donnees.getNbClients();
+        double[] u = new double[n + 1];
+        for (int c = 1; c <= n; c++) {
+            double min = Double.MAX_VALUE;
+            for (int j : colonnesParClient[c])
+                min = Math.min(min, couts[j] / tailles[j]);
+            u[c] = (min == Double.MAX_VALUE) ? 0 : min;
+        }
+        multiplicateurs = u.clone();
+        double meilleure = Double.NEGATIVE_INFINITY;
+        double pas = 2.0;
+        int sansProgres = 0;
+        int[] couverture = new int[n + 1];
+        for (int it = 0; it < iterationsLagrangiennes; it++) {
+            double valeur = 0;
+            for (int c = 1; c <= n; c++)
+                valeur += u[c];
+            Arrays.fill(couverture, 0);
+            for (int j = 0; j < nbColonnes; j++) {
+                double rc = coutReduit(j, u);
+                if (rc < 0) {
+                    valeur += rc;
+                    for (int c : pool.getTournee(j))
+                        couverture[c]++;
+                }
+            }
+            if (valeur > meilleure + 1e-9) {
+                meilleure = valeur;
+                multiplicateurs = u.clone();
+                sansProgres = 0;
+            } else if (++sansProgres >= 10) {
+                pas /= 2;
+                sansProgres = 0;
+            }
+            double norme = 0;
+            for (int c = 1; c <= n; c++)
+                norme += (1 - couverture[c]) * (1 - couverture[c]);
+            if (norme == 0 || meilleurCout - valeur <= 1e-9 || pas < 1e-4)
+                break;
+            double t = pas * (meilleurCout - valeur) / norme;
+            for (int c = 1; c <= n; c++)
+                u[c] += t * (1 - couverture[c]);
+        }
+        return meilleure;
+    }
+
+    private double coutReduit(int j, double[] u) {
+        double rc = couts[j];
+        for (int c : pool.getTournee(j))
+            rc -= u[c];
+        return rc;
+    }
+
+    /**
+     * Retire des listes les colonnes dont le cout reduit depasse meilleurCout - borne
+     * (elles ne peuvent figurer dans une partition meilleure), puis trie les autres
+     * par cout reduit par client croissant. Retourne le nombre de colonnes conservees.
+     */
+    private int eliminerColonnes(double borne) {
+        double marge = meilleurCout - borne;
+        boolean[] gardee = new boolean[nbColonnes];
+        int restantes = 0;
+        for (int j = 0; j < nbColonnes; j++) {
+            double rc = coutReduit(j, multiplicateurs);
+            parts[j] = rc / tailles[j];
+            gardee[j] = rc < marge;
+            if (gardee[j])
+                restantes++;
+        }
+        for (int c = 1; c < colonnesParClient.length; c++) {
+            Integer[] tri = Arrays.stream(colonnesParClient[c]).filter(j -> gardee[j])
+                    .boxed().toArray(Integer[]::new);
+            Arrays.sort(tri, (a, b) -> Double.compare(parts[a], parts[b]));
+            int[] cols = new int[tri.length];
+            for (int k = 0; k < cols.length; k++)
+                cols[k] = tri[k];
+            colonnesParClient[c] = cols;
+        }
+        return restantes;
+    }
+
+    private void explorer(int profondeur, double cout, int nonCouverts, int divergences) {
+        if (interrompu)
+            return;
+        if ((++noeuds & 1023) == 0 && (noeuds > maxNoeuds || System.nanoTime() - dateLimite >= 0)) {
+            interrompu = true;
+            return;
+        }
+        if (nonCouverts == 0) {
+            if (cout < meilleurCout) {
+                meilleurCout = cout;
+                meilleuresColonnes = Arrays.copyOf(choisies, profondeur);
+                nbMeilleures = profondeur;
+            }
+            return;
+        }
+        if (profondeur >= donnees.getNbVehicules())
+            return;
+
+        // Client le plus contraint et evaluation sur les colonnes compatibles
+        int client = -1, minCompte = Integer.MAX_VALUE;
+        double borne = cout;
+        for (int c = 1; c < colonnesParClient.length; c++) {
+            if ((couverts[c >> 6] & (1L << c)) != 0)
+                continue;
+            int[] cols = colonnesParClient[c];
+            int compte = 0;
+            double minPart = Double.NaN;
+            for (int k = 0; k < cols.length && compte < minCompte; k++) {
+                if (intersecte(ensembles[cols[k]]))
+                    continue;
+                if (compte++ == 0)
+                    minPart = parts[cols[k]];
+            }
+            if (compte == 0)
+                return;
+            borne += multiplicateurs[c] + minPart;
+            if (borne >= meilleurCout)
+                return;
+            if (compte < minCompte) {
+                minCompte = compte;
+                client = c;
+            }
+        }
+
+        int rang = 0;
+        for (int j : colonnesParClient[client]) {
+            long[] e = ensembles[j];
+            if (intersecte(e))
+                continue;
+            if (rang > divergences) {
+                coupe = true;
+                return;
+            }
+            int taille = 0;
+            for (int w = 0; w < e.length; w++) {
+                couverts[w] |= e[w];
+                taille += Long.bitCount(e[w]);
+            }
+            choisies[profondeur] = j;
+            explorer(profondeur + 1, cout + couts[j], nonCouverts - taille, divergences - rang);
+            rang++;
+            for (int w = 0; w < e.length; w++)
+                couverts[w] &= ~e[w];
+            if (interrompu)
+                return;
+        }
+    }
+
+    private boolean intersecte(long[] e) {
+        for (int w = 0; w < e.length; w++)
+            if ((couverts[w] & e[w]) != 0)
+                return true;
+        return false;
+    }
+}
@@ -1,30 +1,78 @@
 package metier;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Recuit Simule pour le VRP.
  *
  * 1. Initialisation gloutonne (Plus Proche Voisin)
- * 2. Boucle du recuit : operateurs Swap et Relocate
+ * 2. Boucle du recuit : operateurs Swap et Relocate, evalues en temps constant
+ *    grace aux attributs par tournee de {@link EtatTournees}
  * 3. Refroidissement geometrique : T(k+1) = alpha * T(k)
  * 4. Recherche locale 2-opt finale
+ *
+ * {@link #reoptimiser} repart d'une solution existante apres une modification
+ * des demandes (reparation puis recuit court a basse temperature).
+ * {@link #reprendre} poursuit un recuit depuis un {@link PointReprise}.
  */
 public class RecuitSimule {
 
     private DonneesVRP donnees;
-    private Random random = new Random();
+    private long graine = new Random().nextLong();
+    private Random random = new Random(graine);
 
-    // --- Parametres ---
+    // --- Parametres (temperatures en unites de cout d'origine, voir echelleCouts) ---
     private double temperatureInitiale = 200.0;
     private double temperatureFinale = 0.1;
     private double tauxRefroidissement = 0.9;
     private int iterationsParTemperature = 3000;
     private int maxIterationsSansAmelioration = 100000;
     private int frequenceAffichage = 50;
+    private double temperatureReoptimisation = 5.0;
+    private int maxIterationsReoptimisation = 20000;
+
+    private int derniereIteration;
+
+    // --- Arret cooperatif ---
+    private volatile boolean arretDemande = false;
+    private long dateLimiteNanos = 0;
+
+    // --- Points de reprise ---
+    private Path fichierReprise;
+    private long periodeRepriseNanos;
+
+    // --- Borne inferieure et arret sur ecart (optionnel) ---
+    private boolean calculerBorne = false;
+    private double ecartCible = 0;
+    private double borneInferieure = Double.NaN;
+    private boolean cibleAtteinte;
+
+    // --- Reserve de tournees et recombinaison (optionnel) ---
+    private PoolTournees pool;
+    private long budgetRecombinaisonMs;
+    /** Ecart relatif au meilleur en dessous duquel la solution courante alimente la reserve. */
+    private static final double SEUIL_RESERVE = 0.02;
+
+    // --- Minimisation du nombre de vehicules avant le recuit (optionnel, 0 = desactive) ---
+    private long budgetEliminationMs;
+
+    // --- Evaluation speculative (optionnel) ---
+    private int threadsSpeculation = 1;
+    private int tailleLotSpeculation = 256;
+    /** Taux d'acceptation du palier precedent en dessous duquel on evalue par lots. */
+    private static final double SEUIL_SPECULATION = 0.05;
 
     // --- Listener (callback vers la vue) ---
 
@@ -37,6 +85,9 @@ public class RecuitSimule {
     }
 
     private RecuitListener listener;
+    private MetriquesRecuit metriques = new MetriquesRecuit();
+    private TraceAnytime trace = new TraceAnytime();
+    private long debutExecution;
 
     // --- Constructeur ---
 
@@ -48,6 +99,49 @@ public class RecuitSimule {
         this.listener = l;
     }
 
+    public long getGraine() {
+        return graine;
+    }
+
+    /**
+     * Fixe la graine du generateur : deux executions de meme graine sur les memes
+     * donnees et parametres donnent la meme solution. Sans appel, une graine
+     * aleatoire est tiree et reportee dans la solution.
+     */
+    public void setGraine(long graine) {
+        this.graine = graine;
+        this.random = new Random(graine);
+    }
+
+    /**
+     * Graine de la chaine numero indice, derivee de graine par SplitMix64 :
+     * chaines paralleles decorrelees et reproductibles quel que soit l'ordonnancement.
+     */
+    public static long graineDerivee(long graine, int indice) {
+        long z = graine + (indice + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public MetriquesRecuit getMetriques() {
+        return metriques;
+    }
+
+    public void setMetriques(MetriquesRecuit m) {
+        this.metriques = m;
+    }
+
+    /** Profil anytime de la derniere execution (une nouvelle trace par execution). */
+    public TraceAnytime getTrace() {
+        return trace;
+    }
+
+    private void demarrerTrace() {
+        trace = new TraceAnytime();
+        debutExecution = System.nanoTime();
+    }
+
     // --- Getters / Setters ---
 
     public double getTemperatureInitiale() {
@@ -98,6 +192,143 @@ public class RecuitSimule {
         this.frequenceAffichage = f;
     }
 
+    public double getTemperatureReoptimisation() {
+        return temperatureReoptimisation;
+    }
+
+    public void setTemperatureReoptimisation(double t) {
+        this.temperatureReoptimisation = t;
+    }
+
+    public int getMaxIterationsReoptimisation() {
+        return maxIterationsReoptimisation;
+    }
+
+    public void setMaxIterationsReoptimisation(int i) {
+        this.maxIterationsReoptimisation = i;
+    }
+
+    /**
+     * Date limite (au sens de {@link System#nanoTime()}) au-dela de laquelle le recuit
+     * s'arrete et rend la meilleure solution connue. 0 = pas de limite.
+     */
+    public void setDateLimiteNanos(long dateLimite) {
+        this.dateLimiteNanos = dateLimite;
+    }
+
+    /**
+     * Demande l'arret du recuit depuis un autre thread. La meilleure solution
+     * connue passe quand meme par le 2-opt final. L'arret est definitif pour cette instance.
+     */
+    public void arreter() {
+        this.arretDemande = true;
+    }
+
+    /**
+     * Active l'ecriture periodique d'un point de reprise, au plus une fois par
+     * periode et toujours entre deux paliers. L'ecriture se fait hors du thread
+     * du solveur. null desactive.
+     */
+    public void setPointReprise(Path fichier, long periodeMs) {
+        this.fichierReprise = fichier;
+        this.periodeRepriseNanos = TimeUnit.MILLISECONDS.toNanos(periodeMs);
+    }
+
+    /**
+     * Evaluation speculative : a basse temperature (taux d'acceptation du palier
+     * precedent sous 5 %), les propositions sont tirees par lots de tailleLot et
+     * evaluees sur nbThreads threads ; le premier mouvement accepte du lot est applique,
+     * les suivants sont abandonnes. Le resultat depend de la graine et de tailleLot,
+     * pas du nombre de threads. nbThreads <= 1 desactive.
+     *
+     * Le choix du mode au premier palier apres une reprise est sequentiel : la suite
+     * n'est alors identique au calcul interrompu qu'en mode sequentiel.
+     */
+    public void setEvaluationSpeculative(int nbThreads, int tailleLot) {
+        if (tailleLot < 1)
+            throw new IllegalArgumentException("Taille de lot invalide : " + tailleLot);
+        this.threadsSpeculation = nbThreads;
+        this.tailleLotSpeculation = tailleLot;
+    }
+
+    public int getThreadsSpeculation() {
+        return threadsSpeculation;
+    }
+
+    public int getTailleLotSpeculation() {
+        return tailleLotSpeculation;
+    }
+
+    /** Calcule une {@link BorneInferieure} au depart pour afficher l'ecart du resultat. */
+    public void setCalculerBorne(boolean b) {
+        this.calculerBorne = b;
+    }
+
+    public double getEcartCible() {
+        return ecartCible;
+    }
+
+    /**
+     * Arrete le recuit des que l'ecart (en %) de la meilleure solution a la borne
+     * inferieure est au plus ecartCible. 0 = desactive ; implique le calcul de la borne.
+     */
+    public void setEcartCible(double pourcent) {
+        this.ecartCible = pourcent;
+    }
+
+    /**
+     * Verse dans la reserve les tournees rencontrees : tournees modifiees a chaque
+     * nouveau meilleur, toute la solution courante en fin de palier si elle est a
+     * moins de 2 % du meilleur, et la solution finale. Si budgetMs > 0, la solution
+     * finale est recombinee par {@link Recombinaison}. null desactive.
+     */
+    public void setPoolTournees(PoolTournees pool, long budgetMs) {
+        this.pool = pool;
+        this.budgetRecombinaisonMs = budgetMs;
+    }
+
+    public PoolTournees getPoolTournees() {
+        return pool;
+    }
+
+    public long getBudgetRecombinaisonMs() {
+        return budgetRecombinaisonMs;
+    }
+
+    DonneesVRP getDonnees() {
+        return donnees;
+    }
+
+    /**
+     * Avant le recuit, elimine des tournees pendant au plus budgetMs
+     * ({@link EliminationTournees}) puis, en flotte homogene, reduit la solution
+     * de travail aux vehicules utilises : le recuit n'ouvre plus de tournee.
+     * 0 desactive.
+     */
+    public void setEliminationTournees(long budgetMs) {
+        this.budgetEliminationMs = budgetMs;
+    }
+
+    public long getEliminationTournees() {
+        return budgetEliminationMs;
+    }
+
+    public double getBorneInferieure() {
+        return borneInferieure;
+    }
+
+    /**
+     * Facteur des couts par rapport aux unites d'origine : en distances entieres a
+     * l'echelle e, les couts sont multiplies par e et les temperatures le sont aussi.
+     */
+    private double echelleCouts() {
+        return Math.max(1, donnees.getEchelleDistances());
+    }
+
+    private boolean doitArreter() {
+        return arretDemande || cibleAtteinte || (dateLimiteNanos != 0 && System.nanoTime() - dateLimiteNanos >= 0);
+    }
+
     // ====================================================================
     // ALGORITHME PRINCIPAL
     // ====================================================================
@@ -111,7 +342,12 @@ public class RecuitSimule {
         int sommeDemandes = 0;
         for (int d : donnees.getDemandes())
             sommeDemandes += d;
-        int capaciteMax = donnees.getNbVehicules() * donnees.getCapaciteVehicule();
+        long capaciteMax = donnees.getCapaciteTotale();
+        if (sommeDemandes > capaciteMax && !donnees.estFlotteHomogene()) {
+            throw new RuntimeException(
+                    String.format("Flotte insuffisante ! Demande totale = %d, capacite totale = %d.",
+                            sommeDemandes, capaciteMax));
+        }
         if (sommeDemandes > capaciteMax) {
             throw new RuntimeException(
                     String.format("Nombre de vehicules insuffisant ! " +
@@ -122,41 +358,292 @@ public class RecuitSimule {
                             (int) Math.ceil((double) sommeDemandes / donnees.getCapaciteVehicule())));
         }
 
+        random = new Random(graine);
+        demarrerTrace();
+        System.out.println("Graine: " + graine);
+
         // Etape 1 — Solution initiale (Plus Proche Voisin)
+        EvenementsJfr.Phase phase = new EvenementsJfr.Phase("construction");
+        phase.begin();
+        long debut = System.nanoTime();
         Solution courante = genererSolutionInitiale();
+        metriques.nanosConstruction.add(System.nanoTime() - debut);
+        phase.cout = courante.cout;
+        phase.commit();
+        trace.ajouter(System.nanoTime() - debutExecution, 0, courante.cout);
         System.out.printf("Solution initiale: %.2f%n", courante.cout);
+        if (budgetEliminationMs > 0)
+            courante = minimiserVehicules(courante);
+        preparerBorne(courante.cout);
 
-        Solution meilleure = courante.copier();
-        if (listener != null)
-            listener.onSolutionMiseAJour(courante);
+        // Etapes 2 et 3 — Recuit depuis la temperature initiale (valeur utilisateur)
+        Solution meilleure = recuire(courante, temperatureInitiale * echelleCouts(),
+                maxIterationsSansAmelioration);
 
-        // Etape 2 — Temperature initiale (valeur utilisateur)
-        double temperature = temperatureInitiale;
+        // Etape 4 — Recherche locale 2-opt finale
+        return terminer(meilleure);
+    }
 
-        int iteration = 0;
-        int sansAmelioration = 0;
+    /**
+     * Re-optimise une solution existante apres une modification des demandes.
+     *
+     * La modification est d'abord validee en entier, puis les demandes de
+     * {@link DonneesVRP} sont mises a jour (0 pour les clients retires, qui sortent
+     * aussi de la borne inferieure). Les clients retires sont enleves des tournees,
+     * les tournees en surcharge sont reparees par ejection, puis les clients ejectes
+     * ou ajoutes sont reinseres au moindre cout. Si la reparation echoue, les demandes
+     * d'origine sont restaurees. Un recuit court a basse temperature termine l'optimisation.
+     */
+    public Solution reoptimiser(Solution depart, ModificationDemandes modification) {
+        int[] demandes = donnees.getDemandes();
+        validerModification(modification, demandes.length);
+        int[] anciennes = demandes.clone();
+        for (Map.Entry<Integer, Integer> e : modification.getDemandesModifiees().entrySet())
+            demandes[e.getKey() - 1] = e.getValue();
+        for (int client : modification.getRetires())
+            demandes[client - 1] = 0;
+
+        random = new Random(graine);
+        demarrerTrace();
+        Solution courante;
+        try {
+            courante = reparer(depart, modification, demandes);
+        } catch (RuntimeException e) {
+            System.arraycopy(anciennes, 0, demandes, 0, demandes.length);
+            throw e;
+        }
 
-        // Etape 3 — Boucle du recuit
-        while (temperature > temperatureFinale
-                && sansAmelioration < maxIterationsSansAmelioration) {
+        courante.cout = calculerCout(courante);
+        trace.ajouter(System.nanoTime() - debutExecution, 0, courante.cout);
+        System.out.printf("Solution reparee: %.2f%n", courante.cout);
+        preparerBorne(courante.cout, modification.getRetires());
 
-            for (int i = 0; i < iterationsParTemperature; i++) {
-                iteration++;
-                sansAmelioration++;
+        Solution meilleure = recuire(courante, temperatureReoptimisation * echelleCouts(),
+                maxIterationsReoptimisation);
+        return terminer(meilleure);
+    }
 
-                Solution voisin = genererVoisin(courante);
-                if (voisin == null)
-                    continue;
+    /** Indices dans 1..nbClients, demandes positives, aucun client a la fois ajoute et retire. */
+    private static void validerModification(ModificationDemandes modification, int nbClients) {
+        for (Map.Entry<Integer, Integer> e : modification.getDemandesModifiees().entrySet()) {
+            validerClient(e.getKey(), nbClients);
+            if (e.getValue() < 0)
+                throw new IllegalArgumentException(
+                        "Demande negative pour le client " + e.getKey() + " : " + e.getValue());
+        }
+        for (int client : modification.getRetires()) {
+            validerClient(client, nbClients);
+            if (modification.getAjoutes().contains(client))
+                throw new IllegalArgumentException("Client a la fois ajoute et retire : " + client);
+        }
+    }
 
-                double delta = voisin.cout - courante.cout;
+    private static void validerClient(int client, int nbClients) {
+        if (client < 1 || client > nbClients)
+            throw new IllegalArgumentException("Client inconnu : " + client);
+    }
 
-                // Critere de Metropolis
-                if (delta < 0 || Math.exp(-delta / temperature) > random.nextDouble()) {
-                    courante = voisin;
+    /** Retraits, ejection des surcharges et reinsertion au moindre cout (demandes deja a jour). */
+    private Solution reparer(Solution depart, ModificationDemandes modification, int[] demandes) {
+        // Copie dimensionnee sur la flotte courante
+        Solution courante = new Solution(donnees.getNbVehicules());
+        for (int i = 0; i < depart.tournees.size(); i++) {
+            if (i < courante.tournees.size())
+                courante.tournees.get(i).addAll(depart.tournees.get(i));
+            else
+                courante.tournees.get(courante.tournees.size() - 1).addAll(depart.tournees.get(i));
+        }
+
+        // Clients retires ou a (re)placer : on les enleve des tournees
+        Set<Integer> aEnlever = new HashSet<>(modification.getRetires());
+        aEnlever.addAll(modification.getAjoutes());
+        for (List<Integer> route : courante.tournees)
+            route.removeIf(aEnlever::contains);
+
+        // Reparation des tournees en surcharge
+        List<Integer> aInserer = new ArrayList<>(modification.getAjoutes());
+        for (int t = 0; t < courante.tournees.size(); t++)
+            aInserer.addAll(ejecterSurcharge(courante.tournees.get(t), t));
+
+        // Reinsertion : plus grosses demandes d'abord
+        aInserer.sort((a, b) -> Integer.compare(demandes[b - 1], demandes[a - 1]));
+        EtatTournees etat = new EtatTournees(donnees, courante);
+        for (int client : aInserer)
+            insererMoindreCout(etat, client);
+        return courante;
+    }
+
+    /**
+     * Reprend un recuit depuis un point de reprise : parametres de refroidissement,
+     * compteurs et generateur aleatoire sont restaures, la suite est donc identique
+     * a celle du calcul interrompu. La trace anytime repart de l'instant de reprise.
+     */
+    public Solution reprendre(Path fichier) throws IOException {
+        PointReprise p = PointReprise.lire(fichier);
+        if (p.nbClients != donnees.getNbClients())
+            throw new IOException(String.format(
+                    "Point de reprise pour %d clients, instance de %d clients",
+                    p.nbClients, donnees.getNbClients()));
+        temperatureFinale = p.temperatureFinale;
+        tauxRefroidissement = p.tauxRefroidissement;
+        iterationsParTemperature = p.iterationsParTemperature;
+        graine = p.graine;
+        random = p.restaurerAleatoire();
+        demarrerTrace();
+        trace.ajouter(0, p.iteration, p.meilleure.cout);
+        System.out.printf("Reprise: iteration %d, T=%.4f, meilleur %.2f%n",
+                p.iteration, p.temperature, p.meilleure.cout);
+        preparerBorne(p.meilleure.cout);
+
+        Solution meilleure = recuire(p.courante, p.meilleure, p.temperature,
+                p.iteration, p.sansAmelioration, p.limiteSansAmelioration);
+        return terminer(meilleure);
+    }
+
+    /** Phase d'elimination de tournees, puis solution reduite aux vehicules utilises. */
+    private Solution minimiserVehicules(Solution sol) {
+        EvenementsJfr.Phase phase = new EvenementsJfr.Phase("elimination");
+        phase.begin();
+        long debut = System.nanoTime();
+        int avant = compterVehicules(sol);
+        EliminationTournees elimination = new EliminationTournees(donnees, this);
+        elimination.setBudgetMs(budgetEliminationMs);
+        Solution res = elimination.eliminer(sol);
+        EliminationTournees.compacter(res, donnees);
+        phase.cout = res.cout;
+        phase.commit();
+        trace.ajouter(System.nanoTime() - debutExecution, 0, res.cout);
+        System.out.printf("Elimination de tournees: %d -> %d vehicules, cout %.2f (%d ms)%n",
+                avant, compterVehicules(res), res.cout, (System.nanoTime() - debut) / 1_000_000);
+        return res;
+    }
+
+    /** Borne inferieure de l'instance courante si demandee, et remise a zero de la cible. */
+    private void preparerBorne(double coutDepart) {
+        preparerBorne(coutDepart, null);
+    }
+
+    /** Borne inferieure sur les clients servis : les clients exclus (retires du plan) sont ignores. */
+    private void preparerBorne(double coutDepart, Collection<Integer> exclus) {
+        cibleAtteinte = false;
+        borneInferieure = Double.NaN;
+        if (!calculerBorne && ecartCible <= 0)
+            return;
+        long debut = System.nanoTime();
+        if (exclus != null && !exclus.isEmpty()) {
+            BorneInferieure borne = new BorneInferieure(donnees);
+            borne.setExclus(exclus);
+            borneInferieure = borne.calculer(coutDepart);
+        } else {
+            borneInferieure = (donnees.getCache() != null)
+                    ? donnees.getCache().borneInferieure(donnees, coutDepart)
+                    : new BorneInferieure(donnees).calculer(coutDepart);
+        }
+        System.out.printf("Borne inferieure: %.2f (%d ms)%n",
+                borneInferieure, (System.nanoTime() - debut) / 1_000_000);
+        cibleAtteinte = ecartAtteint(coutDepart);
+    }
+
+    private boolean ecartAtteint(double cout) {
+        return ecartCible > 0 && BorneInferieure.ecart(cout, borneInferieure) <= ecartCible;
+    }
+
+    // ====================================================================
+    // BOUCLE DU RECUIT
+    // ====================================================================
+
+    /**
+     * Boucle du recuit depuis la solution courante et la temperature donnee.
+     * Retourne la meilleure solution rencontree (avant 2-opt).
+     */
+    private Solution recuire(Solution courante, double temperature, int maxSansAmelioration) {
+        return recuire(courante, courante.copier(), temperature, 0, 0, maxSansAmelioration);
+    }
+
+    private Solution recuire(Solution courante, Solution meilleure, double temperature,
+            int iteration, int sansAmelioration, int maxSansAmelioration) {
+        EtatTournees etat = new EtatTournees(donnees, courante);
+        Mouvement mouvement = new Mouvement();
+        if (listener != null)
+            listener.onSolutionMiseAJour(meilleure);
+
+        ExecutorService ecrivain = null;
+        if (fichierReprise != null) {
+            ecrivain = Executors.newSingleThreadExecutor(r -> {
+                Thread th = new Thread(r, "point-reprise");
+                th.setDaemon(true);
+                return th;
+            });
+        }
+        long dernierPoint = System.nanoTime();
+
+        EvaluationSpeculative lot = (threadsSpeculation > 1)
+                ? new EvaluationSpeculative(threadsSpeculation, tailleLotSpeculation)
+                : null;
+        double tauxAcceptation = 1.0;
+
+        double temperatureArret = temperatureFinale * echelleCouts();
+        while (temperature > temperatureArret
+                && sansAmelioration < maxSansAmelioration && !doitArreter()) {
+
+            EvenementsJfr.PalierTemperature palier = new EvenementsJfr.PalierTemperature();
+            palier.begin();
+            long debutPalier = System.nanoTime();
+            // Temps passe a rafraichir l'affichage (pause comprise), exclu des metriques
+            long nanosAffichage = 0;
+            boolean speculatif = lot != null && tauxAcceptation < SEUIL_SPECULATION;
+            int acceptationsPalier = 0;
+            int prochainControle = 256;
+            int i;
+            for (i = 0; i < iterationsParTemperature;) {
+                if (i >= prochainControle) {
+                    if (doitArreter())
+                        break;
+                    prochainControle = i + 256;
+                }
+
+                // Propositions consommees et mouvement retenu (null = tous rejetes)
+                int nb;
+                Mouvement retenu;
+                if (speculatif) {
+                    nb = Math.min(lot.taille(), iterationsParTemperature - i);
+                    int gagnant = proposerLot(etat, lot, temperature, nb);
+                    if (gagnant >= 0)
+                        nb = gagnant + 1;
+                    // Seules les nb propositions consommees comptent, comme en sequentiel
+                    for (int k = 0; k < nb; k++) {
+                        compterProposition(lot.mouvements[k]);
+                        if (lot.generes[k] && !lot.mouvements[k].realisable)
+                            metriques.rejetsCapacite.increment();
+                    }
+                    retenu = (gagnant >= 0) ? lot.mouvements[gagnant] : null;
+                } else {
+                    nb = 1;
+                    retenu = proposer(etat, mouvement, temperature) ? mouvement : null;
+                }
+                i += nb;
+                iteration += nb;
+                sansAmelioration += nb;
+
+                if (retenu != null) {
+                    etat.appliquer(retenu);
+                    metriques.acceptations.increment();
+                    acceptationsPalier++;
 
                     if (courante.cout < meilleure.cout) {
                         meilleure = courante.copier();
+                        // Reserve alimentee aux ameliorations (et par lot en fin de palier),
+                        // jamais a chaque acceptation : verrou et allocations hors du chemin chaud
+                        if (pool != null) {
+                            pool.ajouter(meilleure.tournees.get(retenu.t1));
+                            pool.ajouter(meilleure.tournees.get(retenu.t2));
+                        }
                         sansAmelioration = 0;
+                        metriques.ameliorations.increment();
+                        trace.ajouter(System.nanoTime() - debutExecution, iteration, meilleure.cout);
+                        signalerMeilleur(meilleure.cout, temperature, iteration);
+                        if (ecartAtteint(meilleure.cout))
+                            cibleAtteinte = true;
                         if (listener != null) {
                             listener.onNouveauMeilleur(iteration, meilleure.cout,
                                     temperature, compterVehicules(meilleure));
@@ -166,7 +653,8 @@ public class RecuitSimule {
                 }
 
                 // Rafraichir l'affichage
-                if (iteration % frequenceAffichage == 0 && listener != null) {
+                if (listener != null && (iteration - nb) / frequenceAffichage != iteration / frequenceAffichage) {
+                    long debutAffichage = System.nanoTime();
                     listener.onMiseAJour(iteration, temperature,
                             meilleure.cout, compterVehicules(meilleure));
                     listener.onSolutionMiseAJour(meilleure);
@@ -174,19 +662,149 @@ public class RecuitSimule {
                         Thread.sleep(5);
                     } catch (InterruptedException e) {
                     }
+                    nanosAffichage += System.nanoTime() - debutAffichage;
                 }
             }
 
+            metriques.iterations.add(i);
+            metriques.nanosRecuit.add(System.nanoTime() - debutPalier - nanosAffichage);
+            tauxAcceptation = (i > 0) ? (double) acceptationsPalier / i : 1.0;
+            if (pool != null && courante.cout <= meilleure.cout * (1 + SEUIL_RESERVE))
+                pool.ajouterSolution(courante);
+            if (palier.shouldCommit()) {
+                palier.temperature = temperature;
+                palier.coutCourant = courante.cout;
+                palier.meilleurCout = meilleure.cout;
+                palier.iteration = iteration;
+                palier.commit();
+            }
+
             // Refroidissement geometrique
             temperature *= tauxRefroidissement;
+
+            // Point de reprise entre deux paliers complets
+            if (ecrivain != null && i == iterationsParTemperature
+                    && System.nanoTime() - dernierPoint >= periodeRepriseNanos) {
+                dernierPoint = System.nanoTime();
+                PointReprise p = capturerPoint(courante, meilleure, temperature,
+                        iteration, sansAmelioration, maxSansAmelioration);
+                Path fichier = fichierReprise;
+                ecrivain.execute(() -> {
+                    try {
+                        p.ecrire(fichier);
+                    } catch (IOException e) {
+                        System.err.println("Point de reprise non ecrit : " + e.getMessage());
+                    }
+                });
+            }
         }
 
-        // Etape 4 — Recherche locale 2-opt finale
+        if (lot != null)
+            lot.fermer();
+        if (ecrivain != null) {
+            ecrivain.shutdown();
+            try {
+                ecrivain.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        derniereIteration = iteration;
+        return meilleure;
+    }
+
+    /**
+     * Une proposition sequentielle : tirage, evaluation puis critere de Metropolis.
+     * Retourne vrai si le mouvement est accepte (il n'est pas encore applique).
+     */
+    private boolean proposer(EtatTournees etat, Mouvement m, double temperature) {
+        boolean genere = genererMouvement(etat, m);
+        compterProposition(m);
+        if (!genere)
+            return false;
+        etat.evaluer(m);
+        if (!m.realisable) {
+            metriques.rejetsCapacite.increment();
+            return false;
+        }
+        double delta = m.delta;
+        return delta < 0 || Math.exp(-delta / temperature) > random.nextDouble();
+    }
+
+    /**
+     * Tire nb propositions depuis l'etat courant (mouvement puis tirage de Metropolis,
+     * toujours dans cet ordre) et les evalue en parallele. Retourne l'indice du
+     * premier mouvement accepte, -1 si aucun.
+     */
+    private int proposerLot(EtatTournees etat, EvaluationSpeculative lot, double temperature, int nb) {
+        for (int k = 0; k < nb; k++) {
+            lot.generes[k] = genererMouvement(etat, lot.mouvements[k]);
+            lot.tirages[k] = random.nextDouble();
+        }
+        return lot.evaluer(etat, temperature, nb);
+    }
+
+    /** Copie de l'etat du recuit ; seule la serialisation du Random se fait ici. */
+    private PointReprise capturerPoint(Solution courante, Solution meilleure, double temperature,
+            int iteration, int sansAmelioration, int maxSansAmelioration) {
+        PointReprise p = new PointReprise();
+        p.nbClients = donnees.getNbClients();
+        p.courante = courante.copier();
+        p.meilleure = meilleure.copier();
+        p.temperature = temperature;
+        p.iteration = iteration;
+        p.sansAmelioration = sansAmelioration;
+        p.limiteSansAmelioration = maxSansAmelioration;
+        p.temperatureFinale = temperatureFinale;
+        p.tauxRefroidissement = tauxRefroidissement;
+        p.iterationsParTemperature = iterationsParTemperature;
+        p.graine = graine;
+        p.etatAleatoire = PointReprise.capturer(random);
+        return p;
+    }
+
+    /** Emet l'evenement JFR d'une nouvelle meilleure solution. */
+    private static void signalerMeilleur(double cout, double temperature, long iteration) {
+        EvenementsJfr.NouveauMeilleur evt = new EvenementsJfr.NouveauMeilleur();
+        if (evt.shouldCommit()) {
+            evt.cout = cout;
+            evt.temperature = temperature;
+            evt.iteration = iteration;
+            evt.commit();
+        }
+    }
+
+    /** Recherche locale 2-opt finale et notification du resultat. */
+    private Solution terminer(Solution meilleure) {
+        EvenementsJfr.Phase phase = new EvenementsJfr.Phase("2-opt");
+        phase.begin();
+        long debut = System.nanoTime();
         meilleure = rechercheLocale2Opt(meilleure);
+        metriques.nanos2Opt.add(System.nanoTime() - debut);
+        phase.cout = meilleure.cout;
+        phase.commit();
+
+        if (pool != null) {
+            pool.ajouterSolution(meilleure);
+            if (budgetRecombinaisonMs > 0) {
+                Recombinaison recombinaison = new Recombinaison(donnees, pool);
+                recombinaison.setBudgetMs(budgetRecombinaisonMs);
+                meilleure = recombinaison.resoudre(meilleure);
+            }
+        }
 
+        meilleure.graine = graine;
+        trace.ajouter(System.nanoTime() - debutExecution, derniereIteration, meilleure.cout);
+        meilleure.trace = trace;
+        meilleure.borneInferieure = borneInferieure;
         System.out.printf("Resultat final: %.2f%n", meilleure.cout);
+        if (borneInferieure > 0)
+            System.out.printf("Ecart a la borne: %.2f%%%s%n",
+                    BorneInferieure.ecart(meilleure.cout, borneInferieure),
+                    cibleAtteinte ? " (cible atteinte, arret anticipe)" : "");
         if (listener != null) {
-            listener.onNouveauMeilleur(iteration, meilleure.cout, 0, compterVehicules(meilleure));
+            listener.onNouveauMeilleur(derniereIteration, meilleure.cout, 0,
+                    compterVehicules(meilleure));
             listener.onSolutionMiseAJour(meilleure);
         }
         return meilleure;
@@ -200,27 +818,30 @@ public class RecuitSimule {
      * Construit une solution en visitant toujours le client non-visite
      * le plus proche dont la demande ne depasse pas la capacite restante.
      */
-    private Solution genererSolutionInitiale() {
+    Solution genererSolutionInitiale() {
         int nbV = donnees.getNbVehicules();
         int nbC = donnees.getNbClients();
-        double[][] dist = donnees.getDistanceMatrix();
-        int depot = donnees.getDepot();
 
         Solution sol = new Solution(nbV);
         boolean[] visite = new boolean[nbC + 1];
         int affectes = 0, v = 0;
 
+        boolean fenetres = donnees.aFenetresTemps();
         while (affectes < nbC && v < nbV) {
+            int depot = donnees.getDepotVehicule(v);
             int charge = 0, dernier = depot;
+            int capacite = donnees.getCapacite(v);
+            double heure = donnees.getDebutFenetre(depot);
 
             while (true) {
                 int meilleur = -1;
                 double minDist = Double.MAX_VALUE;
                 for (int c = 1; c <= nbC; c++) {
                     if (!visite[c]
-                            && charge + donnees.getDemandes()[c - 1] <= donnees.getCapaciteVehicule()
-                            && dist[dernier][c] < minDist) {
-                        minDist = dist[dernier][c];
+                            && charge + donnees.getDemandes()[c - 1] <= capacite
+                            && donnees.distance(dernier, c) < minDist
+                            && (!fenetres || atteignable(dernier, heure, c, depot))) {
+                        minDist = donnees.distance(dernier, c);
                         meilleur = c;
                     }
                 }
@@ -230,6 +851,8 @@ public class RecuitSimule {
                 sol.tournees.get(v).add(meilleur);
                 visite[meilleur] = true;
                 charge += donnees.getDemandes()[meilleur - 1];
+                heure = Math.max(donnees.getDebutFenetre(meilleur),
+                        heure + donnees.getTempsService(dernier) + donnees.distance(dernier, meilleur));
                 dernier = meilleur;
                 affectes++;
             }
@@ -245,77 +868,167 @@ public class RecuitSimule {
         return sol;
     }
 
+    /**
+     * Vrai si, parti de dernier a l'heure donnee, le vehicule peut servir c dans sa
+     * fenetre puis rentrer au depot avant la fermeture.
+     */
+    private boolean atteignable(int dernier, double heure, int c, int depot) {
+        double h = Math.max(donnees.getDebutFenetre(c),
+                heure + donnees.getTempsService(dernier) + donnees.distance(dernier, c));
+        return h <= donnees.getFinFenetre(c)
+                && h + donnees.getTempsService(c) + donnees.distance(c, depot) <= donnees.getFinFenetre(depot);
+    }
+
     // ====================================================================
     // GENERATION DE VOISIN
     // ====================================================================
 
     /**
-     * Genere un voisin aleatoire (Swap 50% / Relocate 50%).
-     * Retourne null si le mouvement viole la capacite.
+     * Tire un mouvement aleatoire (Swap 50% / Relocate 50%) sans l'appliquer.
+     * Retourne false si aucun mouvement n'est possible (m.type reste le type tire).
      */
-    private Solution genererVoisin(Solution solution) {
-        Solution voisin = solution.copier();
+    private boolean genererMouvement(EtatTournees etat, Mouvement m) {
+        if (random.nextBoolean()) {
+            m.type = Mouvement.SWAP;
+            return tirerSwap(etat, m);
+        }
+        m.type = Mouvement.RELOCATE;
+        return tirerRelocate(etat, m);
+    }
 
-        if (random.nextBoolean())
-            operateurSwap(voisin);
+    /** Compte une proposition consommee par le recuit, selon son type. */
+    private void compterProposition(Mouvement m) {
+        if (m.type == Mouvement.SWAP)
+            metriques.propositionsSwap.increment();
         else
-            operateurRelocate(voisin);
-
-        if (!estValide(voisin))
-            return null;
-        voisin.cout = calculerCout(voisin);
-        return voisin;
+            metriques.propositionsRelocate.increment();
     }
 
     /**
      * Swap : echange 2 clients (intra ou inter-tournees).
      */
-    private void operateurSwap(Solution sol) {
-        List<Integer> nonVides = tourneesNonVides(sol);
-        if (nonVides.isEmpty())
-            return;
+    private boolean tirerSwap(EtatTournees etat, Mouvement m) {
+        Solution sol = etat.solution;
+        EtatTournees.IndicesTries nonVides = etat.nonVides;
+        if (nonVides.taille() == 0)
+            return false;
 
-        if (nonVides.size() >= 2 && random.nextBoolean()) {
+        if (nonVides.taille() >= 2 && random.nextBoolean()) {
             // Swap inter-tournees
-            int t1 = nonVides.get(random.nextInt(nonVides.size()));
+            int t1 = nonVides.get(random.nextInt(nonVides.taille()));
             int t2;
             do {
-                t2 = nonVides.get(random.nextInt(nonVides.size()));
+                t2 = nonVides.get(random.nextInt(nonVides.taille()));
             } while (t2 == t1);
 
-            List<Integer> r1 = sol.tournees.get(t1), r2 = sol.tournees.get(t2);
-            int p1 = random.nextInt(r1.size()), p2 = random.nextInt(r2.size());
-            int tmp = r1.get(p1);
-            r1.set(p1, r2.get(p2));
-            r2.set(p2, tmp);
+            int p1 = random.nextInt(sol.tournees.get(t1).size());
+            int p2 = random.nextInt(sol.tournees.get(t2).size());
+            m.definir(Mouvement.SWAP, t1, p1, t2, p2);
         } else {
             // Swap intra-tournee
-            List<Integer> grands = tourneesAvecMin(sol, 2);
-            if (grands.isEmpty())
-                return;
+            EtatTournees.IndicesTries grands = etat.aDeuxClients;
+            if (grands.taille() == 0)
+                return false;
 
-            List<Integer> route = sol.tournees.get(grands.get(random.nextInt(grands.size())));
-            int p1 = random.nextInt(route.size()), p2;
+            int t = grands.get(random.nextInt(grands.taille()));
+            int taille = sol.tournees.get(t).size();
+            int p1 = random.nextInt(taille), p2;
             do {
-                p2 = random.nextInt(route.size());
+                p2 = random.nextInt(taille);
             } while (p2 == p1);
-            Collections.swap(route, p1, p2);
+            m.definir(Mouvement.SWAP, t, p1, t, p2);
         }
+        return true;
     }
 
     /**
      * Relocate : retire un client d'une tournee et l'insere dans une autre.
      */
-    private void operateurRelocate(Solution sol) {
-        List<Integer> nonVides = tourneesNonVides(sol);
-        if (nonVides.isEmpty())
-            return;
+    private boolean tirerRelocate(EtatTournees etat, Mouvement m) {
+        Solution sol = etat.solution;
+        EtatTournees.IndicesTries nonVides = etat.nonVides;
+        if (nonVides.taille() == 0)
+            return false;
+
+        int t1 = nonVides.get(random.nextInt(nonVides.taille()));
+        int p1 = random.nextInt(sol.tournees.get(t1).size());
+
+        int t2 = random.nextInt(sol.tournees.size());
+        int taille = sol.tournees.get(t2).size() - (t2 == t1 ? 1 : 0);
+        int p2 = (taille == 0) ? 0 : random.nextInt(taille + 1);
+        m.definir(Mouvement.RELOCATE, t1, p1, t2, p2);
+        return true;
+    }
 
-        List<Integer> src = sol.tournees.get(nonVides.get(random.nextInt(nonVides.size())));
-        int client = src.remove(random.nextInt(src.size()));
+    // ====================================================================
+    // REPARATION — Ejection et insertion au moindre cout
+    // ====================================================================
 
-        List<Integer> dst = sol.tournees.get(random.nextInt(sol.tournees.size()));
-        dst.add(dst.isEmpty() ? 0 : random.nextInt(dst.size() + 1), client);
+    /**
+     * Ejecte des clients d'une tournee tant que sa charge depasse la capacite,
+     * en retirant a chaque fois celui dont le depart economise le plus de distance.
+     */
+    private List<Integer> ejecterSurcharge(List<Integer> route, int vehicule) {
+        List<Integer> ejectes = new ArrayList<>();
+        int depot = donnees.getDepotVehicule(vehicule);
+        int charge = 0;
+        for (int c : route)
+            charge += donnees.getDemandes()[c - 1];
+
+        while (charge > donnees.getCapacite(vehicule)) {
+            int meilleurePos = 0;
+            double meilleurGain = -Double.MAX_VALUE;
+            for (int p = 0; p < route.size(); p++) {
+                int prec = (p == 0) ? depot : route.get(p - 1);
+                int suiv = (p == route.size() - 1) ? depot : route.get(p + 1);
+                int c = route.get(p);
+                double gain = donnees.distance(prec, c) + donnees.distance(c, suiv) - donnees.distance(prec, suiv);
+                if (gain > meilleurGain) {
+                    meilleurGain = gain;
+                    meilleurePos = p;
+                }
+            }
+            int client = route.remove(meilleurePos);
+            charge -= donnees.getDemandes()[client - 1];
+            ejectes.add(client);
+        }
+        return ejectes;
+    }
+
+    /**
+     * Insere un client a la position realisable (capacite, fenetres) de moindre surcout.
+     */
+    private void insererMoindreCout(EtatTournees etat, int client) {
+        Solution sol = etat.solution;
+        int demande = donnees.getDemandes()[client - 1];
+
+        int meilleureRoute = -1, meilleurePos = -1;
+        double meilleurSurcout = Double.MAX_VALUE;
+        for (int t = 0; t < sol.tournees.size(); t++) {
+            List<Integer> route = sol.tournees.get(t);
+            int depot = donnees.getDepotVehicule(t);
+            double km = donnees.getCoutKm(t);
+            double fixe = route.isEmpty() ? donnees.getCoutFixe(t) : 0;
+            for (int p = 0; p <= route.size(); p++) {
+                if (!etat.insertionRealisable(t, p, client))
+                    continue;
+                int prec = (p == 0) ? depot : route.get(p - 1);
+                int suiv = (p == route.size()) ? depot : route.get(p);
+                double surcout = km * (donnees.distance(prec, client) + donnees.distance(client, suiv)
+                        - donnees.distance(prec, suiv)) + fixe;
+                if (surcout < meilleurSurcout) {
+                    meilleurSurcout = surcout;
+                    meilleureRoute = t;
+                    meilleurePos = p;
+                }
+            }
+        }
+        if (meilleureRoute == -1)
+            throw new RuntimeException(String.format(
+                    "Impossible de reinserer le client %d (demande %d) : capacite ou fenetres insuffisantes.",
+                    client, demande));
+        sol.tournees.get(meilleureRoute).add(meilleurePos, client);
+        etat.recalculer(meilleureRoute);
     }
 
     // ====================================================================
@@ -325,84 +1038,122 @@ public class RecuitSimule {
     /**
      * 2-opt intra-tournee : inverse les segments pour eliminer les croisements.
      */
-    private Solution rechercheLocale2Opt(Solution solution) {
+    Solution rechercheLocale2Opt(Solution solution) {
         Solution res = solution.copier();
-        double[][] dist = donnees.getDistanceMatrix();
-        int depot = donnees.getDepot();
+        for (int t = 0; t < res.tournees.size(); t++)
+            optimiserTournee2Opt(res.tournees.get(t), t);
+        res.cout = calculerCout(res);
+        return res;
+    }
 
-        for (List<Integer> route : res.tournees) {
-            if (route.size() < 3)
-                continue;
-            boolean amelioration = true;
-            while (amelioration) {
-                amelioration = false;
-                for (int i = 0; i < route.size() - 1; i++) {
-                    for (int j = i + 1; j < route.size(); j++) {
-                        int avI = (i == 0) ? depot : route.get(i - 1);
-                        int apJ = (j == route.size() - 1) ? depot : route.get(j + 1);
-
-                        double avant = dist[avI][route.get(i)] + dist[route.get(j)][apJ];
-                        double apres = dist[avI][route.get(j)] + dist[route.get(i)][apJ];
-
-                        if (apres < avant - 1e-10) {
-                            int g = i, d = j;
-                            while (g < d) {
-                                Collections.swap(route, g++, d--);
-                            }
+    /**
+     * Applique le 2-opt a la tournee du vehicule donne jusqu'a ce qu'aucune inversion
+     * n'ameliore. Avec fenetres de temps, une inversion qui les viole est annulee.
+     */
+    void optimiserTournee2Opt(List<Integer> route, int vehicule) {
+        if (route.size() < 3)
+            return;
+        int depot = donnees.getDepotVehicule(vehicule);
+        boolean fenetres = donnees.aFenetresTemps();
+        boolean amelioration = true;
+        while (amelioration) {
+            amelioration = false;
+            for (int i = 0; i < route.size() - 1; i++) {
+                for (int j = i + 1; j < route.size(); j++) {
+                    int avI = (i == 0) ? depot : route.get(i - 1);
+                    int apJ = (j == route.size() - 1) ? depot : route.get(j + 1);
+
+                    double avant = donnees.distance(avI, route.get(i)) + donnees.distance(route.get(j), apJ);
+                    double apres = donnees.distance(avI, route.get(j)) + donnees.distance(route.get(i), apJ);
+
+                    if (apres < avant - 1e-10) {
+                        inverser(route, i, j);
+                        if (fenetres && !respecteFenetres(route, vehicule))
+                            inverser(route, i, j);
+                        else
                             amelioration = true;
-                        }
                     }
                 }
             }
         }
-        res.cout = calculerCout(res);
-        return res;
+    }
+
+    private static void inverser(List<Integer> route, int i, int j) {
+        while (i < j)
+            Collections.swap(route, i++, j--);
     }
 
     // ====================================================================
     // UTILITAIRES
     // ====================================================================
 
-    private List<Integer> tourneesNonVides(Solution sol) {
-        return tourneesAvecMin(sol, 1);
-    }
-
-    private List<Integer> tourneesAvecMin(Solution sol, int min) {
-        List<Integer> res = new ArrayList<>();
-        for (int i = 0; i < sol.tournees.size(); i++)
-            if (sol.tournees.get(i).size() >= min)
-                res.add(i);
-        return res;
-    }
-
-    /** Verifie que chaque tournee respecte la capacite Qmax. */
+    /** Verifie que chaque tournee respecte la capacite de son vehicule. */
     public boolean estValide(Solution sol) {
-        for (List<Integer> route : sol.tournees) {
+        for (int t = 0; t < sol.tournees.size(); t++) {
             int charge = 0;
-            for (int c : route)
+            for (int c : sol.tournees.get(t))
                 charge += donnees.getDemandes()[c - 1];
-            if (charge > donnees.getCapaciteVehicule())
+            if (charge > donnees.getCapacite(t))
+                return false;
+            if (donnees.aFenetresTemps() && !respecteFenetres(sol.tournees.get(t), t))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Verifie les fenetres de temps d'une tournee : attente autorisee si le vehicule
+     * arrive trop tot, retour au depot avant la fin de sa fenetre.
+     */
+    public boolean respecteFenetres(List<Integer> route, int vehicule) {
+        int depot = donnees.getDepotVehicule(vehicule);
+        double h = donnees.getDebutFenetre(depot);
+        int prec = depot;
+        for (int k = 0; k <= route.size(); k++) {
+            int c = (k < route.size()) ? route.get(k) : depot;
+            h = Math.max(donnees.getDebutFenetre(c), h + donnees.getTempsService(prec) + donnees.distance(prec, c));
+            if (h > donnees.getFinFenetre(c))
                 return false;
+            prec = c;
         }
         return true;
     }
 
-    /** Calcule le cout total = somme des distances depot -> clients -> depot. */
+    /**
+     * Calcule le cout total = somme des distances depot -> clients -> depot,
+     * ponderees par le cout kilometrique de chaque vehicule, plus les couts fixes.
+     */
     public double calculerCout(Solution sol) {
         double total = 0;
-        double[][] dist = donnees.getDistanceMatrix();
-        int depot = donnees.getDepot();
-        for (List<Integer> route : sol.tournees) {
-            if (route.isEmpty())
+        for (int t = 0; t < sol.tournees.size(); t++) {
+            if (sol.tournees.get(t).isEmpty())
                 continue;
-            total += dist[depot][route.get(0)];
-            for (int i = 0; i < route.size() - 1; i++)
-                total += dist[route.get(i)][route.get(i + 1)];
-            total += dist[route.get(route.size() - 1)][depot];
+            total += donnees.getCoutKm(t) * longueurTournee(sol, t) + donnees.getCoutFixe(t);
         }
         return total;
     }
 
+    /**
+     * Distance parcourue par la tournee t, depuis et vers le depot de son vehicule.
+     * En distances entieres, somme exacte en long.
+     */
+    public double longueurTournee(Solution sol, int t) {
+        List<Integer> route = sol.tournees.get(t);
+        if (route.isEmpty())
+            return 0;
+        int depot = donnees.getDepotVehicule(t);
+        if (donnees.aDistancesEntieres()) {
+            long d = donnees.distanceEntiere(depot, route.get(0));
+            for (int i = 0; i < route.size() - 1; i++)
+                d += donnees.distanceEntiere(route.get(i), route.get(i + 1));
+            return d + donnees.distanceEntiere(route.get(route.size() - 1), depot);
+        }
+        double d = donnees.distance(depot, route.get(0));
+        for (int i = 0; i < route.size() - 1; i++)
+            d += donnees.distance(route.get(i), route.get(i + 1));
+        return d + donnees.distance(route.get(route.size() - 1), depot);
+    }
+
     /** Compte les vehicules utilises (tournees non-vides). */
     public int compterVehicules(Solution sol) {
         int n = 0;
@@ -416,8 +1167,7 @@ public class RecuitSimule {
     public void afficherSolution(Solution sol) {
         System.out.printf("Cout total: %.2f%n", sol.cout);
         System.out.println("Vehicules: " + compterVehicules(sol));
-        double[][] dist = donnees.getDistanceMatrix();
-        int depot = donnees.getDepot();
+        System.out.println("Graine: " + sol.graine);
 
         for (int i = 0; i < sol.tournees.size(); i++) {
             List<Integer> route = sol.tournees.get(i);
@@ -426,15 +1176,12 @@ public class RecuitSimule {
             int charge = 0;
             for (int c : route)
                 charge += donnees.getDemandes()[c - 1];
-            double d = dist[depot][route.get(0)];
-            for (int j = 0; j < route.size() - 1; j++)
-                d += dist[route.get(j)][route.get(j + 1)];
-            d += dist[route.get(route.size() - 1)][depot];
+            double d = longueurTournee(sol, i);
             System.out.printf("V%d: Depot", i + 1);
             for (int c : route)
                 System.out.print(" -> C" + c);
             System.out.printf(" -> Depot (Dist: %.2f, Charge: %d/%d)%n",
-                    d, charge, donnees.getCapaciteVehicule());
+                    d, charge, donnees.getCapacite(i));
         }
     }
 }
@@ -10,6 +10,12 @@ public class Solution {
 
     public List<List<Integer>> tournees;
     public double cout;
+    /** Graine du generateur aleatoire ayant produit la solution. */
+    public long graine;
+    /** Profil anytime de l'execution ayant produit la solution (peut etre null). */
+    public TraceAnytime trace;
+    /** Borne inferieure du cout de l'instance (NaN si non calculee). */
+    public double borneInferieure = Double.NaN;
 
     public Solution(int nbVehicules) {
         this.tournees = new ArrayList<>();
@@ -26,6 +32,9 @@ public class Solution {
         for (int i = 0; i < tournees.size(); i++)
             copie.tournees.set(i, new ArrayList<>(tournees.get(i)));
         copie.cout = this.cout;
+        copie.graine = this.graine;
+        copie.trace = this.trace;
+        copie.borneInferieure = this.borneInferieure;
         return copie;
     }
 }
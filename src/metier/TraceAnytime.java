@@ -0,0 +1,92 @@
+package metier;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Profil "anytime" d'une execution : (temps ecoule, iteration, meilleur cout)
+ * a chaque amelioration.
+ *
+ * Stockage en tableaux primitifs prealloues : aucun objet cree par point dans
+ * la boucle du recuit, doublement de capacite dans le cas rare ou elle est atteinte.
+ */
+public class TraceAnytime {
+
+    private long[] nanos;
+    private long[] iterations;
+    private double[] couts;
+    private int taille;
+
+    public TraceAnytime() {
+        this(1024);
+    }
+
+    public TraceAnytime(int capacite) {
+        nanos = new long[capacite];
+        iterations = new long[capacite];
+        couts = new double[capacite];
+    }
+
+    void ajouter(long nanosEcoules, long iteration, double cout) {
+        if (taille == couts.length) {
+            int capacite = 2 * taille;
+            nanos = Arrays.copyOf(nanos, capacite);
+            iterations = Arrays.copyOf(iterations, capacite);
+            couts = Arrays.copyOf(couts, capacite);
+        }
+        nanos[taille] = nanosEcoules;
+        iterations[taille] = iteration;
+        couts[taille] = cout;
+        taille++;
+    }
+
+    void vider() {
+        taille = 0;
+    }
+
+    public int taille() {
+        return taille;
+    }
+
+    public long getNanos(int i) {
+        return nanos[i];
+    }
+
+    public long getIteration(int i) {
+        return iterations[i];
+    }
+
+    public double getCout(int i) {
+        return couts[i];
+    }
+
+    /** Meilleur cout connu a l'instant donne (NaN avant le premier point). */
+    public double coutA(long nanosEcoules) {
+        int i = Arrays.binarySearch(nanos, 0, taille, nanosEcoules);
+        if (i < 0)
+            i = -i - 2;
+        else
+            while (i + 1 < taille && nanos[i + 1] == nanosEcoules)
+                i++;
+        return (i < 0) ? Double.NaN : couts[i];
+    }
+
+    /** Premier instant ou le cout est inferieur ou egal a cible, -1 si jamais. */
+    public long atteint(double cible) {
+        for (int i = 0; i < taille; i++)
+            if (couts[i] <= cible)
+                return nanos[i];
+        return -1;
+    }
+
+    /** Serialise la trace en tableau JSON de triplets [ms, iteration, cout]. */
+    public String versJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < taille; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(String.format(Locale.ROOT, "[%.3f,%d,%.4f]", nanos[i] / 1e6, iterations[i], couts[i]));
+        }
+        return sb.append(']').toString();
+    }
+}